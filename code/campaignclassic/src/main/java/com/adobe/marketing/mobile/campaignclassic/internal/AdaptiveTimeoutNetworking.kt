@@ -0,0 +1,146 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.util.concurrent.TimeUnit
+
+/**
+ * [Networking] adapting the timeouts of each request to the latency observed for its host.
+ * <p>
+ * The latency of completed requests is smoothed per host the same way TCP estimates its retransmission timeout
+ * (RFC 6298): the timeout is the smoothed latency plus four times its mean deviation. As requests are not retried
+ * as cheaply as packets, the timeout also stays above the slowest recent latency, which decays slowly, so the
+ * occasional slow but successful response is not cut off. The timeout of a request is never shorter than
+ * [minTimeoutMillis] nor longer than the timeout set on the request, which stays the upper bound.
+ * When a request times out, the time waited counts as a lower bound of the slowest recent latency and the timeout
+ * of its host is doubled until a request completes again, so slow but working servers are not cut off repeatedly. Hosts without latency samples use the timeout set on the request.
+ *
+ * @param networkService [Networking] used to send the requests
+ * @param minTimeoutMillis lower bound in milliseconds of the adaptive timeouts
+ * @param elapsedTimeMillis returns a monotonic time in milliseconds
+ */
+internal class AdaptiveTimeoutNetworking(
+    private val networkService: Networking,
+    private val minTimeoutMillis: Long,
+    private val elapsedTimeMillis: () -> Long = { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) }
+) : Networking {
+    private val lock = Any()
+    private val estimates = HashMap<String, LatencyEstimate>()
+
+    companion object {
+        private const val SELF_TAG = "AdaptiveTimeoutNetworking"
+        private const val LATENCY_GAIN = 0.125
+        private const val DEVIATION_GAIN = 0.25
+        private const val DEVIATION_FACTOR = 4
+        private const val PEAK_LATENCY_DECAY = 0.99
+        private const val PEAK_LATENCY_MARGIN = 1.25
+        private const val MAX_BACKOFF = 64
+        private const val MILLIS_PER_SECOND = 1000L
+    }
+
+    private class LatencyEstimate {
+        var smoothedLatencyMillis = 0.0
+        var latencyDeviationMillis = 0.0
+        var peakLatencyMillis = 0.0
+        var backoff = 1
+    }
+
+    /**
+     * @param host [String] containing the lower case host
+     * @param maxTimeoutMillis upper bound in milliseconds of the timeout
+     * @return timeout in milliseconds to use for the next request to the [host]
+     */
+    fun timeoutMillis(host: String, maxTimeoutMillis: Long): Long {
+        synchronized(lock) {
+            val estimate = estimates[host] ?: return maxTimeoutMillis
+            val retransmissionTimeout = estimate.smoothedLatencyMillis + DEVIATION_FACTOR * estimate.latencyDeviationMillis
+            val timeout = maxOf(
+                Math.ceil(retransmissionTimeout).toLong().coerceAtLeast(minTimeoutMillis) * estimate.backoff,
+                Math.ceil(estimate.peakLatencyMillis * PEAK_LATENCY_MARGIN).toLong()
+            )
+            return timeout.coerceAtMost(maxTimeoutMillis)
+        }
+    }
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val host = request.host
+        val maxTimeoutSeconds = maxOf(request.connectTimeout, request.readTimeout)
+        val timeoutMillis = timeoutMillis(host, TimeUnit.SECONDS.toMillis(maxTimeoutSeconds.toLong()))
+        // network timeouts are set in whole seconds
+        val timeoutSeconds = ((timeoutMillis + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND).toInt()
+        val adaptedRequest = if (timeoutSeconds >= maxTimeoutSeconds) {
+            request
+        } else {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "connectAsync - Using adaptive timeout of $timeoutSeconds seconds for request to $host."
+            )
+            NetworkRequest(
+                request.url,
+                request.method,
+                request.body,
+                request.headers,
+                minOf(request.connectTimeout, timeoutSeconds),
+                minOf(request.readTimeout, timeoutSeconds)
+            )
+        }
+
+        val startTime = elapsedTimeMillis()
+        networkService.connectAsync(adaptedRequest) {
+            val elapsedMillis = elapsedTimeMillis() - startTime
+            if (it != null) {
+                recordLatency(host, elapsedMillis)
+            } else if (elapsedMillis >= TimeUnit.SECONDS.toMillis(timeoutSeconds.toLong())) {
+                recordTimeout(host, elapsedMillis)
+            }
+            callback.call(it)
+        }
+    }
+
+    private fun recordLatency(host: String, latencyMillis: Long) {
+        synchronized(lock) {
+            val estimate = estimates[host]
+            if (estimate == null) {
+                estimates[host] = LatencyEstimate().apply {
+                    smoothedLatencyMillis = latencyMillis.toDouble()
+                    latencyDeviationMillis = latencyMillis / 2.0
+                    peakLatencyMillis = latencyMillis.toDouble()
+                }
+                return
+            }
+
+            estimate.latencyDeviationMillis += DEVIATION_GAIN *
+                (Math.abs(estimate.smoothedLatencyMillis - latencyMillis) - estimate.latencyDeviationMillis)
+            estimate.smoothedLatencyMillis += LATENCY_GAIN * (latencyMillis - estimate.smoothedLatencyMillis)
+            estimate.peakLatencyMillis = maxOf(latencyMillis.toDouble(), estimate.peakLatencyMillis * PEAK_LATENCY_DECAY)
+            estimate.backoff = 1
+        }
+    }
+
+    private fun recordTimeout(host: String, elapsedMillis: Long) {
+        synchronized(lock) {
+            val estimate = estimates[host] ?: return
+            // the latency of the request was at least the time waited
+            estimate.peakLatencyMillis = maxOf(elapsedMillis.toDouble(), estimate.peakLatencyMillis)
+            estimate.backoff = minOf(estimate.backoff * 2, MAX_BACKOFF)
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "recordTimeout - Request to $host timed out, backing off timeout by ${estimate.backoff}x."
+            )
+        }
+    }
+}
@@ -10,95 +10,164 @@
 */
 package com.adobe.marketing.mobile.campaignclassic.internal
 
-import com.adobe.marketing.mobile.Event
-import com.adobe.marketing.mobile.ExtensionApi
 import com.adobe.marketing.mobile.MobilePrivacyStatus
-import com.adobe.marketing.mobile.SharedStateResolution
 import com.adobe.marketing.mobile.util.DataReader
 import com.adobe.marketing.mobile.util.DataReaderException
 
-internal data class CampaignClassicConfiguration(val event: Event, val extensionApi: ExtensionApi) {
+/**
+ * Immutable snapshot of the Campaign Classic configuration.
+ * <p>
+ * A snapshot is parsed once per distinct configuration shared state value, see [fromSharedState].
+ *
+ * @property marketingServer configured CampaignClassics marketing server [String] if available, not null, not empty
+ * and of type String, null otherwise
+ * @property integrationKey configured CampaignClassics integration key [String] if available, not null and not empty,
+ * and of type String, null otherwise
+ * @property trackingServer configured CampaignClassics tracking server [String] if available, not null and not empty,
+ * and of type String, null otherwise
+ * @property timeout the configured CampaignClassics network timeout [Int] if available and of type Int,
+ * default timeout otherwise
+ * @property privacyStatus configured [MobilePrivacyStatus] if available and of type String,
+ * default [MobilePrivacyStatus.UNKNOWN] otherwise
+ * @property registrationDebounceSeconds the configured window in seconds [Long] in which successive registration
+ * requests are collapsed to the latest one, 0 (disabled) if not available or negative
+ * @property maxConcurrentRequests the configured maximum number [Int] of requests in flight to the same host if
+ * available and positive, [CampaignClassicConstants.DEFAULT_MAX_CONCURRENT_REQUESTS] otherwise
+ * @property circuitBreakerFailureThreshold the configured number [Int] of consecutive failures opening the circuit of
+ * a host if available and positive, [CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD] otherwise
+ * @property circuitBreakerCoolDownSeconds the configured time in seconds [Long] the circuit of a host stays open if
+ * available and not negative, [CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS] otherwise
+ * @property receiveTrackingJitterSeconds the configured window in seconds [Int] over which receive tracking requests
+ * are randomly delayed, 0 (disabled) if not available or negative
+ * @property receiveTrackingSampleRate the configured fraction [Double] of devices sending receive tracking requests,
+ * clamped between 0 and 1, [CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_SAMPLE_RATE] if not available
+ * @property registrationRequestsPerMinute the configured number [Int] of registration requests allowed per minute if
+ * available and positive, [CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE] otherwise
+ * @property trackingRequestsPerMinute the configured number [Int] of tracking requests allowed per minute if
+ * available and positive, [CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE] otherwise
+ * @property preconnect the configured [Boolean] telling if connections to the Campaign Classic servers are opened
+ * ahead of the first request if available, [CampaignClassicConstants.DEFAULT_PRECONNECT] otherwise
+ * @property trackingFlushSize the configured number [Int] of queued tracking hits at which the tracking hit queue is
+ * sent if available and positive, [CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_SIZE] otherwise
+ * @property trackingFlushIntervalSeconds the configured time in seconds [Long] after which queued tracking hits are
+ * sent when fewer than [trackingFlushSize] hits are queued if available and not negative,
+ * [CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS] otherwise
+ */
+internal data class CampaignClassicConfiguration(
+    val marketingServer: String?,
+    val integrationKey: String?,
+    val trackingServer: String?,
+    val timeout: Int,
+    val privacyStatus: MobilePrivacyStatus,
+    val registrationDebounceSeconds: Long = CampaignClassicConstants.DEFAULT_REGISTRATION_DEBOUNCE_SECONDS,
+    val maxConcurrentRequests: Int = CampaignClassicConstants.DEFAULT_MAX_CONCURRENT_REQUESTS,
+    val circuitBreakerFailureThreshold: Int = CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+    val circuitBreakerCoolDownSeconds: Long = CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS,
+    val receiveTrackingJitterSeconds: Int = CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_JITTER_SECONDS,
+    val receiveTrackingSampleRate: Double = CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_SAMPLE_RATE,
+    val registrationRequestsPerMinute: Int = CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE,
+    val trackingRequestsPerMinute: Int = CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+    val preconnect: Boolean = CampaignClassicConstants.DEFAULT_PRECONNECT,
+    val trackingFlushSize: Int = CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_SIZE,
+    val trackingFlushIntervalSeconds: Long = CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS
+) {
 
-    private val configSharedState: Map<String, Any>? = extensionApi.getSharedState(
-        CampaignClassicConstants.EventDataKeys.Configuration.EXTENSION_NAME,
-        event,
-        false,
-        SharedStateResolution.ANY
-    )?.value
-
-    /**
-     * @return configured CampaignClassics marketing server [String] if available, not null, not empty
-     * and of type String, null otherwise
-     */
-    val marketingServer: String?
-        get() {
-            val marketingServer = DataReader.optString(
-                configSharedState,
-                CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER,
-                null
+    companion object {
+        /**
+         * Creates a [CampaignClassicConfiguration] from the given configuration shared state.
+         *
+         * @param configSharedState configuration shared state [Map], null if not available
+         * @return [CampaignClassicConfiguration] containing the Campaign Classic configuration values
+         */
+        fun fromSharedState(configSharedState: Map<String, Any?>?): CampaignClassicConfiguration {
+            return CampaignClassicConfiguration(
+                marketingServer = readNonBlankString(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER
+                ),
+                integrationKey = readNonBlankString(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY
+                ),
+                trackingServer = readNonBlankString(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER
+                ),
+                timeout = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT,
+                    CampaignClassicConstants.DEFAULT_TIMEOUT
+                ),
+                privacyStatus = readPrivacyStatus(configSharedState),
+                registrationDebounceSeconds = DataReader.optLong(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_REGISTRATION_DEBOUNCE_SECONDS,
+                    CampaignClassicConstants.DEFAULT_REGISTRATION_DEBOUNCE_SECONDS
+                ).coerceAtLeast(0),
+                maxConcurrentRequests = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MAX_CONCURRENT_REQUESTS,
+                    CampaignClassicConstants.DEFAULT_MAX_CONCURRENT_REQUESTS
+                ).takeIf { it > 0 } ?: CampaignClassicConstants.DEFAULT_MAX_CONCURRENT_REQUESTS,
+                circuitBreakerFailureThreshold = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                    CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD
+                ).takeIf { it > 0 } ?: CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                circuitBreakerCoolDownSeconds = DataReader.optLong(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_CIRCUIT_BREAKER_COOL_DOWN,
+                    CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS
+                ).takeIf { it >= 0 } ?: CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS,
+                receiveTrackingJitterSeconds = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_RECEIVE_TRACKING_JITTER,
+                    CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_JITTER_SECONDS
+                ).coerceAtLeast(0),
+                receiveTrackingSampleRate = DataReader.optDouble(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_RECEIVE_TRACKING_SAMPLE_RATE,
+                    CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_SAMPLE_RATE
+                ).takeUnless { it.isNaN() }?.coerceIn(0.0, 1.0)
+                    ?: CampaignClassicConstants.DEFAULT_RECEIVE_TRACKING_SAMPLE_RATE,
+                registrationRequestsPerMinute = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_REGISTRATION_REQUESTS_PER_MINUTE,
+                    CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE
+                ).takeIf { it > 0 } ?: CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE,
+                trackingRequestsPerMinute = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_REQUESTS_PER_MINUTE,
+                    CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE
+                ).takeIf { it > 0 } ?: CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+                preconnect = DataReader.optBoolean(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_PRECONNECT,
+                    CampaignClassicConstants.DEFAULT_PRECONNECT
+                ),
+                trackingFlushSize = DataReader.optInt(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_FLUSH_SIZE,
+                    CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_SIZE
+                ).takeIf { it > 0 } ?: CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_SIZE,
+                trackingFlushIntervalSeconds = DataReader.optLong(
+                    configSharedState,
+                    CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_FLUSH_INTERVAL,
+                    CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS
+                ).takeIf { it >= 0 } ?: CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS
             )
-            return if (marketingServer.isNullOrBlank()) {
-                null
-            } else {
-                marketingServer
-            }
         }
 
-    /**
-     * @return configured CampaignClassics integration key [String] if available, not null and not empty,
-     * and of type String, null otherwise
-     */
-    val integrationKey: String?
-        get() {
-            val integrationKey = DataReader.optString(
-                configSharedState,
-                CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY,
-                null
-            )
-            return if (integrationKey.isNullOrBlank()) {
+        private fun readNonBlankString(configSharedState: Map<String, Any?>?, key: String): String? {
+            val value = DataReader.optString(configSharedState, key, null)
+            return if (value.isNullOrBlank()) {
                 null
             } else {
-                integrationKey
+                value
             }
         }
 
-    /**
-     * @return configured CampaignClassics tracking server [String] if available, not null and not empty,
-     * and of type String, null otherwise
-     */
-    val trackingServer: String?
-        get() {
-            val trackingServer = DataReader.optString(
-                configSharedState,
-                CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER,
-                null
-            )
-            return if (trackingServer.isNullOrBlank()) {
-                null
-            } else {
-                trackingServer
-            }
-        }
-
-    /**
-     * @return the configured CampaignClassics network timeout [Int] if available and of type Int,
-     * default timeout otherwise
-     */
-    val timeout: Int
-        get() {
-            return DataReader.optInt(
-                configSharedState,
-                CampaignClassicConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT,
-                CampaignClassicConstants.DEFAULT_TIMEOUT
-            )
-        }
-
-    /**
-     * @return configured [MobilePrivacyStatus] if available and of type String,
-     * default [MobilePrivacyStatus.UNKNOWN] otherwise
-     */
-    val privacyStatus: MobilePrivacyStatus
-        get() {
+        private fun readPrivacyStatus(configSharedState: Map<String, Any?>?): MobilePrivacyStatus {
             return try {
                 MobilePrivacyStatus.fromString(
                     DataReader.getString(
@@ -110,4 +179,5 @@ internal data class CampaignClassicConfiguration(val event: Event, val extension
                 MobilePrivacyStatus.UNKNOWN
             }
         }
+    }
 }
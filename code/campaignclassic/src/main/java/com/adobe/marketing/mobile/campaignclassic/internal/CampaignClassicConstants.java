@@ -20,28 +20,79 @@ final class CampaignClassicConstants {
     static final String FRIENDLY_NAME = "CampaignClassic";
 
     static final String REGISTER_API_URL_BASE = "https://%s/nms/mobile/1/registerAndroid.jssp";
-    static final String TRACKING_API_URL_BASE = "https://%s/r/?id=h%s,%s,%s";
+    static final String TRACKING_API_URL_PREFIX = "https://%s/r/?id=h";
     static final String REGISTER_PARAM_DEVICE_OS_NAME = "android";
     static final int DEFAULT_TIMEOUT = 30;
-    static final String REGISTER_PARAMS_FORMAT =
-            "registrationToken=%s&mobileAppUuid=%s&userKey=%s&deviceImei=%s&deviceName=%s&deviceModel=%s&deviceBrand=%s&deviceManufacturer=%s&osName=%s&osVersion=%s&osLanguage=%s&additionalParams=%s";
+    static final long DEFAULT_REGISTRATION_DEBOUNCE_SECONDS = 0;
+    static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+    static final int MAX_WAITING_REQUESTS_PER_HOST = 50;
+    static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS = 30;
+    static final long ADAPTIVE_TIMEOUT_MIN_SECONDS = 2;
+    static final int DEFAULT_RECEIVE_TRACKING_JITTER_SECONDS = 0;
+    static final int MAX_DELAYED_RECEIVE_TRACKING_HITS = 100;
+    static final double DEFAULT_RECEIVE_TRACKING_SAMPLE_RATE = 1.0;
+    static final int DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE = 10;
+    static final int REGISTRATION_RATE_LIMIT_BURST = 5;
+    static final int DEFAULT_TRACKING_REQUESTS_PER_MINUTE = 120;
+    static final int TRACKING_RATE_LIMIT_BURST = 60;
+    static final int MAX_OFFLINE_REQUESTS = 50;
+    static final int MAX_DISCARDED_RESPONSE_BYTES = 16 * 1024;
+    static final boolean DEFAULT_PRECONNECT = false;
+    static final long SERVER_WARM_UP_TTL_SECONDS = 5 * 60;
+    static final int MAX_PENDING_SERVER_WARM_UPS = 4;
 
     static final String MESSAGE_RECEIVED_TAGID = "1";
     static final String MESSAGE_CLICKED_TAGID = "2";
 
     static final String DATASTORE_KEY = "ADOBEMOBILE_CAMPAIGNCLASSIC";
+    static final String TRACKING_HIT_QUEUE_NAME = "com.adobe.module.campaignclassic.trackinghits";
+    static final int TRACKING_HIT_QUEUE_MAX_SIZE = 1000;
+    static final long TRACKING_HIT_MAX_AGE_SECONDS = 7L * 24 * 60 * 60;
+    static final int TRACKING_HIT_RETRY_INTERVAL_SECONDS = 30;
+    static final int DEFAULT_TRACKING_FLUSH_SIZE = 1;
+    static final long DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS = 30;
+    static final long REGISTRATION_RETRY_BASE_DELAY_SECONDS = 5;
+    static final long REGISTRATION_RETRY_MAX_DELAY_SECONDS = 30 * 60;
+    static final int REGISTRATION_RETRY_MAX_ATTEMPTS = 10;
+    static final String WORKER_THREAD_NAME = "com.adobe.module.campaignclassic.worker";
+    static final int WORKER_QUEUE_CAPACITY = 100;
+    static final String WARM_UP_THREAD_NAME = "com.adobe.module.campaignclassic.warmup";
+    static final String TRACKING_SCHEDULER_THREAD_NAME = "com.adobe.module.campaignclassic.tracking";
+    static final String REGISTRATION_SCHEDULER_THREAD_NAME = "com.adobe.module.campaignclassic.registration";
+    static final String DATASTORE_THREAD_NAME = "com.adobe.module.campaignclassic.datastore";
 
-    static final String HEX_CONVERSION_FORMAT_STRING = "%02x";
     /*
        DataStoreKeys
     */
     static class DataStoreKeys {
         static final String TOKEN_HASH = "ADOBEMOBILE_STOREDDEFAULTS_TOKENHASH";
         static final String REGISTER_STATUS = "ADOBEMOBILE_STOREDDEFAULTS_REGISTERSTATUS";
+        static final String REGISTRATION_RETRY = "ADOBEMOBILE_STOREDDEFAULTS_REGISTRATIONRETRY";
 
         private DataStoreKeys() {}
     }
 
+    /*
+       RegisterParams
+    */
+    static final class RegisterParams {
+        static final String REGISTRATION_TOKEN = "registrationToken";
+        static final String MOBILE_APP_UUID = "mobileAppUuid";
+        static final String USER_KEY = "userKey";
+        static final String DEVICE_IMEI = "deviceImei";
+        static final String DEVICE_NAME = "deviceName";
+        static final String DEVICE_MODEL = "deviceModel";
+        static final String DEVICE_BRAND = "deviceBrand";
+        static final String DEVICE_MANUFACTURER = "deviceManufacturer";
+        static final String OS_NAME = "osName";
+        static final String OS_VERSION = "osVersion";
+        static final String OS_LANGUAGE = "osLanguage";
+        static final String ADDITIONAL_PARAMS = "additionalParams";
+
+        private RegisterParams() {}
+    }
+
     /*
        EventDataKeys
     */
@@ -57,6 +108,26 @@ final class CampaignClassicConstants {
             static final String CAMPAIGNCLASSIC_APP_INTEGRATION_KEY =
                     "campaignclassic.android.integrationKey";
             static final String CAMPAIGNCLASSIC_TIMEOUT = "campaignclassic.timeout";
+            static final String CAMPAIGNCLASSIC_REGISTRATION_DEBOUNCE_SECONDS =
+                    "campaignclassic.registrationDebounceSeconds";
+            static final String CAMPAIGNCLASSIC_MAX_CONCURRENT_REQUESTS =
+                    "campaignclassic.maxConcurrentRequests";
+            static final String CAMPAIGNCLASSIC_CIRCUIT_BREAKER_FAILURE_THRESHOLD =
+                    "campaignclassic.circuitBreakerFailureThreshold";
+            static final String CAMPAIGNCLASSIC_CIRCUIT_BREAKER_COOL_DOWN =
+                    "campaignclassic.circuitBreakerCoolDown";
+            static final String CAMPAIGNCLASSIC_RECEIVE_TRACKING_JITTER =
+                    "campaignclassic.receiveTrackingJitter";
+            static final String CAMPAIGNCLASSIC_RECEIVE_TRACKING_SAMPLE_RATE =
+                    "campaignclassic.receiveTrackingSampleRate";
+            static final String CAMPAIGNCLASSIC_REGISTRATION_REQUESTS_PER_MINUTE =
+                    "campaignclassic.registrationRequestsPerMinute";
+            static final String CAMPAIGNCLASSIC_TRACKING_REQUESTS_PER_MINUTE =
+                    "campaignclassic.trackingRequestsPerMinute";
+            static final String CAMPAIGNCLASSIC_PRECONNECT = "campaignclassic.preconnect";
+            static final String CAMPAIGNCLASSIC_TRACKING_FLUSH_SIZE = "campaignclassic.trackingFlushSize";
+            static final String CAMPAIGNCLASSIC_TRACKING_FLUSH_INTERVAL =
+                    "campaignclassic.trackingFlushInterval";
 
             private Configuration() {}
         }
@@ -79,5 +150,12 @@ final class CampaignClassicConstants {
 
             private CampaignClassic() {}
         }
+
+        static final class Lifecycle {
+            static final String LIFECYCLE_ACTION_KEY = "action";
+            static final String LIFECYCLE_PAUSE = "pause";
+
+            private Lifecycle() {}
+        }
     }
 }
@@ -20,11 +20,15 @@ import com.adobe.marketing.mobile.ExtensionApi
 import com.adobe.marketing.mobile.MobilePrivacyStatus
 import com.adobe.marketing.mobile.SharedStateResolution
 import com.adobe.marketing.mobile.SharedStateStatus
+import com.adobe.marketing.mobile.services.DataQueuing
 import com.adobe.marketing.mobile.services.DataStoring
 import com.adobe.marketing.mobile.services.DeviceInforming
 import com.adobe.marketing.mobile.services.Log
 import com.adobe.marketing.mobile.services.Networking
 import com.adobe.marketing.mobile.services.ServiceProvider
+import com.adobe.marketing.mobile.util.DataReader
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 
 /**
  * The Campaign Classic Extension class is responsible for registering users with Adobe Campaign Classic as well as
@@ -33,6 +37,7 @@ import com.adobe.marketing.mobile.services.ServiceProvider
  * The Campaign Classic extension listens for the following [Event]
  * - [EventType.CAMPAIGN], [EventSource.REQUEST_CONTENT]
  * - [EventType.CONFIGURATION], [EventSource.RESPONSE_CONTENT]
+ * - [EventType.GENERIC_LIFECYCLE], [EventSource.REQUEST_CONTENT]
  *
  * The Campaign Classic extension dispatches the following [Event]:
  * - [EventType.CAMPAIGN], [EventSource.RESPONSE_CONTENT]
@@ -41,27 +46,123 @@ import com.adobe.marketing.mobile.services.ServiceProvider
  * - [DataStoring]
  * - [Networking]
  * - [DeviceInforming]
+ * - [DataQueuing]
+ *
+ * Registration and tracking requests are validated on the event hub thread and then processed in order on a
+ * dedicated worker, so hashing, serialization and persistence do not delay the events of other extensions, see
+ * [SerialWorker]. Requests which can be sent are never dropped by the worker, their number being bounded by the rate
+ * limits below. When the worker falls behind, only the oldest requests which would be dropped anyway are discarded.
+ * Requests are held while the device is offline and sent once it is online again, see [ConnectivityAwareNetworking].
+ * Requests sent to the same server are limited to `campaignclassic.maxConcurrentRequests` at a time, see
+ * [HostConcurrencyLimiter], and fail fast while that server keeps failing, see [HostCircuitBreaker]. Request
+ * timeouts adapt to the latency observed for each server, up to `campaignclassic.timeout`, see
+ * [AdaptiveTimeoutNetworking]. Registration requests exceeding `campaignclassic.registrationRequestsPerMinute` are
+ * dropped, as are receive and click tracking requests exceeding `campaignclassic.trackingRequestsPerMinute`, each
+ * with its own budget, see [TokenBucketRateLimiter]. Requests are sent with the transport set with
+ * [CampaignClassic.setTransport], or with the [Networking] service if none is set, see [NetworkingTransport].
+ * When `campaignclassic.preconnect` is enabled, a transport set with [CampaignClassic.setTransport] is asked to
+ * open connections to the configured servers in the background, see [ServerWarmUp].
  */
 class CampaignClassicExtension : Extension {
     private val extensionApi: ExtensionApi
     private val registrationManager: RegistrationManager
     private val trackRequestManager: TrackRequestManager
+    private val worker: Executor
+    private val requestLimiter: HostConcurrencyLimiter?
+    private val circuitBreaker: HostCircuitBreaker?
+    private val registrationRateLimiter: TokenBucketRateLimiter
+    private val trackingRateLimiter: TokenBucketRateLimiter
+    private val clickRateLimiter: TokenBucketRateLimiter
+    private val serverWarmUp: ServerWarmUp?
+    private var configuration: CampaignClassicConfiguration? = null
+    private var lastConfigSharedStateValue: Map<String, Any>? = null
+    private var lastHandledConfiguration: CampaignClassicConfiguration? = null
 
     constructor(extensionApi: ExtensionApi) : super(extensionApi) {
         this.extensionApi = extensionApi
-        registrationManager = RegistrationManager(api)
-        trackRequestManager = TrackRequestManager(api)
+        val appTransport = CampaignClassic.getTransport()
+        val transport = appTransport
+            ?: ServiceProvider.getInstance().networkService?.let { NetworkingTransport(it) }
+        circuitBreaker = transport?.let {
+            AdaptiveTimeoutNetworking(
+                TransportNetworking(it),
+                TimeUnit.SECONDS.toMillis(CampaignClassicConstants.ADAPTIVE_TIMEOUT_MIN_SECONDS)
+            )
+        }?.let {
+            HostCircuitBreaker(
+                it,
+                CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                TimeUnit.SECONDS.toMillis(CampaignClassicConstants.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_SECONDS)
+            )
+        }
+        requestLimiter = circuitBreaker?.let {
+            HostConcurrencyLimiter(
+                it,
+                CampaignClassicConstants.DEFAULT_MAX_CONCURRENT_REQUESTS,
+                CampaignClassicConstants.MAX_WAITING_REQUESTS_PER_HOST
+            )
+        }
+        val connectivitySource = DeviceConnectivitySource(ServiceProvider.getInstance().deviceInfoService)
+        val connectivityAwareNetworking = requestLimiter?.let {
+            ConnectivityAwareNetworking(it, connectivitySource, CampaignClassicConstants.MAX_OFFLINE_REQUESTS)
+        }
+        worker = SerialWorker(CampaignClassicConstants.WORKER_THREAD_NAME, CampaignClassicConstants.WORKER_QUEUE_CAPACITY)
+        registrationRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.REGISTRATION_RATE_LIMIT_BURST
+        )
+        registrationManager = RegistrationManager(api, connectivityAwareNetworking, worker, registrationRateLimiter)
+        trackRequestManager = TrackRequestManager(api, connectivityAwareNetworking)
+        trackingRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.TRACKING_RATE_LIMIT_BURST
+        )
+        clickRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.TRACKING_RATE_LIMIT_BURST
+        )
+        serverWarmUp = appTransport?.let {
+            ServerWarmUp(
+                SerialWorker(CampaignClassicConstants.WARM_UP_THREAD_NAME, CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS),
+                connectivitySource,
+                it,
+                TimeUnit.SECONDS.toMillis(CampaignClassicConstants.SERVER_WARM_UP_TTL_SECONDS)
+            )
+        }
     }
 
     @VisibleForTesting
     internal constructor(
         extensionApi: ExtensionApi,
         registrationManager: RegistrationManager,
-        trackRequestManager: TrackRequestManager
+        trackRequestManager: TrackRequestManager,
+        worker: Executor = Executor { it.run() },
+        requestLimiter: HostConcurrencyLimiter? = null,
+        circuitBreaker: HostCircuitBreaker? = null,
+        registrationRateLimiter: TokenBucketRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.REGISTRATION_RATE_LIMIT_BURST
+        ),
+        trackingRateLimiter: TokenBucketRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.TRACKING_RATE_LIMIT_BURST
+        ),
+        clickRateLimiter: TokenBucketRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_TRACKING_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.TRACKING_RATE_LIMIT_BURST
+        ),
+        serverWarmUp: ServerWarmUp? = null
     ) : super(extensionApi) {
         this.extensionApi = extensionApi
         this.registrationManager = registrationManager
         this.trackRequestManager = trackRequestManager
+        this.worker = worker
+        this.requestLimiter = requestLimiter
+        this.circuitBreaker = circuitBreaker
+        this.registrationRateLimiter = registrationRateLimiter
+        this.trackingRateLimiter = trackingRateLimiter
+        this.clickRateLimiter = clickRateLimiter
+        this.serverWarmUp = serverWarmUp
     }
 
     companion object {
@@ -87,41 +188,177 @@ class CampaignClassicExtension : Extension {
         api.registerEventListener(EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT) {
             handleConfigurationResponseEvent(it)
         }
+        api.registerEventListener(EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT) {
+            handleLifecycleRequestEvent(it)
+        }
     }
 
+    override fun onUnregistered() {
+        worker.execute(
+            SerialWorker.essential(
+                Runnable {
+                    trackRequestManager.flushDelayedHits()
+                    trackRequestManager.flushQueuedHits()
+                    trackRequestManager.shutdown()
+                    registrationManager.shutdown()
+                }
+            )
+        )
+        (worker as? SerialWorker)?.shutdown()
+        serverWarmUp?.shutdown()
+    }
+
+    /**
+     * Checks if the configuration shared state is set for the given [event] and refreshes the
+     * [CampaignClassicConfiguration] snapshot when the shared state value has changed.
+     *
+     * @param event [Event] to be processed
+     * @return true if configuration is available for the [event], false otherwise
+     */
     override fun readyForEvent(event: Event): Boolean {
-        return api.getSharedState(
+        val configSharedState = api.getSharedState(
             CampaignClassicConstants.EventDataKeys.Configuration.EXTENSION_NAME,
             event,
             false,
             SharedStateResolution.ANY
-        )?.status == SharedStateStatus.SET
+        )
+        if (configSharedState?.status != SharedStateStatus.SET) {
+            return false
+        }
+
+        // the shared state version is not exposed, compare by value, which returns early for the same map instance
+        val configSharedStateValue = configSharedState.value
+        if (configuration == null || configSharedStateValue != lastConfigSharedStateValue) {
+            lastConfigSharedStateValue = configSharedStateValue
+            configuration = CampaignClassicConfiguration.fromSharedState(configSharedStateValue)
+        }
+        return true
     }
 
     /**
      * Processes event with type [EventType.CONFIGURATION] and source [EventSource.RESPONSE_CONTENT].
      * <p>
-     * If the configuration event data contains {@code global.privacy} key, and the new privacy status
-     * is [MobilePrivacyStatus.OPT_OUT], then the persisted identifiers for this extension are cleared.
+     * The current configuration is compared against the configuration seen by the previous configuration response,
+     * and nothing is done if it has not changed.
+     * - The limit of requests in flight to the same host, the circuit breaker settings and the request rate limits
+     * are updated from the configuration.
+     * - If the privacy status changes to [MobilePrivacyStatus.OPT_OUT], then the persisted identifiers, pending
+     * registration requests and queued tracking hits for this extension are cleared.
+     * - While opted in, the tracking and marketing servers are resolved in the background, unless resolved recently.
+     * - If the privacy status changes to [MobilePrivacyStatus.OPT_IN], a registration request persisted for retry by
+     * a previous session is resumed.
+     * - If the marketing server or integration key changes while opted in, the device is registered again with the
+     * updated configuration.
      *
      * @param event incoming configuration response [Event]
      */
     internal fun handleConfigurationResponseEvent(event: Event) {
-        val configData = CampaignClassicConfiguration(event, extensionApi)
-        if (configData.privacyStatus == MobilePrivacyStatus.OPT_OUT) {
-            // Reset registration info in data store
-            Log.debug(
+        val configData = configuration ?: return
+        val previousConfigData = lastHandledConfiguration
+        if (configData == previousConfigData) {
+            Log.trace(
                 CampaignClassicConstants.LOG_TAG,
                 SELF_TAG,
-                "handleConfigurationResponseEvent - Privacy status is opt out, clearing persisted registration info."
+                "handleConfigurationResponseEvent - Campaign Classic configuration has not changed."
+            )
+            return
+        }
+        lastHandledConfiguration = configData
+        requestLimiter?.maxInFlightPerHost = configData.maxConcurrentRequests
+        circuitBreaker?.let {
+            it.failureThreshold = configData.circuitBreakerFailureThreshold
+            it.coolDownMillis = TimeUnit.SECONDS.toMillis(configData.circuitBreakerCoolDownSeconds)
+        }
+        registrationRateLimiter.permitsPerMinute = configData.registrationRequestsPerMinute
+        trackingRateLimiter.permitsPerMinute = configData.trackingRequestsPerMinute
+        clickRateLimiter.permitsPerMinute = configData.trackingRequestsPerMinute
+
+        val privacyStatusChanged = configData.privacyStatus != previousConfigData?.privacyStatus
+        if (configData.privacyStatus == MobilePrivacyStatus.OPT_OUT) {
+            if (privacyStatusChanged) {
+                // Reset registration info in data store
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "handleConfigurationResponseEvent - Privacy status is opt out, clearing persisted registration info and queued tracking hits."
+                )
+                worker.execute(
+                    SerialWorker.essential(
+                        Runnable {
+                            registrationManager.clearRegistrationData()
+                            trackRequestManager.clearQueuedHits()
+                        }
+                    )
+                )
+            }
+            return
+        }
+
+        if (configData.privacyStatus != MobilePrivacyStatus.OPT_IN) {
+            return
+        }
+
+        if (configData.preconnect) {
+            serverWarmUp?.warmUp(listOf(configData.trackingServer, configData.marketingServer))
+        }
+
+        val registrationConfigurationChanged = previousConfigData != null &&
+            (
+                configData.marketingServer != previousConfigData.marketingServer ||
+                    configData.integrationKey != previousConfigData.integrationKey
+                )
+        if (!privacyStatusChanged && !registrationConfigurationChanged) {
+            return
+        }
+        worker.execute(
+            SerialWorker.essential(
+                Runnable {
+                    if (privacyStatusChanged) {
+                        registrationManager.resumeRegistrationRetry(configData)
+                    }
+                    if (registrationConfigurationChanged) {
+                        registrationManager.handleRegistrationConfigurationChange(configData)
+                    }
+                }
+            )
+        )
+    }
+
+    /**
+     * Processes event with type [EventType.GENERIC_LIFECYCLE] and source [EventSource.REQUEST_CONTENT].
+     * <p>
+     * When the app goes to the background, the delayed receive tracking requests and the tracking hits held in the
+     * tracking hit queue are sent, as the app may be terminated while in the background.
+     *
+     * @param event incoming lifecycle request [Event]
+     */
+    internal fun handleLifecycleRequestEvent(event: Event) {
+        val action = DataReader.optString(
+            event.eventData,
+            CampaignClassicConstants.EventDataKeys.Lifecycle.LIFECYCLE_ACTION_KEY,
+            null
+        )
+        if (action == CampaignClassicConstants.EventDataKeys.Lifecycle.LIFECYCLE_PAUSE) {
+            worker.execute(
+                SerialWorker.essential(
+                    Runnable {
+                        trackRequestManager.flushDelayedHits()
+                        trackRequestManager.flushQueuedHits()
+                    }
+                )
             )
-            registrationManager.clearRegistrationData()
         }
     }
 
     /**
      * Processes event with type [EventType.CAMPAIGN] and source [EventSource.REQUEST_CONTENT]
      * based on key and value set in current {@code event} event data.
+     * <p>
+     * The event is validated on the calling thread and the request is queued to be processed on the worker, unless
+     * it exceeds the rate limit of registration, receive tracking or click tracking requests, in which case it is
+     * dropped. Only requests which can be sent take a permit, the others are left to the worker to log and drop.
+     * Requests which can be sent are queued as essential tasks, so a burst never discards them before they reach
+     * the tracking hit queue or the registration manager.
      *
      * @param event incoming [Event]
      */
@@ -135,30 +372,107 @@ class CampaignClassicExtension : Extension {
             )
             return
         }
+        val configData = configuration ?: run {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "handleCampaignRequestEvent - Failed to process CAMPAIGN_CLASSIC REQUEST_CONTENT event" +
+                    "(configuration is not available)"
+            )
+            return
+        }
+        val canBeSent = canBeSent(event, configData)
         if (event.isRegisterEvent) {
-            handleRegistrationRequest(event)
+            // registration requests take their permit once RegistrationManager knows they are sent
+            submit(Runnable { handleRegistrationRequest(event, configData) }, canBeSent)
         } else if (event.isTrackReceiveEvent) {
-            handleTrackRequest(event, CampaignClassicConstants.MESSAGE_RECEIVED_TAGID)
+            if (canBeSent && isRateLimited(trackingRateLimiter, "receive tracking")) {
+                return
+            }
+            submit(
+                Runnable { handleTrackRequest(event, CampaignClassicConstants.MESSAGE_RECEIVED_TAGID, configData) },
+                canBeSent
+            )
         } else if (event.isTrackClickEvent) {
-            handleTrackRequest(event, CampaignClassicConstants.MESSAGE_CLICKED_TAGID)
+            if (canBeSent && isRateLimited(clickRateLimiter, "click tracking")) {
+                return
+            }
+            submit(
+                Runnable { handleTrackRequest(event, CampaignClassicConstants.MESSAGE_CLICKED_TAGID, configData) },
+                canBeSent
+            )
+        }
+    }
+
+    /**
+     * Checks whether the request in the given [event] can be sent with the given configuration, so that requests
+     * which are dropped anyway do not use up the rate limit of the requests which are sent.
+     *
+     * @param event incoming Campaign Classic request [Event]
+     * @param configData current [CampaignClassicConfiguration]
+     * @return true if privacy is opted in and the configuration and event data needed by the request are available
+     */
+    private fun canBeSent(event: Event, configData: CampaignClassicConfiguration): Boolean {
+        if (configData.privacyStatus != MobilePrivacyStatus.OPT_IN) {
+            return false
+        }
+        return if (event.isRegisterEvent) {
+            event.deviceToken != null && configData.marketingServer != null && configData.integrationKey != null
+        } else {
+            configData.trackingServer != null && event.deliveryId != null && event.messageId != null
+        }
+    }
+
+    /**
+     * Queues the given [task] on the worker. Requests which can be sent are essential and are never dropped, the
+     * others may be dropped when the worker falls behind as they would only be logged and dropped when run.
+     *
+     * @param task [Runnable] processing the request
+     * @param canBeSent true if the request can be sent, see [canBeSent]
+     */
+    private fun submit(task: Runnable, canBeSent: Boolean) {
+        worker.execute(if (canBeSent) SerialWorker.essential(task) else task)
+    }
+
+    /**
+     * Takes a permit from the given [rateLimiter] and logs the dropped request if none is available.
+     *
+     * @param rateLimiter [TokenBucketRateLimiter] limiting the rate of the request
+     * @param requestType [String] describing the request for logging
+     * @return true if the request exceeds the rate limit and must be dropped
+     */
+    private fun isRateLimited(rateLimiter: TokenBucketRateLimiter, requestType: String): Boolean {
+        if (rateLimiter.tryAcquire()) {
+            return false
         }
+        Log.warning(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "handleCampaignRequestEvent - Dropping $requestType request, more than " +
+                "${rateLimiter.permitsPerMinute} $requestType requests per minute " +
+                "(${rateLimiter.rejectedRequestCount} dropped so far)."
+        )
+        return true
     }
 
     /**
      *  Sends device registration request to configured Campaign Classic server.
      *
      *  @param event [Event] initiating the Campaign Classic registration request
+     *  @param configData current [CampaignClassicConfiguration]
      */
-    private fun handleRegistrationRequest(event: Event) {
-        registrationManager.registerDevice(event)
+    private fun handleRegistrationRequest(event: Event, configData: CampaignClassicConfiguration) {
+        registrationManager.registerDevice(event, configData)
     }
 
     /**
      * Sends track request to the configured Campaign Classic tracking server.
      *
      * @param event [Event] initiating the Campaign Classic track request
+     * @param tagId [String] indicating whether it is a notification receive or notification click request
+     * @param configData current [CampaignClassicConfiguration]
      */
-    private fun handleTrackRequest(event: Event, tagId: String) {
-        trackRequestManager.handleTrackRequest(event, tagId)
+    private fun handleTrackRequest(event: Event, tagId: String, configData: CampaignClassicConfiguration) {
+        trackRequestManager.handleTrackRequest(event, tagId, configData)
     }
 }
@@ -10,9 +10,6 @@
 */
 package com.adobe.marketing.mobile.campaignclassic.internal;
 
-import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
-import java.util.HashMap;
 import java.util.Map;
 
 /** CampaignClassicMapSerializer class */
@@ -20,6 +17,8 @@ import java.util.Map;
 // https://git.corp.adobe.com/Campaign/mobile-sdk/blob/master/android/app/src/main/java/com/neolane/android/v1/MapSerializer.java
 class CampaignClassicMapSerializer {
 
+    private static final int INITIAL_CAPACITY = 256;
+
     private CampaignClassicMapSerializer() {}
 
     /**
@@ -35,95 +34,135 @@ class CampaignClassicMapSerializer {
      * @return escaped {@link String} in Campaign Classic XML format
      */
     public static String serializeMap(final Map<String, Object> input) {
-        final Map<String, Object> validInput =
-                (input == null) ? new HashMap<String, Object>() : input;
-        StringBuilder sb = new StringBuilder();
-        sb.append("<additionalParameters>");
+        final StringBuilder sb = new StringBuilder(INITIAL_CAPACITY);
+        serializeMap(input, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Serialize provided input map to XML, appending the result to the given {@code
+     * StringBuilder}.
+     *
+     * <p>The output is identical to {@link #serializeMap(Map)}, but all entries are escaped
+     * directly into {@code out} without intermediate {@code String} allocations.
+     *
+     * @param input {@code Map<String, Object>} containing key-value pairs
+     * @param out {@link StringBuilder} the escaped Campaign Classic XML is appended to
+     */
+    static void serializeMap(final Map<String, Object> input, final StringBuilder out) {
+        out.append("<additionalParameters>");
 
-        for (Map.Entry<String, Object> entry : validInput.entrySet()) {
-            final String key = entry.getKey();
-            final Object value = entry.getValue();
+        if (input != null) {
+            for (Map.Entry<String, Object> entry : input.entrySet()) {
+                final String key = entry.getKey();
+                final Object value = entry.getValue();
 
-            if (key != null && value != null) {
-                sb.append(serializeObject(value, key));
+                if (key != null && value != null) {
+                    serializeObject(value, key, out);
+                }
             }
         }
 
-        sb.append("</additionalParameters>");
-        return sb.toString();
+        out.append("</additionalParameters>");
     }
 
     /**
-     * Serialize provided {@code Object} to {@code String}.
+     * Serialize provided {@code Object} to the given {@code StringBuilder}.
      *
-     * <p>The {@code Object} key-value pairs are serialized to a {@code String} in the format
-     * {@literal <param name=\"key\" value=\"value\"/>}
+     * <p>The {@code Object} key-value pairs are serialized in the format {@literal <param
+     * name=\"key\" value=\"value\"/>}
      *
-     * <p>This method returns the {@code String} representation of the provided {@code Object}. If
-     * the {@code Object} contains a {@code Boolean}, {@code String} "true" or "false" is returned.
+     * <p>Boxed numeric and {@code Boolean} values are appended directly as their {@code String}
+     * representation, which never needs escaping. {@code Byte} and {@code Character} values are
+     * written as their integer value.
      *
      * @param o {@link Object} containing value corresponding to the given {@code key}
      * @param key {@link String} containing the key value
-     * @return escaped {@code String} in Campaign Classic XML format containing given key-value.
+     * @param out {@link StringBuilder} the escaped Campaign Classic XML is appended to
      */
-    private static String serializeObject(final Object o, final String key) {
-        String value;
+    private static void serializeObject(final Object o, final String key, final StringBuilder out) {
+        out.append("<param name=\"");
+        escapeXMLAttrString(key, out);
+        out.append("\" value=\"");
 
         if (o instanceof String) {
-            value = (String) o;
+            escapeXMLAttrString((String) o, out);
         } else if (o instanceof Integer) {
-            value = String.valueOf((Integer) o);
+            out.append(((Integer) o).intValue());
         } else if (o instanceof Float) {
-            value = String.valueOf((Float) o);
+            out.append(((Float) o).floatValue());
         } else if (o instanceof Double) {
-            value = String.valueOf((Double) o);
+            out.append(((Double) o).doubleValue());
         } else if (o instanceof Long) {
-            value = String.valueOf((Long) o);
+            out.append(((Long) o).longValue());
         } else if (o instanceof Byte) {
-            value = String.valueOf(Integer.valueOf((Byte) o));
+            out.append((int) ((Byte) o).byteValue());
         } else if (o instanceof Character) {
-            value = String.valueOf(Integer.valueOf((Character) o));
+            out.append((int) ((Character) o).charValue());
         } else if (o instanceof Short) {
-            value = String.valueOf((Short) o);
+            out.append((int) ((Short) o).shortValue());
         } else if (o instanceof Boolean) {
-            Boolean b = (Boolean) o;
-            value = b ? "true" : "false";
+            out.append(((Boolean) o) ? "true" : "false");
         } else {
             // unknown type
-            value = o.toString();
+            escapeXMLAttrString(o.toString(), out);
+        }
+
+        out.append("\"/>");
+    }
+
+    /**
+     * Returns the unescaped {@code String} representation of the provided {@code Object}, as it is
+     * written by {@link #serializeMap(Map)}.
+     *
+     * @param o {@link Object} containing the value to convert
+     * @return {@code String} representation of the given value
+     */
+    static String serializeValue(final Object o) {
+        if (o instanceof Byte) {
+            return String.valueOf((int) ((Byte) o).byteValue());
+        } else if (o instanceof Character) {
+            return String.valueOf((int) ((Character) o).charValue());
+        } else if (o instanceof Short) {
+            return String.valueOf((int) ((Short) o).shortValue());
+        } else if (o instanceof Boolean) {
+            return ((Boolean) o) ? "true" : "false";
         }
 
-        return "<param name=\""
-                + escapeXMLAttrString(key)
-                + "\" value=\""
-                + escapeXMLAttrString(value)
-                + "\"/>";
+        // String, Integer, Float, Double, Long and unknown types
+        return o.toString();
     }
 
     /**
-     * Escape provided XML {@code String} attribute.
+     * Escape provided XML {@code String} attribute into the given {@code StringBuilder}.
+     *
+     * <p>Runs of characters which do not need escaping are appended in a single call.
      *
      * @param attributeString the provided {@link String} to escape
-     * @return the escaped {@code String}
+     * @param out {@link StringBuilder} the escaped attribute is appended to
      */
-    private static String escapeXMLAttrString(final String attributeString) {
-        StringBuilder result = new StringBuilder();
-        StringCharacterIterator iter = new StringCharacterIterator(attributeString);
-        char c = iter.current();
-
-        while (c != CharacterIterator.DONE) {
-            result.append(escapeXMLAttrChar(c));
-            c = iter.next();
+    private static void escapeXMLAttrString(final String attributeString, final StringBuilder out) {
+        final int length = attributeString.length();
+        int runStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            final String replacement = escapeXMLAttrChar(attributeString.charAt(i));
+
+            if (replacement != null) {
+                out.append(attributeString, runStart, i).append(replacement);
+                runStart = i + 1;
+            }
         }
 
-        return result.toString();
+        out.append(attributeString, runStart, length);
     }
 
     /**
      * Escape provided XML {@code char} attribute.
      *
      * @param attributeChar {@code char} XML attribute char to escape
-     * @return escaped {@link String} value of the XML attribute char
+     * @return escaped {@link String} value of the XML attribute char, or null if the char does not
+     *     need escaping
      */
     private static String escapeXMLAttrChar(final char attributeChar) {
         switch (attributeChar) {
@@ -149,7 +188,7 @@ class CampaignClassicMapSerializer {
                 return "&amp;";
 
             default:
-                return String.valueOf(attributeChar);
+                return null;
         }
     }
 }
@@ -0,0 +1,50 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+/**
+ * Encodes this [CharSequence] as UTF-8 in a single pass, without creating an intermediate [ByteArray].
+ * <p>
+ * Unpaired surrogates are encoded as `?`, matching [String.toByteArray].
+ *
+ * @param action called with each encoded byte, from 0 to 255
+ */
+internal inline fun CharSequence.forEachUtf8Byte(action: (Int) -> Unit) {
+    val length = this.length
+    var i = 0
+    while (i < length) {
+        val c = this[i++].toInt()
+        when {
+            c < 0x80 -> {
+                action(c)
+            }
+            c < 0x800 -> {
+                action(0xC0 or (c shr 6))
+                action(0x80 or (c and 0x3F))
+            }
+            Character.isHighSurrogate(c.toChar()) && i < length && Character.isLowSurrogate(this[i]) -> {
+                val codePoint = Character.toCodePoint(c.toChar(), this[i++])
+                action(0xF0 or (codePoint shr 18))
+                action(0x80 or ((codePoint shr 12) and 0x3F))
+                action(0x80 or ((codePoint shr 6) and 0x3F))
+                action(0x80 or (codePoint and 0x3F))
+            }
+            Character.isSurrogate(c.toChar()) -> {
+                action('?'.toInt())
+            }
+            else -> {
+                action(0xE0 or (c shr 12))
+                action(0x80 or ((c shr 6) and 0x3F))
+                action(0x80 or (c and 0x3F))
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.util.LinkedList
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * [Networking] holding requests while the device is offline.
+ * <p>
+ * While [connectivitySource] reports the network as unavailable, requests are buffered in memory instead of
+ * waiting for their connection to time out, and they are sent in order once the network is available again.
+ * Requests arriving while buffered requests are waiting are buffered too, so the order is kept. When
+ * [maxBufferedRequests] requests are already buffered, new requests are completed immediately with a null
+ * connection, the same way as a connection failure, so callers which persist failed requests send them again later.
+ * If the network availability cannot be watched, requests are sent right away.
+ *
+ * @param networkService [Networking] used to send the requests
+ * @param connectivitySource [ConnectivitySource] reporting the network availability
+ * @param maxBufferedRequests maximum number of requests held while offline
+ */
+internal class ConnectivityAwareNetworking(
+    private val networkService: Networking,
+    private val connectivitySource: ConnectivitySource,
+    private val maxBufferedRequests: Int
+) : Networking {
+    private val lock = Any()
+    private val buffered = LinkedList<PendingRequest>()
+    private var watchingConnectivity = false
+    private var releasing = false
+    private val requestsBuffered = AtomicLong()
+    private val requestsRejected = AtomicLong()
+
+    companion object {
+        private const val SELF_TAG = "ConnectivityAwareNetworking"
+    }
+
+    private class PendingRequest(val request: NetworkRequest, val callback: NetworkCallback)
+
+    /**
+     * Number of requests currently held until the network is available.
+     */
+    val bufferedRequestCount: Int
+        get() = synchronized(lock) { buffered.size }
+
+    /**
+     * Number of requests which were held because the network was unavailable.
+     */
+    val deferredRequestCount: Long
+        get() = requestsBuffered.get()
+
+    /**
+     * Number of requests rejected because the buffer was full.
+     */
+    val rejectedRequestCount: Long
+        get() = requestsRejected.get()
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val rejected = synchronized(lock) {
+            when {
+                buffered.isEmpty() && connectivitySource.isConnected -> {
+                    null
+                }
+                buffered.size < maxBufferedRequests -> {
+                    buffered.add(PendingRequest(request, callback))
+                    requestsBuffered.incrementAndGet()
+                    false
+                }
+                else -> {
+                    true
+                }
+            }
+        }
+
+        when (rejected) {
+            null -> networkService.connectAsync(request, callback)
+            false -> {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "connectAsync - Network is unavailable, holding request to ${request.host} until it is available."
+                )
+                watchConnectivity()
+            }
+            true -> {
+                requestsRejected.incrementAndGet()
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "connectAsync - Network is unavailable, rejecting request to ${request.host}, " +
+                        "$maxBufferedRequests requests are already waiting."
+                )
+                callback.call(null)
+            }
+        }
+    }
+
+    private fun watchConnectivity() {
+        synchronized(lock) {
+            if (watchingConnectivity || buffered.isEmpty()) {
+                return
+            }
+            watchingConnectivity = true
+        }
+        if (!connectivitySource.notifyWhenConnected { onConnected() }) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "watchConnectivity - Unable to watch network availability, sending held requests."
+            )
+            synchronized(lock) {
+                watchingConnectivity = false
+            }
+            release(checkConnectivity = false)
+            return
+        }
+        // the network may have become available before the listener was registered
+        if (connectivitySource.isConnected) {
+            release(checkConnectivity = true)
+        }
+    }
+
+    private fun onConnected() {
+        synchronized(lock) {
+            watchingConnectivity = false
+        }
+        release(checkConnectivity = true)
+    }
+
+    private fun release(checkConnectivity: Boolean) {
+        // a single caller sends the held requests, so they are sent in order
+        synchronized(lock) {
+            if (releasing) {
+                return
+            }
+            releasing = true
+        }
+        try {
+            while (true) {
+                val pendingRequest = synchronized(lock) {
+                    // the network went away again, keep the remaining requests until it comes back
+                    if (buffered.isEmpty() || (checkConnectivity && !connectivitySource.isConnected)) {
+                        null
+                    } else {
+                        buffered.removeFirst()
+                    }
+                } ?: break
+                networkService.connectAsync(pendingRequest.request, pendingRequest.callback)
+            }
+        } finally {
+            synchronized(lock) {
+                releasing = false
+            }
+        }
+        watchConnectivity()
+    }
+}
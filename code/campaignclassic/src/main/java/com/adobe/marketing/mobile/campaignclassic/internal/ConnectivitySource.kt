@@ -0,0 +1,48 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DeviceInforming
+
+/**
+ * Source of the network availability of the device, see [ConnectivityAwareNetworking].
+ */
+internal interface ConnectivitySource {
+
+    /**
+     * False only if the network is known to be unavailable.
+     */
+    val isConnected: Boolean
+
+    /**
+     * Calls the given [listener] once, the next time the network becomes available.
+     *
+     * @param listener invoked when the network becomes available
+     * @return false if the network availability cannot be watched, in which case [listener] is never called
+     */
+    fun notifyWhenConnected(listener: () -> Unit): Boolean
+}
+
+/**
+ * [ConnectivitySource] backed by the [DeviceInforming] service. An unknown connection status is considered
+ * connected, so requests are never held because the status cannot be read.
+ *
+ * @param deviceInfoService [DeviceInforming] reporting the network connection status
+ */
+internal class DeviceConnectivitySource(private val deviceInfoService: DeviceInforming?) : ConnectivitySource {
+
+    override val isConnected: Boolean
+        get() = deviceInfoService?.networkConnectionStatus != DeviceInforming.ConnectionStatus.DISCONNECTED
+
+    override fun notifyWhenConnected(listener: () -> Unit): Boolean {
+        return deviceInfoService?.registerOneTimeNetworkConnectionActiveListener { listener() } ?: false
+    }
+}
@@ -0,0 +1,92 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DeviceInforming
+import java.util.Locale
+import java.util.UUID
+
+/**
+ * Describes the device in device registration requests.
+ * <p>
+ * Device fields which do not change for the lifetime of the process are read from [DeviceInforming] and url encoded
+ * once. The locale field is encoded again only when the active locale changes.
+ *
+ * @param deviceInfoService [DeviceInforming] used to read the device fields, null if not available
+ */
+internal class DeviceDescriptor(private val deviceInfoService: DeviceInforming?) {
+
+    /**
+     * [String] containing the UUID derived from the device unique id, empty if the device unique id is not available.
+     */
+    val deviceUuid: String
+
+    /**
+     * [ByteArray] containing the url encoded device fields, from `deviceImei` to `osVersion`.
+     */
+    val encodedDeviceFields: ByteArray
+
+    private var locale: Locale? = null
+    private var encodedLocaleField: ByteArray? = null
+
+    companion object {
+        private const val DEVICE_FIELDS_CAPACITY = 256
+        private const val LOCALE_FIELD_CAPACITY = 32
+    }
+
+    init {
+        val deviceUniqueId = deviceInfoService?.deviceUniqueId
+        deviceUuid = if (deviceUniqueId != null) {
+            UUID(
+                deviceUniqueId.hashCode().toLong(),
+                deviceUniqueId.hashCode().toLong()
+            ).toString()
+        } else {
+            ""
+        }
+
+        encodedDeviceFields = FormBodyWriter(DEVICE_FIELDS_CAPACITY)
+            .field(CampaignClassicConstants.RegisterParams.DEVICE_IMEI, deviceUniqueId ?: "")
+            .field(CampaignClassicConstants.RegisterParams.DEVICE_NAME, deviceInfoService?.device ?: "")
+            .field(CampaignClassicConstants.RegisterParams.DEVICE_MODEL, deviceInfoService?.deviceName ?: "")
+            .field(CampaignClassicConstants.RegisterParams.DEVICE_BRAND, deviceInfoService?.deviceBrand ?: "")
+            .field(CampaignClassicConstants.RegisterParams.DEVICE_MANUFACTURER, deviceInfoService?.deviceManufacturer ?: "")
+            .field(CampaignClassicConstants.RegisterParams.OS_NAME, CampaignClassicConstants.REGISTER_PARAM_DEVICE_OS_NAME)
+            .field(
+                CampaignClassicConstants.RegisterParams.OS_VERSION,
+                deviceInfoService?.operatingSystemName + " " + deviceInfoService?.operatingSystemVersion
+            )
+            .toByteArray()
+    }
+
+    /**
+     * @return [ByteArray] containing the url encoded `osLanguage` field for the active locale
+     */
+    @Synchronized
+    fun encodedLocaleField(): ByteArray {
+        val activeLocale = deviceInfoService?.activeLocale
+        val cachedField = encodedLocaleField
+        if (cachedField != null && activeLocale == locale) {
+            return cachedField
+        }
+
+        val field = FormBodyWriter(LOCALE_FIELD_CAPACITY)
+            .field(CampaignClassicConstants.RegisterParams.OS_LANGUAGE, formatLocale(activeLocale))
+            .toByteArray()
+        locale = activeLocale
+        encodedLocaleField = field
+        return field
+    }
+
+    private fun formatLocale(locale: Locale?): String {
+        return locale?.toString()?.replace('_', '-') ?: ""
+    }
+}
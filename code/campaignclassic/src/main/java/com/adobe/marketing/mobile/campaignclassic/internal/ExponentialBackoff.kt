@@ -0,0 +1,46 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import java.util.Random
+
+/**
+ * Computes capped exponential backoff delays with jitter.
+ * <p>
+ * The delay ceiling of an attempt is [baseDelayMillis] doubled for every previous attempt, capped at [maxDelayMillis].
+ * The returned delay is picked randomly in the upper half of the ceiling, so clients failing at the same time
+ * do not retry at the same time.
+ *
+ * @property baseDelayMillis `long` containing the delay ceiling of the first attempt in milliseconds
+ * @property maxDelayMillis `long` containing the maximum delay in milliseconds
+ * @property random [Random] used to compute the jitter
+ */
+internal class ExponentialBackoff(
+    private val baseDelayMillis: Long,
+    private val maxDelayMillis: Long,
+    private val random: Random = Random()
+) {
+
+    companion object {
+        private const val MAX_EXPONENT = 30
+    }
+
+    /**
+     * @param attempt `int` containing the retry attempt, starting at 1
+     * @return `long` containing the delay in milliseconds before the given [attempt]
+     */
+    fun delayMillis(attempt: Int): Long {
+        val exponent = (attempt - 1).coerceIn(0, MAX_EXPONENT)
+        val ceiling = minOf(maxDelayMillis, baseDelayMillis shl exponent)
+        val floor = ceiling / 2
+        return floor + (random.nextDouble() * (ceiling - floor)).toLong()
+    }
+}
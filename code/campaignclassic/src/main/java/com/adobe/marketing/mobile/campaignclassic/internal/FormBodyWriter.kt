@@ -0,0 +1,111 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+/**
+ * Writes an `application/x-www-form-urlencoded` body directly as UTF-8 bytes.
+ * <p>
+ * Field values are UTF-8 encoded and percent-encoded in a single pass, without creating intermediate
+ * encoded [String]s, see [forEachUtf8Byte].
+ */
+internal class FormBodyWriter(initialCapacity: Int = DEFAULT_CAPACITY) {
+    private var buffer = ByteArray(initialCapacity)
+
+    /**
+     * Number of bytes written so far.
+     */
+    var size = 0
+        private set
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 512
+        private val HEX_DIGITS = "0123456789ABCDEF".toByteArray(Charsets.US_ASCII)
+        private val UNRESERVED = BooleanArray(128).also {
+            for (c in 'a'..'z') it[c.toInt()] = true
+            for (c in 'A'..'Z') it[c.toInt()] = true
+            for (c in '0'..'9') it[c.toInt()] = true
+            for (c in "-_.~") it[c.toInt()] = true
+        }
+    }
+
+    /**
+     * Appends a `name=value` field, preceded by `&` if this is not the first field.
+     *
+     * @param name [String] containing the field name, written as is
+     * @param value [CharSequence] containing the field value, written url encoded
+     * @return this [FormBodyWriter]
+     */
+    fun field(name: String, value: CharSequence): FormBodyWriter {
+        if (size > 0) {
+            writeByte('&'.toInt())
+        }
+        for (c in name) {
+            writeByte(c.toInt())
+        }
+        writeByte('='.toInt())
+        writeUrlEncoded(value)
+        return this
+    }
+
+    /**
+     * Appends fields which have already been url encoded, preceded by `&` if this is not the first field.
+     *
+     * @param encodedFields [ByteArray] containing `name=value` fields separated by `&`, written as is
+     * @return this [FormBodyWriter]
+     */
+    fun encodedFields(encodedFields: ByteArray): FormBodyWriter {
+        if (encodedFields.isEmpty()) {
+            return this
+        }
+        if (size > 0) {
+            writeByte('&'.toInt())
+        }
+        ensureCapacity(encodedFields.size)
+        System.arraycopy(encodedFields, 0, buffer, size, encodedFields.size)
+        size += encodedFields.size
+        return this
+    }
+
+    /**
+     * @return [ByteArray] containing the bytes written so far
+     */
+    fun toByteArray(): ByteArray {
+        return buffer.copyOf(size)
+    }
+
+    private fun writeUrlEncoded(value: CharSequence) {
+        value.forEachUtf8Byte {
+            if (it < 0x80 && UNRESERVED[it]) {
+                writeByte(it)
+            } else {
+                writeEncodedByte(it)
+            }
+        }
+    }
+
+    private fun writeEncodedByte(b: Int) {
+        ensureCapacity(3)
+        buffer[size++] = '%'.toByte()
+        buffer[size++] = HEX_DIGITS[(b shr 4) and 0xF]
+        buffer[size++] = HEX_DIGITS[b and 0xF]
+    }
+
+    private fun writeByte(b: Int) {
+        ensureCapacity(1)
+        buffer[size++] = b.toByte()
+    }
+
+    private fun ensureCapacity(extra: Int) {
+        if (size + extra > buffer.size) {
+            buffer = buffer.copyOf(maxOf(buffer.size * 2, size + extra))
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import java.util.AbstractMap.SimpleImmutableEntry
+
+/**
+ * Read-only [Map] view over request headers held as alternating names and values.
+ * <p>
+ * Headers are built once as an array, which is passed as is to a
+ * [com.adobe.marketing.mobile.CampaignClassicTransport.Request] and viewed as a [Map] where a
+ * [com.adobe.marketing.mobile.services.NetworkRequest] needs one, so they are never copied from one form to the other.
+ *
+ * @property namesAndValues [Array] containing the header names and values, alternately
+ */
+internal class HeaderArrayMap(val namesAndValues: Array<String>) : AbstractMap<String, String>() {
+
+    override val size: Int
+        get() = namesAndValues.size / 2
+
+    override val entries: Set<Map.Entry<String, String>> = object : AbstractSet<Map.Entry<String, String>>() {
+        override val size: Int
+            get() = namesAndValues.size / 2
+
+        override fun iterator(): Iterator<Map.Entry<String, String>> {
+            return object : Iterator<Map.Entry<String, String>> {
+                private var index = 0
+
+                override fun hasNext(): Boolean = index < namesAndValues.size
+
+                override fun next(): Map.Entry<String, String> {
+                    if (!hasNext()) {
+                        throw NoSuchElementException()
+                    }
+                    return SimpleImmutableEntry(namesAndValues[index], namesAndValues[index + 1]).also { index += 2 }
+                }
+            }
+        }
+    }
+
+    override fun get(key: String): String? {
+        for (i in namesAndValues.indices step 2) {
+            if (namesAndValues[i] == key) {
+                return namesAndValues[i + 1]
+            }
+        }
+        return null
+    }
+
+    override fun containsKey(key: String): Boolean = get(key) != null
+}
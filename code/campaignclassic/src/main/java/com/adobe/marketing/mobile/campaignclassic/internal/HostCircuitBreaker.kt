@@ -0,0 +1,214 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.net.HttpURLConnection
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * State of the circuit of a host, see [HostCircuitBreaker].
+ */
+internal enum class CircuitState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
+
+/**
+ * [Networking] failing requests fast while their host is degraded.
+ * <p>
+ * Each host has a circuit which starts [CircuitState.CLOSED]. Connection failures and responses indicating the
+ * server is unavailable are counted, any other response resets the count. After [failureThreshold] consecutive
+ * failures the circuit opens: requests to the host are completed immediately with a null connection, the same way
+ * as a connection failure, so callers defer them with their usual retry instead of waiting for the timeout.
+ * After [coolDownMillis] the circuit becomes [CircuitState.HALF_OPEN] and lets a single probe request through,
+ * which closes the circuit if it succeeds and opens it again otherwise. Each probe is tagged with a generation, so
+ * requests sent before the circuit opened which complete while it is not closed are ignored.
+ *
+ * @param networkService [Networking] used to send the requests
+ * @param failureThreshold number of consecutive failures opening the circuit of a host, at least 1
+ * @param coolDownMillis time in milliseconds a circuit stays open before a probe request is sent
+ * @param currentTimeMillis returns the current time in milliseconds
+ */
+internal class HostCircuitBreaker(
+    private val networkService: Networking,
+    failureThreshold: Int,
+    coolDownMillis: Long,
+    private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) : Networking {
+    private val lock = Any()
+    private val circuits = HashMap<String, Circuit>()
+    private val requestsRejected = AtomicLong()
+    private val circuitsOpened = AtomicLong()
+
+    companion object {
+        private const val SELF_TAG = "HostCircuitBreaker"
+        private const val HTTP_TOO_MANY_REQUESTS = 429
+        private const val NOT_A_PROBE = 0L
+        private val FAILURE_RESPONSE_CODES = setOf(
+            HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+            HTTP_TOO_MANY_REQUESTS,
+            HttpURLConnection.HTTP_INTERNAL_ERROR,
+            HttpURLConnection.HTTP_BAD_GATEWAY,
+            HttpURLConnection.HTTP_UNAVAILABLE,
+            HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+        )
+    }
+
+    private class Circuit {
+        var state = CircuitState.CLOSED
+        var consecutiveFailures = 0
+        var openedTimestamp = 0L
+        var probeInFlight = false
+        var probeGeneration = NOT_A_PROBE
+    }
+
+    /**
+     * Number of consecutive failures opening the circuit of a host, at least 1.
+     */
+    @Volatile
+    var failureThreshold: Int = failureThreshold.coerceAtLeast(1)
+        set(value) {
+            field = value.coerceAtLeast(1)
+        }
+
+    /**
+     * Time in milliseconds a circuit stays open before a probe request is sent, at least 0.
+     */
+    @Volatile
+    var coolDownMillis: Long = coolDownMillis.coerceAtLeast(0)
+        set(value) {
+            field = value.coerceAtLeast(0)
+        }
+
+    /**
+     * Number of requests failed fast because the circuit of their host was not closed.
+     */
+    val rejectedRequestCount: Long
+        get() = requestsRejected.get()
+
+    /**
+     * Number of times a circuit has opened.
+     */
+    val openedCircuitCount: Long
+        get() = circuitsOpened.get()
+
+    /**
+     * @param host [String] containing the lower case host
+     * @return the current [CircuitState] of the [host]
+     */
+    fun circuitState(host: String): CircuitState {
+        synchronized(lock) {
+            val circuit = circuits[host] ?: return CircuitState.CLOSED
+            updateOpenCircuit(host, circuit)
+            return circuit.state
+        }
+    }
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val host = request.host
+        // probe generation of the admitted request, NOT_A_PROBE if the circuit is closed, null if rejected
+        val probe: Long? = synchronized(lock) {
+            val circuit = circuits.getOrPut(host) { Circuit() }
+            updateOpenCircuit(host, circuit)
+            when (circuit.state) {
+                CircuitState.CLOSED -> NOT_A_PROBE
+                CircuitState.OPEN -> null
+                CircuitState.HALF_OPEN -> {
+                    if (circuit.probeInFlight) {
+                        null
+                    } else {
+                        circuit.probeInFlight = true
+                        ++circuit.probeGeneration
+                    }
+                }
+            }
+        }
+
+        if (probe == null) {
+            requestsRejected.incrementAndGet()
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "connectAsync - Failing request to $host fast, circuit is not closed."
+            )
+            callback.call(null)
+            return
+        }
+
+        networkService.connectAsync(request) {
+            val failed = it == null || FAILURE_RESPONSE_CODES.contains(it.responseCode)
+            recordOutcome(host, failed, probe)
+            callback.call(it)
+        }
+    }
+
+    /**
+     * Records the outcome of a request to the circuit of the [host].
+     * <p>
+     * While the circuit is not closed, only the outcome of the current probe request changes its state.
+     *
+     * @param host [String] containing the lower case host
+     * @param failed true if the request failed
+     * @param probe probe generation returned when the request was admitted, [NOT_A_PROBE] if the circuit was closed
+     */
+    private fun recordOutcome(host: String, failed: Boolean, probe: Long) {
+        synchronized(lock) {
+            val circuit = circuits.getOrPut(host) { Circuit() }
+            val wasProbe = probe != NOT_A_PROBE && circuit.state == CircuitState.HALF_OPEN &&
+                circuit.probeInFlight && circuit.probeGeneration == probe
+            if (wasProbe) {
+                circuit.probeInFlight = false
+            } else if (circuit.state != CircuitState.CLOSED) {
+                Log.trace(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "recordOutcome - Ignoring outcome of a request to $host sent before its circuit opened."
+                )
+                return
+            }
+
+            if (!failed) {
+                circuit.consecutiveFailures = 0
+                if (circuit.state != CircuitState.CLOSED) {
+                    transition(host, circuit, CircuitState.CLOSED)
+                }
+                return
+            }
+
+            circuit.consecutiveFailures++
+            if (wasProbe || (circuit.state == CircuitState.CLOSED && circuit.consecutiveFailures >= failureThreshold)) {
+                circuit.openedTimestamp = currentTimeMillis()
+                circuitsOpened.incrementAndGet()
+                transition(host, circuit, CircuitState.OPEN)
+            }
+        }
+    }
+
+    private fun updateOpenCircuit(host: String, circuit: Circuit) {
+        if (circuit.state == CircuitState.OPEN && currentTimeMillis() - circuit.openedTimestamp >= coolDownMillis) {
+            transition(host, circuit, CircuitState.HALF_OPEN)
+        }
+    }
+
+    private fun transition(host: String, circuit: Circuit, state: CircuitState) {
+        Log.debug(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "Circuit of $host changed from ${circuit.state} to $state after ${circuit.consecutiveFailures} consecutive failures."
+        )
+        circuit.state = state
+    }
+}
@@ -0,0 +1,174 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.util.LinkedList
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * [Networking] limiting the number of requests in flight to each host.
+ * <p>
+ * At most [maxInFlightPerHost] requests to the same host are sent at a time. Further requests wait in a FIFO queue
+ * and are sent as in-flight requests complete. When [maxWaitingPerHost] requests are already waiting for a host,
+ * new requests to that host are completed immediately with a null connection, the same way as a connection failure.
+ * Callers which persist failed requests, like the tracking hit queue and the registration retry, keep the request
+ * and send it again later, other requests are dropped.
+ *
+ * @param networkService [Networking] used to send the requests
+ * @param maxInFlightPerHost maximum number of requests in flight to the same host
+ * @param maxWaitingPerHost maximum number of requests waiting for the same host
+ */
+internal class HostConcurrencyLimiter(
+    private val networkService: Networking,
+    maxInFlightPerHost: Int,
+    private val maxWaitingPerHost: Int
+) : Networking {
+    private val lock = Any()
+    private val hosts = HashMap<String, HostState>()
+    private var inFlightLimit = maxInFlightPerHost.coerceAtLeast(1)
+    private val requestsSent = AtomicLong()
+    private val requestsDelayed = AtomicLong()
+    private val requestsRejected = AtomicLong()
+
+    companion object {
+        private const val SELF_TAG = "HostConcurrencyLimiter"
+    }
+
+    private class HostState {
+        var inFlight = 0
+        val waiting = LinkedList<PendingRequest>()
+    }
+
+    private class PendingRequest(val request: NetworkRequest, val callback: NetworkCallback)
+
+    /**
+     * Maximum number of requests in flight to the same host, at least 1.
+     * Raising the limit immediately sends the requests which can be sent under the new limit.
+     */
+    var maxInFlightPerHost: Int
+        get() = synchronized(lock) { inFlightLimit }
+        set(value) {
+            val startedRequests = ArrayList<Pair<String, PendingRequest>>()
+            synchronized(lock) {
+                inFlightLimit = value.coerceAtLeast(1)
+                for ((host, state) in hosts) {
+                    startWaitingRequests(host, state, startedRequests)
+                }
+            }
+            startedRequests.forEach { send(it.first, it.second) }
+        }
+
+    /**
+     * Number of requests currently in flight, across all hosts.
+     */
+    val inFlightRequestCount: Int
+        get() = synchronized(lock) { hosts.values.sumBy { it.inFlight } }
+
+    /**
+     * Number of requests currently waiting for a host, across all hosts.
+     */
+    val waitingRequestCount: Int
+        get() = synchronized(lock) { hosts.values.sumBy { it.waiting.size } }
+
+    /**
+     * Number of requests sent.
+     */
+    val sentRequestCount: Long
+        get() = requestsSent.get()
+
+    /**
+     * Number of requests which had to wait for a host before being sent.
+     */
+    val delayedRequestCount: Long
+        get() = requestsDelayed.get()
+
+    /**
+     * Number of requests rejected because the waiting queue of their host was full.
+     */
+    val rejectedRequestCount: Long
+        get() = requestsRejected.get()
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val host = request.host
+        val pendingRequest = PendingRequest(request, callback)
+        val rejected = synchronized(lock) {
+            val state = hosts.getOrPut(host) { HostState() }
+            when {
+                state.inFlight < inFlightLimit -> {
+                    state.inFlight++
+                    false
+                }
+                state.waiting.size < maxWaitingPerHost -> {
+                    state.waiting.add(pendingRequest)
+                    requestsDelayed.incrementAndGet()
+                    return
+                }
+                else -> true
+            }
+        }
+
+        if (rejected) {
+            requestsRejected.incrementAndGet()
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "connectAsync - Rejecting request to $host, $maxWaitingPerHost requests are already waiting."
+            )
+            callback.call(null)
+            return
+        }
+        send(host, pendingRequest)
+    }
+
+    private fun send(host: String, pendingRequest: PendingRequest) {
+        requestsSent.incrementAndGet()
+        try {
+            networkService.connectAsync(pendingRequest.request) {
+                try {
+                    pendingRequest.callback.call(it)
+                } finally {
+                    release(host)
+                }
+            }
+        } catch (e: RuntimeException) {
+            release(host)
+            throw e
+        }
+    }
+
+    private fun release(host: String) {
+        val startedRequests = ArrayList<Pair<String, PendingRequest>>()
+        synchronized(lock) {
+            val state = hosts[host] ?: return
+            state.inFlight--
+            startWaitingRequests(host, state, startedRequests)
+            if (state.inFlight == 0 && state.waiting.isEmpty()) {
+                hosts.remove(host)
+            }
+        }
+        startedRequests.forEach { send(it.first, it.second) }
+    }
+
+    private fun startWaitingRequests(
+        host: String,
+        state: HostState,
+        startedRequests: MutableList<Pair<String, PendingRequest>>
+    ) {
+        while (state.inFlight < inFlightLimit && state.waiting.isNotEmpty()) {
+            state.inFlight++
+            startedRequests.add(host to state.waiting.removeFirst())
+        }
+    }
+}
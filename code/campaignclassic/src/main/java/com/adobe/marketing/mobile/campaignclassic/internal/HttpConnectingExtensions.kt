@@ -0,0 +1,47 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import java.io.IOException
+
+private const val DISCARD_BUFFER_SIZE = 1024
+
+/**
+ * Reads and discards the response body, then closes the connection.
+ * <p>
+ * A connection is only kept alive for the next request once its response body has been fully read, closing it
+ * with unread bytes closes the socket. Bodies longer than [maxBytes] are not read to the end, as setting up a new
+ * connection is cheaper than downloading them.
+ *
+ * @param maxBytes maximum number of bytes to read
+ * @return number of bytes read and discarded
+ */
+internal fun HttpConnecting.discardResponseBodyAndClose(maxBytes: Int): Long {
+    var discarded = 0L
+    try {
+        (inputStream ?: errorStream)?.use {
+            val buffer = ByteArray(DISCARD_BUFFER_SIZE)
+            while (discarded < maxBytes) {
+                val read = it.read(buffer, 0, minOf(buffer.size.toLong(), maxBytes - discarded).toInt())
+                if (read < 0) {
+                    break
+                }
+                discarded += read
+            }
+        }
+    } catch (e: IOException) {
+        // the connection is closed below, it is not reused
+    } finally {
+        close()
+    }
+    return discarded
+}
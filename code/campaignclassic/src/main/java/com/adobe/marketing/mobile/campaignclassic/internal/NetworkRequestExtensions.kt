@@ -0,0 +1,26 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.NetworkRequest
+import java.net.MalformedURLException
+import java.net.URL
+import java.util.Locale
+
+/**
+ * @return lower case host [String] of the request url, empty if the url cannot be parsed
+ */
+internal val NetworkRequest.host: String
+    get() = try {
+        URL(url).host.toLowerCase(Locale.US)
+    } catch (e: MalformedURLException) {
+        ""
+    }
@@ -0,0 +1,70 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Default [CampaignClassicTransport] sending requests with a [Networking] service.
+ * <p>
+ * [Networking] always follows redirects, so [CampaignClassicTransport.Request.isFollowRedirects] is not honored.
+ * Request headers are passed to the [Networking] service as a [HeaderArrayMap] view, without being copied.
+ * Response bodies of registration and tracking requests are read and discarded here before the connection is
+ * closed, so the connection can be reused, see [discardResponseBodyAndClose]. Requests sent through
+ * [TransportNetworking] only get the status code back.
+ *
+ * @param networkService [Networking] used to send the requests
+ */
+internal class NetworkingTransport(private val networkService: Networking) : CampaignClassicTransport {
+    private val responseBytesDiscarded = AtomicLong()
+    private val responsesReceived = AtomicLong()
+
+    /**
+     * Number of responses received.
+     */
+    val responseCount: Long
+        get() = responsesReceived.get()
+
+    /**
+     * Number of response body bytes read and discarded.
+     */
+    val discardedResponseByteCount: Long
+        get() = responseBytesDiscarded.get()
+
+    override fun send(request: CampaignClassicTransport.Request, callback: CampaignClassicTransport.Callback) {
+        val networkRequest = NetworkRequest(
+            request.url,
+            if (request.method == CampaignClassicTransport.Method.POST) HttpMethod.POST else HttpMethod.GET,
+            request.body,
+            HeaderArrayMap(request.headers),
+            request.connectTimeout,
+            request.readTimeout
+        )
+
+        networkService.connectAsync(networkRequest) {
+            if (it == null) {
+                callback.onFailure()
+                return@connectAsync
+            }
+            val responseCode = it.responseCode
+            // read the response so the connection can be reused, then close it
+            responsesReceived.incrementAndGet()
+            responseBytesDiscarded.addAndGet(
+                it.discardResponseBodyAndClose(CampaignClassicConstants.MAX_DISCARDED_RESPONSE_BYTES)
+            )
+            callback.onResponse(responseCode)
+        }
+    }
+}
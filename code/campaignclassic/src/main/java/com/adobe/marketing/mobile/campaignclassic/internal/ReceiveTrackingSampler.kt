@@ -0,0 +1,72 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+/**
+ * Decides which receive tracking requests are sent when receive tracking is sampled.
+ * <p>
+ * The decision is derived from a 64-bit FNV-1a hash of the delivery id and the device id, mixed with the
+ * MurmurHash3 finalizer, so it is stable for a device and a delivery across sessions and uniformly spread across
+ * devices. When the device id is not available, the decision only depends on the delivery id.
+ */
+internal object ReceiveTrackingSampler {
+    private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+    private const val FNV_PRIME = 0x100000001b3L
+    private const val SEPARATOR = 0
+    private const val DOUBLE_MANTISSA_BITS = 53
+    private const val DOUBLE_UNIT = 1.0 / (1L shl DOUBLE_MANTISSA_BITS)
+
+    /**
+     * @param deliveryId [String] containing the delivery id `_dId` of the notification
+     * @param deviceId [String] containing the device id, empty if not available
+     * @param sampleRate fraction of receive tracking requests to send, between 0 and 1
+     * @return true if the receive tracking request should be sent
+     */
+    fun isSampled(deliveryId: String, deviceId: String, sampleRate: Double): Boolean {
+        if (sampleRate >= 1.0) {
+            return true
+        }
+        if (sampleRate <= 0.0) {
+            return false
+        }
+        return samplingValue(deliveryId, deviceId) < sampleRate
+    }
+
+    /**
+     * @return value uniformly distributed in `[0, 1)` derived from the [deliveryId] and the [deviceId]
+     */
+    fun samplingValue(deliveryId: String, deviceId: String): Double {
+        var hash = FNV_OFFSET_BASIS
+        hash = update(hash, deliveryId)
+        hash = (hash xor SEPARATOR.toLong()) * FNV_PRIME
+        hash = update(hash, deviceId)
+        return (mix(hash) ushr (Long.SIZE_BITS - DOUBLE_MANTISSA_BITS)) * DOUBLE_UNIT
+    }
+
+    private fun update(hash: Long, value: String): Long {
+        var result = hash
+        for (c in value) {
+            val code = c.toInt()
+            result = (result xor (code and 0xFF).toLong()) * FNV_PRIME
+            result = (result xor (code ushr 8).toLong()) * FNV_PRIME
+        }
+        return result
+    }
+
+    private fun mix(hash: Long): Long {
+        var result = hash
+        result = result xor (result ushr 33)
+        result *= -0xae502812aa7333L
+        result = result xor (result ushr 33)
+        result *= -0x3b314601e57a13adL
+        return result xor (result ushr 33)
+    }
+}
@@ -0,0 +1,125 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import java.security.MessageDigest
+import java.security.NoSuchAlgorithmException
+
+/**
+ * Computes the fingerprint of the registration information, used to detect if a device registration
+ * request needs to be sent.
+ * <p>
+ * Each field is fed to a `SHA-256` digest as its length in UTF-16 chars followed by its UTF-8 bytes, see
+ * [forEachUtf8Byte], so no field can bleed into the next one. Additional parameters are sorted by key, which makes the fingerprint
+ * independent of the map iteration order. Fingerprints are prefixed with [VERSION_PREFIX] to tell them
+ * apart from hashes persisted by previous versions of the extension, see [legacyHash].
+ */
+internal class RegistrationFingerprint @Throws(NoSuchAlgorithmException::class) constructor() {
+    private val digest = MessageDigest.getInstance(SHA_256)
+    private val scratch = ByteArray(SCRATCH_SIZE)
+    private var scratchSize = 0
+
+    companion object {
+        const val VERSION_PREFIX = "v2:"
+        private const val SHA_256 = "SHA-256"
+        private const val SCRATCH_SIZE = 256
+        private val HEX_DIGITS = "0123456789abcdef".toCharArray()
+
+        /**
+         * @return true if the persisted [hash] was created by a previous version of the extension
+         */
+        fun isLegacy(hash: String): Boolean {
+            return !hash.startsWith(VERSION_PREFIX)
+        }
+
+        /**
+         * Generates the registration hash in the format persisted by previous versions of the extension,
+         * so persisted hashes can be migrated without sending a new registration request.
+         *
+         * @param input [String] containing the concatenated registration information
+         * @return `String` containing `SHA256` hash of the ISO-8859-1 encoded input
+         * @throws NoSuchAlgorithmException if algorithm implementation is not supported
+         */
+        @Throws(NoSuchAlgorithmException::class)
+        fun legacyHash(input: String): String {
+            val md = MessageDigest.getInstance(SHA_256)
+            val textBytes = input.toByteArray(Charsets.ISO_8859_1)
+            md.update(textBytes, 0, textBytes.size)
+            return toHex(md.digest())
+        }
+
+        private fun toHex(bytes: ByteArray): String {
+            val chars = CharArray(bytes.size * 2)
+            for (i in bytes.indices) {
+                val b = bytes[i].toInt()
+                chars[i * 2] = HEX_DIGITS[(b shr 4) and 0xF]
+                chars[i * 2 + 1] = HEX_DIGITS[b and 0xF]
+            }
+            return String(chars)
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the given registration information.
+     *
+     * @param registrationToken [String] containing the registration token
+     * @param userKey [String] containing the user identifier e.g. email
+     * @param additionalParameters [Map] containing additional parameters to be sent in the request
+     * @param deviceUuid [String] containing the device UUID
+     * @return [String] containing the versioned fingerprint
+     */
+    fun compute(
+        registrationToken: String,
+        userKey: String,
+        additionalParameters: Map<String, Any?>,
+        deviceUuid: String
+    ): String {
+        digest.reset()
+        update(registrationToken)
+        update(userKey)
+        update(deviceUuid)
+
+        val keys = additionalParameters.keys.filterTo(ArrayList()) { additionalParameters[it] != null }
+        keys.sort()
+        updateLength(keys.size)
+        for (key in keys) {
+            update(key)
+            update(CampaignClassicMapSerializer.serializeValue(additionalParameters[key]))
+        }
+
+        flush()
+        return VERSION_PREFIX + toHex(digest.digest())
+    }
+
+    private fun update(value: String) {
+        updateLength(value.length)
+        value.forEachUtf8Byte { write(it) }
+    }
+
+    private fun updateLength(length: Int) {
+        write(length ushr 24)
+        write(length ushr 16)
+        write(length ushr 8)
+        write(length)
+    }
+
+    private fun write(b: Int) {
+        if (scratchSize == SCRATCH_SIZE) {
+            flush()
+        }
+        scratch[scratchSize++] = b.toByte()
+    }
+
+    private fun flush() {
+        digest.update(scratch, 0, scratchSize)
+        scratchSize = 0
+    }
+}
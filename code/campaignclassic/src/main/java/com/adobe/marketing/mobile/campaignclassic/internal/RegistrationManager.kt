@@ -21,31 +21,68 @@ import com.adobe.marketing.mobile.services.NamedCollection
 import com.adobe.marketing.mobile.services.NetworkRequest
 import com.adobe.marketing.mobile.services.Networking
 import com.adobe.marketing.mobile.services.ServiceProvider
-import com.adobe.marketing.mobile.util.UrlUtils
-import java.io.UnsupportedEncodingException
 import java.net.HttpURLConnection
-import java.nio.charset.StandardCharsets
-import java.security.MessageDigest
-import java.security.NoSuchAlgorithmException
-import java.util.Locale
-import java.util.UUID
+import java.util.Random
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
 
 /**
  * Handles logic related to registering device token with Campaign Classic server
+ * <p>
+ * Registration requests failing with a recoverable error are persisted and retried with capped exponential backoff,
+ * see [ExponentialBackoff]. Only the latest registration request is retried.
+ * <p>
+ * The registered fingerprint is held in a [RegistrationState] updated with compare-and-set, so network completions
+ * of registration requests sent before the registration data was cleared are discarded.
+ * <p>
+ * Retries and debounced requests are timed on a daemon thread and then sent on the extension worker, so they are
+ * serialized with the other changes of the registration state. Writes to the data store are persisted on another
+ * daemon thread. Both threads are stopped by [shutdown].
+ * <p>
+ * Registration requests take a permit from the registration rate limit only once they are known to be sent, so
+ * registrations which have not changed or are identical to a pending request do not use up the rate limit,
+ * see [TokenBucketRateLimiter].
  */
 internal class RegistrationManager {
     private val extensionApi: ExtensionApi
     private val deviceInfoService: DeviceInforming?
-    private val dataStore: NamedCollection?
+    private val dataStore: WriteBehindDataStore?
+    private val dataStoreExecutor: Executor
     private val networkService: Networking?
+    private val deviceDescriptor: Lazy<DeviceDescriptor>
+    private val scheduler: Lazy<ScheduledExecutorService>
+    private val worker: Executor
+    private val rateLimiter: TokenBucketRateLimiter
+    private val currentTimeMillis: () -> Long
+    private val retryBackoff: ExponentialBackoff
 
-    constructor(extensionApi: ExtensionApi) {
+    constructor(
+        extensionApi: ExtensionApi,
+        networkService: Networking?,
+        worker: Executor,
+        rateLimiter: TokenBucketRateLimiter
+    ) {
         this.extensionApi = extensionApi
         deviceInfoService = ServiceProvider.getInstance().deviceInfoService
+        dataStoreExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory(CampaignClassicConstants.DATASTORE_THREAD_NAME))
         dataStore = ServiceProvider.getInstance().dataStoreService?.getNamedCollection(
             CampaignClassicConstants.DATASTORE_KEY
-        )
-        networkService = ServiceProvider.getInstance().networkService
+        )?.let { WriteBehindDataStore(it, dataStoreExecutor) }
+        this.networkService = networkService
+        deviceDescriptor = lazy { DeviceDescriptor(deviceInfoService) }
+        scheduler = lazy { createScheduler() }
+        this.worker = worker
+        this.rateLimiter = rateLimiter
+        currentTimeMillis = { System.currentTimeMillis() }
+        retryBackoff = createRetryBackoff(Random())
     }
 
     @VisibleForTesting
@@ -53,30 +90,106 @@ internal class RegistrationManager {
         extensionApi: ExtensionApi,
         deviceInfoService: DeviceInforming?,
         dataStore: NamedCollection?,
-        networkService: Networking?
+        networkService: Networking?,
+        scheduler: ScheduledExecutorService? = null,
+        currentTimeMillis: () -> Long = { System.currentTimeMillis() },
+        random: Random = Random(),
+        dataStoreExecutor: Executor = Executor { it.run() },
+        worker: Executor = Executor { it.run() },
+        rateLimiter: TokenBucketRateLimiter = TokenBucketRateLimiter(
+            CampaignClassicConstants.DEFAULT_REGISTRATION_REQUESTS_PER_MINUTE,
+            CampaignClassicConstants.REGISTRATION_RATE_LIMIT_BURST
+        )
     ) {
         this.extensionApi = extensionApi
         this.deviceInfoService = deviceInfoService
-        this.dataStore = dataStore
+        this.dataStoreExecutor = dataStoreExecutor
+        this.dataStore = dataStore?.let { WriteBehindDataStore(it, dataStoreExecutor) }
         this.networkService = networkService
+        this.deviceDescriptor = lazy { DeviceDescriptor(deviceInfoService) }
+        this.scheduler = if (scheduler != null) lazyOf(scheduler) else lazy { createScheduler() }
+        this.worker = worker
+        this.rateLimiter = rateLimiter
+        this.currentTimeMillis = currentTimeMillis
+        this.retryBackoff = createRetryBackoff(random)
     }
 
+    private val registrationLock = Any()
+    private val inFlightRegistrations = HashSet<String>()
+    private var pendingRegistration: RegistrationRequest? = null
+    private var lastRegistrationEvent: Event? = null
+    private var latestRequest: RegistrationRequest? = null
+    private var pendingRetry: RegistrationRetry? = null
+    private var pendingRetryFuture: ScheduledFuture<*>? = null
+    private var retryResumed = false
+    private val registrationState = AtomicReference<RegistrationState?>()
+    private val verifiedRegistration = AtomicReference<VerifiedRegistration?>()
+    private val sendSequence = AtomicLong()
+    private val persistLock = Any()
+    private var persistedState: RegistrationState? = null
+    private val requestsSent = AtomicLong()
+    private val requestsCoalesced = AtomicLong()
+
+    /**
+     * Number of registration requests sent to the marketing server.
+     */
+    val sentRequestCount: Long
+        get() = requestsSent.get()
+
+    /**
+     * Number of registration requests which were not sent because they were identical to a pending request
+     * or superseded by a later request within the debounce window.
+     */
+    val coalescedRequestCount: Long
+        get() = requestsCoalesced.get()
+
     companion object {
         private const val SELF_TAG = "RegistrationManager"
+        private const val REGISTER_PARAMS_CAPACITY = 512
+        private const val HTTP_TOO_MANY_REQUESTS = 429
+        private const val CONTENT_TYPE_FORM_URLENCODED_UTF8 =
+            CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_CONTENT_TYPE_WWW_FORM_URLENCODED + ";" +
+                CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_CONTENT_TYPE_UTF8_CHARSET
+        private val RECOVERABLE_RESPONSE_CODES = setOf(
+            HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+            HTTP_TOO_MANY_REQUESTS,
+            HttpURLConnection.HTTP_INTERNAL_ERROR,
+            HttpURLConnection.HTTP_BAD_GATEWAY,
+            HttpURLConnection.HTTP_UNAVAILABLE,
+            HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+        )
+
+        private fun daemonThreadFactory(name: String): ThreadFactory {
+            return ThreadFactory { Thread(it, name).apply { isDaemon = true } }
+        }
+
+        private fun createScheduler(): ScheduledExecutorService {
+            return Executors.newSingleThreadScheduledExecutor(
+                daemonThreadFactory(CampaignClassicConstants.REGISTRATION_SCHEDULER_THREAD_NAME)
+            )
+        }
+
+        private fun createRetryBackoff(random: Random): ExponentialBackoff {
+            return ExponentialBackoff(
+                TimeUnit.SECONDS.toMillis(CampaignClassicConstants.REGISTRATION_RETRY_BASE_DELAY_SECONDS),
+                TimeUnit.SECONDS.toMillis(CampaignClassicConstants.REGISTRATION_RETRY_MAX_DELAY_SECONDS),
+                random
+            )
+        }
     }
 
     /**
      * Sends a device registration request to the configured Campaign Classic server.
      * <p>
      *  Register request is not sent under following conditions:
-     * - Configuration is not available
      * - Privacy status is [MobilePrivacyStatus.OPT_OUT] or [MobilePrivacyStatus.UNKNOWN]
      * - Campaign Classic is not configured
      * - Registration information has not changed since the last request
      *
      * @param event incoming registration request [Event] containing all the device/user details
+     * @param configData current [CampaignClassicConfiguration]
      */
-    fun registerDevice(event: Event) {
+    fun registerDevice(event: Event, configData: CampaignClassicConfiguration) {
         // retrieve the device token from the event
         // device token is the unique token received from Firebase service through the application
         // bail out from the registration request if device token is unavailable
@@ -91,7 +204,6 @@ internal class RegistrationManager {
         }
 
         // bail out if the privacy is not opted In
-        val configData = CampaignClassicConfiguration(event, extensionApi)
         if (configData.privacyStatus != MobilePrivacyStatus.OPT_IN) {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
@@ -102,6 +214,10 @@ internal class RegistrationManager {
             return
         }
 
+        synchronized(registrationLock) {
+            lastRegistrationEvent = event
+        }
+
         // bail out if marketing server or integration key is not available
         val marketingServer = configData.marketingServer ?: run {
             Log.debug(
@@ -126,53 +242,192 @@ internal class RegistrationManager {
         // retrieve the userKey from the event
         // userKey is a string containing user identifier e.g. email
         val userKey = event.userKey ?: ""
-        val additionalParametersString =
-            CampaignClassicMapSerializer.serializeMap(event.additionalParameters)
-        val deviceUniqueId = deviceInfoService?.deviceUniqueId
-        val deviceUuid = if (deviceUniqueId != null) {
-            UUID(
-                deviceUniqueId.hashCode().toLong(),
-                deviceUniqueId.hashCode().toLong()
-            ).toString()
-        } else {
-            ""
+        val additionalParametersMap = event.additionalParameters
+        val deviceUuid = deviceDescriptor.value.deviceUuid
+
+        // the fingerprint is only computed when the registration state cannot tell if the registration has changed
+        val registrationInfoHash: String? by lazy(LazyThreadSafetyMode.NONE) {
+            try {
+                RegistrationFingerprint().compute(registrationToken, userKey, additionalParametersMap, deviceUuid)
+            } catch (ex: Exception) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "registerDevice - Failed to process device registration request," +
+                        "Cannot create registration info hash. Error $ex.message"
+                )
+                null
+            }
         }
 
-        val registrationInfoHash: String? = try {
-            getSha256Hash(registrationToken + userKey + additionalParametersString.hashCode() + deviceUuid)
-        } catch (ex: Exception) {
+        // bail out, if the registration request data has not changed
+        val registration = VerifiedRegistration(registrationToken, userKey, additionalParametersMap, deviceUuid)
+        val legacyHashInput = {
+            registrationToken + userKey + CampaignClassicMapSerializer.serializeMap(additionalParametersMap).hashCode() + deviceUuid
+        }
+        if (!hasRegistrationInfoChanged(registration, { registrationInfoHash }, configData, legacyHashInput)) {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
                 SELF_TAG,
-                "registerDevice - Failed to process device registration request," +
-                    "Cannot create registration info hash. Error $ex.message"
+                "registerDevice - Not sending device registration request," +
+                    "there is no change in registration info."
             )
-            null
+            return
         }
 
-        // bail out, if the registration request data has not changed
-        if (!hasRegistrationInfoChanged(registrationInfoHash)) {
+        // bail out, if an identical registration request is already pending
+        val coalescingKey = RegistrationRequest.coalescingKey(registrationInfoHash, marketingServer, integrationKey)
+        if (isRegistrationPending(coalescingKey)) {
+            requestsCoalesced.incrementAndGet()
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
                 SELF_TAG,
                 "registerDevice - Not sending device registration request," +
-                    "there is no change in registration info."
+                    "an identical registration request is already pending."
             )
             return
         }
 
-        val payload = prepareRegistrationParams(registrationToken, integrationKey, userKey, additionalParametersString)
-        val registerURL = String.format(CampaignClassicConstants.REGISTER_API_URL_BASE, marketingServer)
+        // bail out, if the registration request exceeds the rate limit, debounced requests take their permit when sent
+        val debounceMillis = TimeUnit.SECONDS.toMillis(configData.registrationDebounceSeconds)
+        if (debounceMillis == 0L && isRateLimited()) {
+            return
+        }
+
+        val request = buildRegistrationRequest(
+            registrationToken,
+            userKey,
+            additionalParametersMap,
+            registrationInfoHash,
+            marketingServer,
+            integrationKey,
+            configData.timeout
+        )
 
         // make the network request
-        sendRegistrationRequest(registerURL, payload, configData.timeout, registrationInfoHash)
+        if (debounceMillis > 0) {
+            debounceRegistrationRequest(request, debounceMillis)
+        } else {
+            sendRegistrationRequest(request)
+        }
+    }
+
+    /**
+     * Schedules the registration request persisted for retry by a previous session, if any.
+     * <p>
+     * The persisted request is dropped if it was sent with a marketing server or integration key other than the
+     * configured ones. Its payload is not persisted, it is rebuilt from the device registration request of this
+     * session when the retry is sent, see [rebuildRegistrationRequest].
+     * A registration restored from a previous version of the extension, which did not record the marketing server
+     * and integration key, is recorded as sent with the given configuration. This method has no effect after the
+     * first call.
+     *
+     * @param configData current [CampaignClassicConfiguration]
+     */
+    fun resumeRegistrationRetry(configData: CampaignClassicConfiguration) {
+        synchronized(registrationLock) {
+            if (retryResumed) {
+                return
+            }
+            retryResumed = true
+        }
+        recordLegacyRegistrationConfiguration(configData)
+
+        // only a pending or failed registration may have been persisted for retry
+        val status = currentRegistrationState().status
+        if (status != RegistrationStatus.PENDING && status != RegistrationStatus.FAILED) {
+            return
+        }
+
+        val retry = RegistrationRetry.from(
+            dataStore?.getString(CampaignClassicConstants.DataStoreKeys.REGISTRATION_RETRY, null)
+        ) ?: return
+
+        if (!retry.isSentWith(configData)) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "resumeRegistrationRetry - Dropping persisted registration request, marketing server or integration key has changed."
+            )
+            discardRegistrationRetry()
+            return
+        }
+
+        Log.debug(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "resumeRegistrationRetry - Resuming registration request retry attempt ${retry.attempt}."
+        )
+        synchronized(registrationLock) {
+            if (latestRequest != null) {
+                // a registration request has been sent in this session, it supersedes the persisted one
+                return
+            }
+        }
+        scheduleRegistrationRetry(retry, maxOf(0, retry.nextAttemptTimestamp - currentTimeMillis()))
+    }
+
+    /**
+     * Handles a change of the configured marketing server or integration key.
+     * <p>
+     * Registration requests waiting to be sent with the previous configuration are dropped, and the last device
+     * registration request of this session, if any, is sent again with the updated configuration.
+     *
+     * @param configData updated [CampaignClassicConfiguration]
+     */
+    fun handleRegistrationConfigurationChange(configData: CampaignClassicConfiguration) {
+        val lastEvent = synchronized(registrationLock) {
+            if (pendingRegistration?.isSentWith(configData) == false) {
+                pendingRegistration = null
+            }
+            if (pendingRetry?.isSentWith(configData) == false) {
+                latestRequest = null
+                discardRegistrationRetry()
+            }
+            lastRegistrationEvent
+        } ?: return
+
+        Log.debug(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "handleRegistrationConfigurationChange - Registering device with the updated configuration."
+        )
+        registerDevice(lastEvent, configData)
     }
 
     /**
-     * Clears the stored registration data hash from persistence.
+     * Clears the stored registration data hash and the registration request pending retry from persistence.
+     * <p>
+     * Registration requests in flight complete without updating the registration state.
      */
     fun clearRegistrationData() {
-        updateDataStoreWithRegistrationInfo(null)
+        synchronized(registrationLock) {
+            pendingRegistration = null
+            lastRegistrationEvent = null
+            latestRequest = null
+            discardRegistrationRetry()
+        }
+        transitionRegistrationState { it.cleared() }
+    }
+
+    /**
+     * Persists the pending data store writes and stops the scheduler and the data store thread.
+     * <p>
+     * Registration requests waiting for their debounce window are sent right away. Registration requests pending
+     * retry stay persisted and are resumed by the next session, see [resumeRegistrationRetry].
+     */
+    fun shutdown() {
+        if (scheduler.isInitialized()) {
+            scheduler.value.shutdown()
+        }
+        val pendingRequest = synchronized(registrationLock) {
+            pendingRetryFuture?.cancel(false)
+            pendingRetryFuture = null
+            pendingRegistration.also { pendingRegistration = null }
+        }
+        pendingRequest?.let { sendRegistrationRequest(it) }
+        dataStore?.flush()
+        (dataStoreExecutor as? ExecutorService)?.shutdown()
     }
 
     // ========================================================
@@ -181,12 +436,28 @@ internal class RegistrationManager {
 
     /**
      * Checks if persisted registration information has changed in SDK.
+     * <p>
+     * The registered marketing server and integration key are checked first. The [registrationInfoHash] is then only
+     * computed if the [registration] was not already found unchanged against the current [RegistrationState] version,
+     * any transition of the registration state (including clearing the registration data) requires a new check.
+     * <p>
+     * If the persisted hash was created by a previous version of the extension, it is compared against
+     * the legacy hash of the current registration information and migrated to [registrationInfoHash] on match.
      *
-     * @param registrationInfoHash [String] containing hash of registration token, userkey and additional params
+     * @param registration [VerifiedRegistration] containing the registration token, userkey and additional params
+     * @param registrationInfoHash returns the [String] fingerprint of the [registration]
+     * @param configData current [CampaignClassicConfiguration], registration info has changed if the registration
+     * was sent to another marketing server or with another integration key
+     * @param legacyHashInput returns the [String] hashed by previous versions of the extension
      * @return returns true if persisted registration data hash is different from
      * registration data hash received from current event, false otherwise
      */
-    private fun hasRegistrationInfoChanged(registrationInfoHash: String?): Boolean {
+    private fun hasRegistrationInfoChanged(
+        registration: VerifiedRegistration,
+        registrationInfoHash: () -> String?,
+        configData: CampaignClassicConfiguration,
+        legacyHashInput: () -> String
+    ): Boolean {
         if (dataStore == null) {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
@@ -196,64 +467,290 @@ internal class RegistrationManager {
             return true
         }
 
-        val storedRegistrationInfoHash: String? = dataStore.getString(
-            CampaignClassicConstants.DataStoreKeys.TOKEN_HASH,
-            null
-        )
+        recordLegacyRegistrationConfiguration(configData)
+        val state = currentRegistrationState()
+        if (!state.isRegisteredWith(configData)) {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "hasRegistrationInfoChanged - Marketing server or integration key has changed since the last registration."
+            )
+            return true
+        }
+
+        val verified = verifiedRegistration.get()
+        if (verified != null && verified.stateVersion == state.version && verified == registration) {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "hasRegistrationInfoChanged - Registration information has not changed since the last check."
+            )
+            return false
+        }
+
+        val storedRegistrationInfoHash: String? = state.fingerprint
+        val currentRegistrationInfoHash = registrationInfoHash()
 
-        if (registrationInfoHash == storedRegistrationInfoHash) {
+        if (currentRegistrationInfoHash == storedRegistrationInfoHash) {
             Log.trace(
                 CampaignClassicConstants.LOG_TAG,
                 SELF_TAG,
                 "hasRegistrationInfoChanged - Registration information has not changed in Data store."
             )
+            registration.stateVersion = state.version
+            verifiedRegistration.set(registration)
+            return false
+        }
+
+        if (currentRegistrationInfoHash != null && storedRegistrationInfoHash != null &&
+            RegistrationFingerprint.isLegacy(storedRegistrationInfoHash) &&
+            storedRegistrationInfoHash == legacyHash(legacyHashInput())
+        ) {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "hasRegistrationInfoChanged - Registration information has not changed, migrating persisted hash."
+            )
+            transitionRegistrationState {
+                if (it.fingerprint == storedRegistrationInfoHash) it.migrated(currentRegistrationInfoHash, configData) else null
+            }
             return false
         }
         return true
     }
 
     /**
-     * Prepares payload string for the device registration request.
+     * Records the [configData] on a registration restored from a previous version of the extension which did not
+     * record its marketing server and integration key, see [RegistrationState.withLegacyConfiguration].
+     *
+     * @param configData current [CampaignClassicConfiguration]
+     */
+    private fun recordLegacyRegistrationConfiguration(configData: CampaignClassicConfiguration) {
+        transitionRegistrationState { it.withLegacyConfiguration(configData) }?.let {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "recordLegacyRegistrationConfiguration - Recorded the configuration of the registration restored from a previous version."
+            )
+        }
+    }
+
+    private fun legacyHash(input: String): String? {
+        return try {
+            RegistrationFingerprint.legacyHash(input)
+        } catch (ex: Exception) {
+            null
+        }
+    }
+
+    /**
+     * Prepares the url encoded payload for the device registration request.
+     * <p>
+     * Only the per-request fields are encoded, device fields are appended from the [DeviceDescriptor].
      *
      * @param registrationToken [String] containing the registration token
      * @param integrationKey [String] containing integration key
      * @param userKey [String] containing the user identifier e.g. email
-     * @param additionalParameters xml [String] containing additional parameters to be sent in the request
-     * @return [String] containing url encoded parameters to be sent in device registration POST payload
+     * @param additionalParameters xml [CharSequence] containing additional parameters to be sent in the request
+     * @return [ByteArray] containing the UTF-8 url encoded parameters to be sent in device registration POST payload
      */
     private fun prepareRegistrationParams(
         registrationToken: String,
         integrationKey: String,
         userKey: String,
-        additionalParameters: String
-    ): String {
-        return java.lang.String.format(
-            CampaignClassicConstants.REGISTER_PARAMS_FORMAT,
-            UrlUtils.urlEncode(registrationToken),
-            UrlUtils.urlEncode(integrationKey),
-            UrlUtils.urlEncode(userKey),
-            UrlUtils.urlEncode(deviceInfoService?.deviceUniqueId ?: ""),
-            UrlUtils.urlEncode(deviceInfoService?.device ?: ""),
-            UrlUtils.urlEncode(deviceInfoService?.deviceName ?: ""),
-            UrlUtils.urlEncode(deviceInfoService?.deviceBrand ?: ""),
-            UrlUtils.urlEncode(deviceInfoService?.deviceManufacturer ?: ""),
-            UrlUtils.urlEncode(CampaignClassicConstants.REGISTER_PARAM_DEVICE_OS_NAME),
-            UrlUtils.urlEncode(deviceInfoService?.operatingSystemName + " " + deviceInfoService?.operatingSystemVersion),
-            UrlUtils.urlEncode(formatLocale(deviceInfoService?.activeLocale)),
-            UrlUtils.urlEncode(additionalParameters)
+        additionalParameters: CharSequence
+    ): ByteArray {
+        return FormBodyWriter(additionalParameters.length * 3 + REGISTER_PARAMS_CAPACITY)
+            .field(CampaignClassicConstants.RegisterParams.REGISTRATION_TOKEN, registrationToken)
+            .field(CampaignClassicConstants.RegisterParams.MOBILE_APP_UUID, integrationKey)
+            .field(CampaignClassicConstants.RegisterParams.USER_KEY, userKey)
+            .encodedFields(deviceDescriptor.value.encodedDeviceFields)
+            .encodedFields(deviceDescriptor.value.encodedLocaleField())
+            .field(CampaignClassicConstants.RegisterParams.ADDITIONAL_PARAMS, additionalParameters)
+            .toByteArray()
+    }
+
+    private fun RegistrationRequest.isSentWith(configData: CampaignClassicConfiguration): Boolean {
+        return marketingServer == configData.marketingServer && integrationKey == configData.integrationKey
+    }
+
+    private fun RegistrationRetry.isSentWith(configData: CampaignClassicConfiguration): Boolean {
+        return marketingServer == configData.marketingServer && integrationKey == configData.integrationKey
+    }
+
+    /**
+     * Builds the device registration request for the given registration information.
+     *
+     * @param registrationToken [String] containing the registration token
+     * @param userKey [String] containing the user identifier e.g. email
+     * @param additionalParametersMap [Map] containing the additional parameters to be sent in the request
+     * @param fingerprint [String] containing the fingerprint of the registration information, null if unavailable
+     * @param marketingServer [String] containing the marketing server the request is sent to
+     * @param integrationKey [String] containing the integration key sent in the request
+     * @param timeout `int` containing the request timeout to use for the connection
+     * @return [RegistrationRequest] to be sent
+     */
+    private fun buildRegistrationRequest(
+        registrationToken: String,
+        userKey: String,
+        additionalParametersMap: Map<String, Any>,
+        fingerprint: String?,
+        marketingServer: String,
+        integrationKey: String,
+        timeout: Int
+    ): RegistrationRequest {
+        val additionalParameters = StringBuilder()
+        CampaignClassicMapSerializer.serializeMap(additionalParametersMap, additionalParameters)
+        val payload = prepareRegistrationParams(registrationToken, integrationKey, userKey, additionalParameters)
+        val registerURL = String.format(CampaignClassicConstants.REGISTER_API_URL_BASE, marketingServer)
+        return RegistrationRequest(registerURL, payload, timeout, fingerprint, marketingServer, integrationKey)
+    }
+
+    /**
+     * Rebuilds the request of a registration retry restored from persistence, from the last device registration
+     * request of this session.
+     * <p>
+     * The retry is dropped if no device registration was requested in this session yet, or if the registration
+     * information has changed since the persisted request was sent. In both cases the next device registration
+     * request is sent as a new request.
+     *
+     * @param retry [RegistrationRetry] restored from persistence
+     * @return [RegistrationRequest] to be retried, null if the retry was dropped
+     */
+    private fun rebuildRegistrationRequest(retry: RegistrationRetry): RegistrationRequest? {
+        val event = synchronized(registrationLock) { lastRegistrationEvent }
+        val registrationToken = event?.deviceToken
+        val request = if (event != null && registrationToken != null && retry.fingerprint != null) {
+            val userKey = event.userKey ?: ""
+            val additionalParametersMap = event.additionalParameters
+            val fingerprint = try {
+                RegistrationFingerprint().compute(
+                    registrationToken,
+                    userKey,
+                    additionalParametersMap,
+                    deviceDescriptor.value.deviceUuid
+                )
+            } catch (ex: Exception) {
+                null
+            }
+            if (fingerprint == retry.fingerprint) {
+                buildRegistrationRequest(
+                    registrationToken,
+                    userKey,
+                    additionalParametersMap,
+                    fingerprint,
+                    retry.marketingServer,
+                    retry.integrationKey,
+                    retry.timeout
+                )
+            } else {
+                null
+            }
+        } else {
+            null
+        }
+
+        synchronized(registrationLock) {
+            if (pendingRetry !== retry) {
+                return null
+            }
+            if (request == null) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "rebuildRegistrationRequest - Dropping persisted registration request, registration information is not available."
+                )
+                discardRegistrationRetry()
+                return null
+            }
+            latestRequest = request
+        }
+        return request
+    }
+
+    /**
+     * Checks if an identical registration request is in flight or waiting to be sent.
+     *
+     * @param coalescingKey [String] identifying the registration request, see [RegistrationRequest.coalescingKey]
+     * @return true if an identical registration request is pending, false otherwise
+     */
+    private fun isRegistrationPending(coalescingKey: String?): Boolean {
+        if (coalescingKey == null) {
+            return false
+        }
+        synchronized(registrationLock) {
+            return inFlightRegistrations.contains(coalescingKey) ||
+                pendingRegistration?.coalescingKey == coalescingKey ||
+                pendingRetry?.coalescingKey == coalescingKey
+        }
+    }
+
+    /**
+     * Takes a permit from the [rateLimiter] and logs the dropped registration request if none is available.
+     *
+     * @return true if the registration request exceeds the rate limit and must be dropped
+     */
+    private fun isRateLimited(): Boolean {
+        if (rateLimiter.tryAcquire()) {
+            return false
+        }
+        Log.warning(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "registerDevice - Dropping registration request, more than " +
+                "${rateLimiter.permitsPerMinute} registration requests per minute " +
+                "(${rateLimiter.rejectedRequestCount} dropped so far)."
         )
+        return true
     }
 
     /**
-     * Sends a registration request to the configured Campaign Classic registration server as specified by the `requestUrl`.
+     * Holds the registration request for [debounceMillis] before sending it. Requests received while a request is
+     * held replace it, so only the latest registration request of the window is sent.
      *
-     * @param requestUrl [String] containing Campaign Classic registration server url to connect to
-     * @param payload `String` containing the url encoded registration payload
-     * @param requestTimeout `int` containing the request timeout to use for the connection
-     * @param registrationHash [String] containing the SHA256 hashed device registration information.
-     * @return true if registration request was successful, false otherwise
+     * @param request [RegistrationRequest] to be sent
+     * @param debounceMillis `long` containing the debounce window in milliseconds
      */
-    private fun sendRegistrationRequest(requestUrl: String, payload: String, requestTimeout: Int, registrationHash: String?) {
+    private fun debounceRegistrationRequest(request: RegistrationRequest, debounceMillis: Long) {
+        synchronized(registrationLock) {
+            if (pendingRegistration != null) {
+                requestsCoalesced.incrementAndGet()
+                pendingRegistration = request
+                return
+            }
+            pendingRegistration = request
+        }
+
+        val sendPendingRequest = Runnable {
+            val pendingRequest = synchronized(registrationLock) {
+                pendingRegistration.also { pendingRegistration = null }
+            }
+            if (pendingRequest != null && !isRateLimited()) {
+                sendRegistrationRequest(pendingRequest)
+            }
+        }
+        try {
+            scheduleOnWorker(sendPendingRequest, debounceMillis)
+        } catch (e: RejectedExecutionException) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "debounceRegistrationRequest - Scheduler is shut down, sending registration request now."
+            )
+            sendPendingRequest.run()
+        }
+    }
+
+    /**
+     * Sends a registration request to the configured Campaign Classic registration server as specified by the request url.
+     * <p>
+     * A new registration request supersedes the registration request pending retry. If the request fails with
+     * a recoverable error, it is persisted and scheduled for retry.
+     *
+     * @param request [RegistrationRequest] to be sent
+     * @param attempt `int` containing the retry attempt, 0 for a new registration request
+     */
+    private fun sendRegistrationRequest(request: RegistrationRequest, attempt: Int = 0) {
         if (networkService == null) {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
@@ -263,12 +760,33 @@ internal class RegistrationManager {
             return
         }
 
+        val coalescingKey = request.coalescingKey
+        if (coalescingKey != null) {
+            synchronized(registrationLock) {
+                if (!inFlightRegistrations.add(coalescingKey)) {
+                    requestsCoalesced.incrementAndGet()
+                    return
+                }
+            }
+        }
+        requestsSent.incrementAndGet()
+        val generation = transitionRegistrationState { it.pending() }?.generation ?: currentRegistrationState().generation
+        val sequence = sendSequence.incrementAndGet()
+        if (attempt == 0) {
+            synchronized(registrationLock) {
+                latestRequest = request
+                discardRegistrationRetry()
+            }
+        }
+
+        val requestUrl = request.url
+        val payload = request.payload
+        val requestTimeout = request.timeout
         val headers = buildHeaders(payload)
-        val postBody = payload.toByteArray(StandardCharsets.UTF_8)
         val networkRequest = NetworkRequest(
             requestUrl,
             HttpMethod.POST,
-            postBody,
+            payload,
             headers,
             requestTimeout,
             requestTimeout
@@ -277,34 +795,235 @@ internal class RegistrationManager {
         // send registration request
         Log.trace(CampaignClassicConstants.LOG_TAG, SELF_TAG, "sendRegistrationRequest - Registration request was sent with url $requestUrl")
         networkService.connectAsync(networkRequest) {
-            if (it.responseCode == HttpURLConnection.HTTP_OK) {
-                Log.debug(CampaignClassicConstants.LOG_TAG, SELF_TAG, "sendRegistrationRequest - Registration successful.")
-                updateDataStoreWithRegistrationInfo(registrationHash)
-            } else {
+            val responseCode = it?.responseCode
+            it?.close()
+            if (coalescingKey != null) {
+                synchronized(registrationLock) {
+                    inFlightRegistrations.remove(coalescingKey)
+                }
+            }
+
+            when {
+                responseCode == HttpURLConnection.HTTP_OK -> {
+                    Log.debug(CampaignClassicConstants.LOG_TAG, SELF_TAG, "sendRegistrationRequest - Registration successful.")
+                    val updatedState = transitionRegistrationState {
+                        // discard completions of requests sent before a clear or superseded by a later request
+                        if (it.generation == generation && it.sequence < sequence) {
+                            it.registered(request, sequence, currentTimeMillis())
+                        } else {
+                            null
+                        }
+                    }
+                    if (updatedState == null) {
+                        Log.debug(
+                            CampaignClassicConstants.LOG_TAG,
+                            SELF_TAG,
+                            "sendRegistrationRequest - Discarding stale registration completion."
+                        )
+                    }
+                    completeRegistrationRetry(request)
+                }
+                responseCode == null || RECOVERABLE_RESPONSE_CODES.contains(responseCode) -> {
+                    Log.debug(
+                        CampaignClassicConstants.LOG_TAG,
+                        SELF_TAG,
+                        "sendRegistrationRequest - Unsuccessful Registration request with connection status $responseCode, will retry."
+                    )
+                    val retryAfter = retryRegistrationRequest(request, attempt + 1)
+                    transitionRegistrationState {
+                        if (it.generation == generation && it.sequence < sequence) it.failed(retryAfter) else null
+                    }
+                }
+                else -> {
+                    Log.debug(
+                        CampaignClassicConstants.LOG_TAG,
+                        SELF_TAG,
+                        "sendRegistrationRequest - Unsuccessful Registration request with connection status $responseCode"
+                    )
+                    completeRegistrationRetry(request)
+                    transitionRegistrationState {
+                        if (it.generation == generation && it.sequence < sequence) it.failed(0) else null
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Persists the failed registration request and schedules it to be retried after a backoff delay.
+     * <p>
+     * The request is dropped if it has been superseded by a new registration request or if it has reached
+     * [CampaignClassicConstants.REGISTRATION_RETRY_MAX_ATTEMPTS].
+     *
+     * @param request [RegistrationRequest] which failed
+     * @param attempt `int` containing the retry attempt, starting at 1
+     * @return `long` containing the time in milliseconds at which the request is retried, 0 if it is dropped
+     */
+    private fun retryRegistrationRequest(request: RegistrationRequest, attempt: Int): Long {
+        if (attempt > CampaignClassicConstants.REGISTRATION_RETRY_MAX_ATTEMPTS) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "retryRegistrationRequest - Dropping registration request, maximum retry attempts reached."
+            )
+            completeRegistrationRetry(request)
+            return 0
+        }
+
+        val delay = retryBackoff.delayMillis(attempt)
+        val retry = RegistrationRetry(request, attempt, currentTimeMillis() + delay)
+        synchronized(registrationLock) {
+            if (latestRequest !== request) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "retryRegistrationRequest - Dropping registration request, superseded by a newer registration request."
+                )
+                return 0
+            }
+            dataStore?.setString(CampaignClassicConstants.DataStoreKeys.REGISTRATION_RETRY, retry.serialize())
+        }
+        scheduleRegistrationRetry(retry, delay)
+        return retry.nextAttemptTimestamp
+    }
+
+    /**
+     * Schedules the given [retry] to be sent after [delayMillis].
+     *
+     * @param retry [RegistrationRetry] to be sent
+     * @param delayMillis `long` containing the delay in milliseconds
+     */
+    private fun scheduleRegistrationRetry(retry: RegistrationRetry, delayMillis: Long) {
+        synchronized(registrationLock) {
+            pendingRetryFuture?.cancel(false)
+            pendingRetry = retry
+            pendingRetryFuture = try {
+                scheduleOnWorker(
+                    Runnable {
+                        val isCurrent = synchronized(registrationLock) { pendingRetry === retry }
+                        if (isCurrent) {
+                            val request = retry.request ?: rebuildRegistrationRequest(retry)
+                            request?.let { sendRegistrationRequest(it, retry.attempt) }
+                        }
+                    },
+                    delayMillis
+                )
+            } catch (e: RejectedExecutionException) {
                 Log.debug(
                     CampaignClassicConstants.LOG_TAG,
                     SELF_TAG,
-                    "sendRegistrationRequest - Unsuccessful Registration request with connection status ${it.responseCode}"
+                    "scheduleRegistrationRetry - Scheduler is shut down, registration request is retried in the next session."
                 )
+                null
             }
-            it.close()
         }
     }
 
-    private fun buildHeaders(payload: String): Map<String, String> {
-        return mapOf(
-            CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_KEY_CONTENT_TYPE
-                to "${CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_CONTENT_TYPE_WWW_FORM_URLENCODED};${CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_CONTENT_TYPE_UTF8_CHARSET}",
-            CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_KEY_CONTENT_LENGTH to payload.length.toString()
+    /**
+     * Schedules the given [task] to be queued on the worker as an essential task after [delayMillis], so it never
+     * runs concurrently with the registration state changes made on the worker.
+     *
+     * @param task [Runnable] to be run on the worker
+     * @param delayMillis `long` containing the delay in milliseconds
+     * @return [ScheduledFuture] which can be cancelled until the task is queued on the worker
+     * @throws RejectedExecutionException if the scheduler has been shut down
+     */
+    private fun scheduleOnWorker(task: Runnable, delayMillis: Long): ScheduledFuture<*> {
+        return scheduler.value.schedule(
+            Runnable { worker.execute(SerialWorker.essential(task)) },
+            delayMillis,
+            TimeUnit.MILLISECONDS
         )
     }
 
+    /**
+     * Discards the registration request pending retry, if the given [request] is the latest registration request.
+     *
+     * @param request [RegistrationRequest] which completed
+     */
+    private fun completeRegistrationRetry(request: RegistrationRequest) {
+        synchronized(registrationLock) {
+            if (latestRequest === request) {
+                latestRequest = null
+                discardRegistrationRetry()
+            }
+        }
+    }
+
+    /**
+     * Cancels and removes from persistence the registration request pending retry.
+     */
+    private fun discardRegistrationRetry() {
+        synchronized(registrationLock) {
+            pendingRetryFuture?.cancel(false)
+            pendingRetryFuture = null
+            pendingRetry = null
+            dataStore?.remove(CampaignClassicConstants.DataStoreKeys.REGISTRATION_RETRY)
+        }
+    }
+
+    /**
+     * Builds the headers for the device registration request.
+     *
+     * @param payload [ByteArray] containing the registration payload, its byte count is used as `Content-Length`
+     * @return [HeaderArrayMap] containing the request headers, passed as is to the transport
+     */
+    private fun buildHeaders(payload: ByteArray): HeaderArrayMap {
+        return HeaderArrayMap(
+            arrayOf(
+                CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_KEY_CONTENT_TYPE,
+                CONTENT_TYPE_FORM_URLENCODED_UTF8,
+                CampaignClassicConstants.EventDataKeys.CampaignClassic.HTTP_HEADER_KEY_CONTENT_LENGTH,
+                payload.size.toString()
+            )
+        )
+    }
+
+    /**
+     * @return [RegistrationState] currently held, loaded from the `DataStore` on first access
+     */
+    private fun currentRegistrationState(): RegistrationState {
+        registrationState.get()?.let { return it }
+        val persistedState = RegistrationState.restore(
+            dataStore?.getString(CampaignClassicConstants.DataStoreKeys.TOKEN_HASH, null),
+            dataStore?.getString(CampaignClassicConstants.DataStoreKeys.REGISTER_STATUS, null)
+        )
+        if (registrationState.compareAndSet(null, persistedState)) {
+            synchronized(persistLock) {
+                if (this.persistedState == null) {
+                    this.persistedState = persistedState
+                }
+            }
+        }
+        return registrationState.get() ?: persistedState
+    }
+
+    /**
+     * Atomically replaces the current [RegistrationState] by the result of the [transition] and persists it.
+     *
+     * @param transition returns the next [RegistrationState] from the current one, null to leave it unchanged
+     * @return [RegistrationState] set by the [transition], null if the state was left unchanged
+     */
+    private inline fun transitionRegistrationState(transition: (RegistrationState) -> RegistrationState?): RegistrationState? {
+        while (true) {
+            val current = currentRegistrationState()
+            val next = transition(current) ?: return null
+            if (registrationState.compareAndSet(current, next)) {
+                updateDataStoreWithRegistrationInfo(next)
+                return next
+            }
+        }
+    }
+
     /**
      * Updates `DataStore` with registration information.
+     * <p>
+     * States are persisted in version order, a state older than the last persisted one is ignored.
+     * The token hash is only written when it has changed, and always removed when the registration data is cleared.
      *
-     * @param registrationHash [String] encrypted registration information to be persisted in `DataStore`
+     * @param state [RegistrationState] to be persisted in `DataStore`
      */
-    private fun updateDataStoreWithRegistrationInfo(registrationHash: String?) {
+    private fun updateDataStoreWithRegistrationInfo(state: RegistrationState) {
         if (dataStore == null) {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
@@ -314,34 +1033,41 @@ internal class RegistrationManager {
             return
         }
 
-        if (!registrationHash.isNullOrBlank()) {
-            dataStore.setString(CampaignClassicConstants.DataStoreKeys.TOKEN_HASH, registrationHash)
-        } else {
-            dataStore.remove(CampaignClassicConstants.DataStoreKeys.TOKEN_HASH)
-        }
-    }
+        synchronized(persistLock) {
+            val previousState = persistedState
+            if (previousState != null && state.version <= previousState.version) {
+                return
+            }
+            persistedState = state
 
-    private fun formatLocale(locale: Locale?): String {
-        return locale?.toString()?.replace('_', '-') ?: ""
+            val registrationHash = state.fingerprint
+            if (registrationHash != null && registrationHash == previousState?.fingerprint) {
+                // token hash is unchanged
+            } else if (!registrationHash.isNullOrBlank()) {
+                dataStore.setString(CampaignClassicConstants.DataStoreKeys.TOKEN_HASH, registrationHash)
+            } else {
+                dataStore.remove(CampaignClassicConstants.DataStoreKeys.TOKEN_HASH)
+            }
+            if (state.status != RegistrationStatus.NEVER_REGISTERED) {
+                dataStore.setString(CampaignClassicConstants.DataStoreKeys.REGISTER_STATUS, state.serialize())
+            } else {
+                dataStore.remove(CampaignClassicConstants.DataStoreKeys.REGISTER_STATUS)
+            }
+        }
     }
 
     /**
-     * Generate `SHA256` hash for the provided input `String`.
-     *
-     * @param input [String] to be encoded
-     * @return `String` containing `SHA256` hash for the input
-     * @throws NoSuchAlgorithmException if algorithm implementation is not supported
-     * @throws UnsupportedEncodingException if the provided charset is not supported
+     * Registration information found unchanged against the [RegistrationState] with version [stateVersion].
+     * <p>
+     * Equality only compares the registration information, the [stateVersion] is checked separately.
      */
-    @Throws(NoSuchAlgorithmException::class, UnsupportedEncodingException::class)
-    private fun getSha256Hash(input: String): String {
-        val md = MessageDigest.getInstance("SHA-256")
-        val textBytes = input.toByteArray(charset("iso-8859-1"))
-        md.update(textBytes, 0, textBytes.size)
-        val sb = StringBuilder()
-        for (b in md.digest()) {
-            sb.append(java.lang.String.format(CampaignClassicConstants.HEX_CONVERSION_FORMAT_STRING, b))
-        }
-        return sb.toString()
+    private data class VerifiedRegistration(
+        val registrationToken: String,
+        val userKey: String,
+        val additionalParameters: Map<String, Any?>,
+        val deviceUuid: String
+    ) {
+        @Volatile
+        var stateVersion = -1L
     }
 }
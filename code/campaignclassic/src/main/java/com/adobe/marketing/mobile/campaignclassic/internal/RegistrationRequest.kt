@@ -0,0 +1,51 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+/**
+ * A device registration request ready to be sent to the Campaign Classic marketing server.
+ *
+ * @property url [String] containing Campaign Classic registration server url to connect to
+ * @property payload [ByteArray] containing the UTF-8 url encoded registration payload
+ * @property timeout `int` containing the request timeout to use for the connection
+ * @property fingerprint [String] containing the fingerprint of the registration information, null if unavailable
+ * @property marketingServer [String] containing the marketing server the request is sent to
+ * @property integrationKey [String] containing the integration key sent in the request
+ */
+internal class RegistrationRequest(
+    val url: String,
+    val payload: ByteArray,
+    val timeout: Int,
+    val fingerprint: String?,
+    val marketingServer: String,
+    val integrationKey: String
+) {
+
+    companion object {
+        /**
+         * Builds the key identifying identical registration requests.
+         *
+         * @param fingerprint [String] containing the fingerprint of the registration information
+         * @param marketingServer [String] containing the marketing server the request is sent to
+         * @param integrationKey [String] containing the integration key sent in the request
+         * @return [String] containing the coalescing key, null if the [fingerprint] is not available
+         */
+        fun coalescingKey(fingerprint: String?, marketingServer: String, integrationKey: String): String? {
+            fingerprint ?: return null
+            return "$fingerprint|$marketingServer|$integrationKey"
+        }
+    }
+
+    /**
+     * [String] identifying identical registration requests, null if the fingerprint is not available.
+     */
+    val coalescingKey: String? = coalescingKey(fingerprint, marketingServer, integrationKey)
+}
@@ -0,0 +1,102 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * A failed device registration request to be retried.
+ * <p>
+ * Only the fingerprint of the registration information, the configuration the request is sent with and the retry
+ * schedule are persisted, see [serialize]. The request payload, which contains the registration token and the user
+ * key, is kept in memory only: a retry restored from persistence has no [request], which is rebuilt from the
+ * registration information of the current session when the retry is sent.
+ *
+ * @property fingerprint [String] containing the fingerprint of the registration information, null if unavailable
+ * @property marketingServer [String] containing the marketing server the request is sent to
+ * @property integrationKey [String] containing the integration key sent in the request
+ * @property timeout `int` containing the request timeout to use for the connection
+ * @property attempt `int` containing the retry attempt, starting at 1
+ * @property nextAttemptTimestamp `long` containing the time in milliseconds at which the request should be retried
+ * @property request [RegistrationRequest] to be retried, null if the retry was restored from persistence
+ */
+internal class RegistrationRetry(
+    val fingerprint: String?,
+    val marketingServer: String,
+    val integrationKey: String,
+    val timeout: Int,
+    val attempt: Int,
+    val nextAttemptTimestamp: Long,
+    val request: RegistrationRequest? = null
+) {
+
+    constructor(request: RegistrationRequest, attempt: Int, nextAttemptTimestamp: Long) : this(
+        request.fingerprint,
+        request.marketingServer,
+        request.integrationKey,
+        request.timeout,
+        attempt,
+        nextAttemptTimestamp,
+        request
+    )
+
+    companion object {
+        private const val FINGERPRINT = "fingerprint"
+        private const val MARKETING_SERVER = "marketingServer"
+        private const val INTEGRATION_KEY = "integrationKey"
+        private const val TIMEOUT = "timeout"
+        private const val ATTEMPT = "attempt"
+        private const val NEXT_ATTEMPT_TIMESTAMP = "nextAttemptTimestamp"
+
+        /**
+         * Creates a [RegistrationRetry] from the given persisted data.
+         *
+         * @param data [String] containing the persisted retry, null if not available
+         * @return [RegistrationRetry] without [request] if the data is a valid serialized retry, null otherwise
+         */
+        fun from(data: String?): RegistrationRetry? {
+            data ?: return null
+            return try {
+                val json = JSONObject(data)
+                RegistrationRetry(
+                    json.optString(FINGERPRINT, "").ifEmpty { null },
+                    json.getString(MARKETING_SERVER),
+                    json.getString(INTEGRATION_KEY),
+                    json.getInt(TIMEOUT),
+                    json.getInt(ATTEMPT),
+                    json.getLong(NEXT_ATTEMPT_TIMESTAMP)
+                )
+            } catch (e: JSONException) {
+                null
+            }
+        }
+    }
+
+    /**
+     * [String] identifying identical registration requests, see [RegistrationRequest.coalescingKey].
+     */
+    val coalescingKey: String? = RegistrationRequest.coalescingKey(fingerprint, marketingServer, integrationKey)
+
+    /**
+     * @return [String] containing this retry serialized as JSON, without the request payload
+     */
+    fun serialize(): String {
+        val json = JSONObject()
+        json.put(FINGERPRINT, fingerprint ?: "")
+        json.put(MARKETING_SERVER, marketingServer)
+        json.put(INTEGRATION_KEY, integrationKey)
+        json.put(TIMEOUT, timeout)
+        json.put(ATTEMPT, attempt)
+        json.put(NEXT_ATTEMPT_TIMESTAMP, nextAttemptTimestamp)
+        return json.toString()
+    }
+}
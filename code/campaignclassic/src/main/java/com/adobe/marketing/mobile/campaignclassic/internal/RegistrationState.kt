@@ -0,0 +1,215 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * Status of the device registration with the Campaign Classic marketing server.
+ */
+internal enum class RegistrationStatus {
+    /** No registration request has succeeded since install or since the registration data was cleared. */
+    NEVER_REGISTERED,
+
+    /** A registration request has been sent and has not completed yet. */
+    PENDING,
+
+    /** The last completed registration request succeeded. */
+    REGISTERED,
+
+    /** The last completed registration request failed, it may be retried after the retry-after timestamp. */
+    FAILED
+}
+
+/**
+ * Immutable, versioned snapshot of the device registration state.
+ * <p>
+ * Every transition returns a new snapshot with an incremented [version], so snapshots can be swapped with
+ * compare-and-set and persisted in order. [generation] is incremented when the registration data is cleared,
+ * which lets network completions started before the clear be recognized as stale. [version], [generation] and
+ * [sequence] only live in memory, the other properties are persisted, see [serialize].
+ *
+ * @property version `long` incremented on every transition
+ * @property generation `long` incremented every time the registration data is cleared
+ * @property sequence `long` containing the send sequence of the registration request which produced [fingerprint]
+ * @property status [RegistrationStatus] of the latest registration request
+ * @property fingerprint [String] containing the fingerprint of the registered information, null if not registered
+ * @property marketingServer [String] containing the marketing server of the last successful registration, null if unknown
+ * @property integrationKey [String] containing the integration key of the last successful registration, null if unknown
+ * @property registeredTimestamp `long` containing the time in milliseconds of the last successful registration, 0 if unknown
+ * @property retryAfterTimestamp `long` containing the time in milliseconds after which a failed registration is retried,
+ * 0 if it is not retried
+ */
+internal data class RegistrationState(
+    val version: Long,
+    val generation: Long,
+    val sequence: Long,
+    val status: RegistrationStatus,
+    val fingerprint: String?,
+    val marketingServer: String? = null,
+    val integrationKey: String? = null,
+    val registeredTimestamp: Long = 0,
+    val retryAfterTimestamp: Long = 0
+) {
+
+    companion object {
+        private const val STATUS = "status"
+        private const val FINGERPRINT = "fingerprint"
+        private const val MARKETING_SERVER = "marketingServer"
+        private const val INTEGRATION_KEY = "integrationKey"
+        private const val REGISTERED_TIMESTAMP = "registeredTimestamp"
+        private const val RETRY_AFTER_TIMESTAMP = "retryAfterTimestamp"
+
+        /**
+         * Restores the [RegistrationState] from persistence.
+         * <p>
+         * The persisted token hash is authoritative, a persisted status which does not match it (e.g. written by a
+         * different version of the extension) is ignored and the status is derived from the token hash.
+         *
+         * @param tokenHash [String] containing the persisted registration fingerprint, null if not available
+         * @param data [String] containing the persisted registration status, null if not available
+         * @return restored [RegistrationState]
+         */
+        fun restore(tokenHash: String?, data: String?): RegistrationState {
+            val derivedState = RegistrationState(
+                0,
+                0,
+                0,
+                if (tokenHash == null) RegistrationStatus.NEVER_REGISTERED else RegistrationStatus.REGISTERED,
+                tokenHash
+            )
+            data ?: return derivedState
+
+            return try {
+                val json = JSONObject(data)
+                val fingerprint = json.optString(FINGERPRINT, "").ifEmpty { null }
+                if (fingerprint != tokenHash) {
+                    return derivedState
+                }
+                RegistrationState(
+                    0,
+                    0,
+                    0,
+                    RegistrationStatus.valueOf(json.getString(STATUS)),
+                    fingerprint,
+                    json.optString(MARKETING_SERVER, "").ifEmpty { null },
+                    json.optString(INTEGRATION_KEY, "").ifEmpty { null },
+                    json.optLong(REGISTERED_TIMESTAMP, 0),
+                    json.optLong(RETRY_AFTER_TIMESTAMP, 0)
+                )
+            } catch (e: JSONException) {
+                derivedState
+            } catch (e: IllegalArgumentException) {
+                derivedState
+            }
+        }
+    }
+
+    /**
+     * @return [RegistrationState] after the registration data has been cleared
+     */
+    fun cleared(): RegistrationState {
+        return RegistrationState(version + 1, generation + 1, sequence, RegistrationStatus.NEVER_REGISTERED, null)
+    }
+
+    /**
+     * @return [RegistrationState] after a registration request has been sent
+     */
+    fun pending(): RegistrationState {
+        return copy(version = version + 1, status = RegistrationStatus.PENDING, retryAfterTimestamp = 0)
+    }
+
+    /**
+     * @param request [RegistrationRequest] which succeeded
+     * @param requestSequence `long` containing the send sequence of the successful registration request
+     * @param timestamp `long` containing the time in milliseconds of the registration
+     * @return [RegistrationState] after a successful registration
+     */
+    fun registered(request: RegistrationRequest, requestSequence: Long, timestamp: Long): RegistrationState {
+        return RegistrationState(
+            version + 1,
+            generation,
+            requestSequence,
+            RegistrationStatus.REGISTERED,
+            request.fingerprint,
+            request.marketingServer,
+            request.integrationKey,
+            timestamp
+        )
+    }
+
+    /**
+     * @param retryAfter `long` containing the time in milliseconds after which the registration is retried,
+     * 0 if it is not retried
+     * @return [RegistrationState] after a failed registration
+     */
+    fun failed(retryAfter: Long): RegistrationState {
+        return copy(version = version + 1, status = RegistrationStatus.FAILED, retryAfterTimestamp = retryAfter)
+    }
+
+    /**
+     * @param migratedFingerprint [String] replacing a fingerprint persisted by a previous version of the extension
+     * @param configData current [CampaignClassicConfiguration], recorded if no configuration was recorded
+     * @return [RegistrationState] after the persisted fingerprint has been migrated
+     */
+    fun migrated(migratedFingerprint: String, configData: CampaignClassicConfiguration): RegistrationState {
+        return copy(
+            version = version + 1,
+            fingerprint = migratedFingerprint,
+            marketingServer = marketingServer ?: configData.marketingServer,
+            integrationKey = integrationKey ?: configData.integrationKey
+        )
+    }
+
+    /**
+     * Records the given configuration on a registration restored from a version of the extension which did not
+     * record it, assuming the registration was sent with the first configuration seen after the upgrade.
+     *
+     * @param configData current [CampaignClassicConfiguration]
+     * @return [RegistrationState] with the recorded configuration, null if there is no registration or its
+     * configuration is already recorded
+     */
+    fun withLegacyConfiguration(configData: CampaignClassicConfiguration): RegistrationState? {
+        if (fingerprint == null || (marketingServer != null && integrationKey != null)) {
+            return null
+        }
+        return copy(
+            version = version + 1,
+            marketingServer = marketingServer ?: configData.marketingServer,
+            integrationKey = integrationKey ?: configData.integrationKey
+        )
+    }
+
+    /**
+     * Checks if the last successful registration was sent with the given configuration.
+     *
+     * @param configData current [CampaignClassicConfiguration]
+     * @return true if the recorded marketing server and integration key match the [configData], false otherwise
+     */
+    fun isRegisteredWith(configData: CampaignClassicConfiguration): Boolean {
+        return marketingServer == configData.marketingServer && integrationKey == configData.integrationKey
+    }
+
+    /**
+     * @return [String] containing the persisted properties of this state serialized as JSON
+     */
+    fun serialize(): String {
+        val json = JSONObject()
+        json.put(STATUS, status.name)
+        json.put(FINGERPRINT, fingerprint ?: "")
+        json.put(MARKETING_SERVER, marketingServer ?: "")
+        json.put(INTEGRATION_KEY, integrationKey ?: "")
+        json.put(REGISTERED_TIMESTAMP, registeredTimestamp)
+        json.put(RETRY_AFTER_TIMESTAMP, retryAfterTimestamp)
+        return json.toString()
+    }
+}
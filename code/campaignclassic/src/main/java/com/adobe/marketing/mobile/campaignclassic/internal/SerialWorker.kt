@@ -0,0 +1,125 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.RejectedExecutionHandler
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs tasks one at a time, in submission order, on a dedicated daemon thread.
+ * <p>
+ * [execute] never blocks the submitting thread. At most [capacity] tasks wait in the queue: when the queue is
+ * full, the oldest waiting task is dropped to make room for the new one. Tasks wrapped with [essential], such as
+ * privacy and configuration changes or requests which must reach the network, are never dropped and do not count
+ * towards the capacity, so only work which can be lost safely should be left droppable. Dropped tasks are
+ * logged and counted in [droppedTaskCount]. Exceptions thrown by a task are logged and do not stop the worker.
+ *
+ * @param name [String] containing the name of the worker thread
+ * @param capacity maximum number of tasks waiting to be run, essential tasks excepted
+ */
+internal class SerialWorker(name: String, private val capacity: Int) : Executor {
+    private val executor = ThreadPoolExecutor(
+        1,
+        1,
+        0L,
+        TimeUnit.MILLISECONDS,
+        LinkedBlockingQueue(),
+        ThreadFactory { Thread(it, name).apply { isDaemon = true } },
+        RejectedExecutionHandler { _, _ ->
+            Log.debug(CampaignClassicConstants.LOG_TAG, SELF_TAG, "execute - Worker is shut down, dropping task.")
+        }
+    )
+    private val droppedTasks = AtomicInteger()
+
+    companion object {
+        private const val SELF_TAG = "SerialWorker"
+
+        /**
+         * Marks the given [task] as essential, so it is never dropped when the queue is full.
+         *
+         * @param task [Runnable] to be run
+         * @return [Runnable] running the [task]
+         */
+        fun essential(task: Runnable): Runnable {
+            return EssentialTask(task)
+        }
+    }
+
+    private class EssentialTask(val task: Runnable) : Runnable {
+        override fun run() {
+            task.run()
+        }
+    }
+
+    private inner class QueuedTask(val task: Runnable) : Runnable {
+        val isEssential = task is EssentialTask
+
+        override fun run() {
+            try {
+                task.run()
+            } catch (e: Exception) {
+                Log.warning(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "execute - Task failed with exception: ${e.localizedMessage}"
+                )
+            }
+        }
+    }
+
+    /**
+     * Number of tasks waiting to be run.
+     */
+    val queuedTaskCount: Int
+        get() = executor.queue.size
+
+    /**
+     * Number of tasks dropped because the queue was full.
+     */
+    val droppedTaskCount: Int
+        get() = droppedTasks.get()
+
+    /**
+     * Queues the [task] to be run on the worker thread, dropping the oldest waiting task if the queue is full.
+     *
+     * @param task [Runnable] to be run, see [essential]
+     */
+    @Synchronized
+    override fun execute(task: Runnable) {
+        val queuedTask = QueuedTask(task)
+        val queue = executor.queue
+        if (!queuedTask.isEssential && !executor.isShutdown && queue.count { !(it as QueuedTask).isEssential } >= capacity) {
+            val oldest = queue.firstOrNull { !(it as QueuedTask).isEssential }
+            if (oldest != null && queue.remove(oldest)) {
+                droppedTasks.incrementAndGet()
+                Log.warning(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "execute - Worker queue is full, dropping the oldest queued task."
+                )
+            }
+        }
+        executor.execute(queuedTask)
+    }
+
+    /**
+     * Stops accepting tasks, tasks already queued are still run.
+     */
+    fun shutdown() {
+        executor.shutdown()
+    }
+}
@@ -0,0 +1,125 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.Log
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Asks the [transport] set by the app to open connections to the Campaign Classic servers in the background when
+ * they are configured, so the first request does not pay for the connection setup.
+ * <p>
+ * Only a transport set with [com.adobe.marketing.mobile.CampaignClassic.setTransport] can keep a connection for later
+ * requests, see [CampaignClassicTransport.preconnect], so no warm-up is done with the default transport. A server is
+ * not preconnected again within [ttlMillis] of being preconnected, so configuration updates do not repeat the work.
+ * To bound the work done, servers are not preconnected while the device is offline, and no more than
+ * [CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS] preconnections are pending at once.
+ *
+ * @param executor [Executor] on which the [transport] is asked to preconnect, stopped by [shutdown] if it is a
+ * [SerialWorker]
+ * @param connectivitySource [ConnectivitySource] telling if the device is online
+ * @param transport [CampaignClassicTransport] set by the app
+ * @param ttlMillis time in milliseconds during which a preconnected server is not preconnected again
+ * @param elapsedTimeMillis returns a monotonic time in milliseconds
+ */
+internal class ServerWarmUp(
+    private val executor: Executor,
+    private val connectivitySource: ConnectivitySource,
+    private val transport: CampaignClassicTransport,
+    private val ttlMillis: Long,
+    private val elapsedTimeMillis: () -> Long = { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) }
+) {
+    private val preconnectedUntil = HashMap<String, Long>()
+    private val pending = HashSet<String>()
+    private val preconnects = AtomicInteger()
+    private val failedPreconnects = AtomicInteger()
+
+    companion object {
+        private const val SELF_TAG = "ServerWarmUp"
+    }
+
+    /**
+     * Number of connections requested from the transport ahead of the first request.
+     */
+    val preconnectCount: Int
+        get() = preconnects.get()
+
+    /**
+     * Number of connections requested from the transport which failed with an exception.
+     */
+    val failedPreconnectCount: Int
+        get() = failedPreconnects.get()
+
+    /**
+     * Preconnects to the given servers in the background, unless they were preconnected recently or are being
+     * preconnected.
+     *
+     * @param servers [List] of the configured servers, null entries are ignored
+     */
+    fun warmUp(servers: List<String?>) {
+        if (!connectivitySource.isConnected) {
+            Log.trace(CampaignClassicConstants.LOG_TAG, SELF_TAG, "warmUp - Device is offline, skipping warm up.")
+            return
+        }
+
+        for (server in servers) {
+            server ?: continue
+            val url = "https://$server"
+            val shouldPreconnect = synchronized(this) {
+                val expiry = preconnectedUntil[url]
+                when {
+                    expiry != null && elapsedTimeMillis() < expiry -> false
+                    url in pending || pending.size >= CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS -> false
+                    else -> pending.add(url)
+                }
+            }
+            if (shouldPreconnect) {
+                executor.execute { preconnect(url) }
+            }
+        }
+    }
+
+    /**
+     * Stops the warm-up thread, preconnections already queued are still requested.
+     */
+    fun shutdown() {
+        (executor as? SerialWorker)?.shutdown()
+    }
+
+    private fun preconnect(url: String) {
+        val succeeded = try {
+            transport.preconnect(url)
+            true
+        } catch (e: Exception) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "preconnect - Unable to preconnect to ($url): ${e.localizedMessage}"
+            )
+            false
+        }
+
+        synchronized(this) {
+            pending.remove(url)
+            if (succeeded) {
+                preconnectedUntil[url] = elapsedTimeMillis() + ttlMillis
+            }
+        }
+        if (succeeded) {
+            preconnects.incrementAndGet()
+        } else {
+            failedPreconnects.incrementAndGet()
+        }
+    }
+}
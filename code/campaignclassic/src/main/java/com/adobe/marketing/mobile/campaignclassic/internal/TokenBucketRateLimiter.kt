@@ -0,0 +1,93 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Lock-free token bucket limiting the rate of requests.
+ * <p>
+ * The bucket holds up to [burst] tokens and is refilled with [permitsPerMinute] tokens per minute, each request
+ * taking one token. Instead of counting tokens, the bucket stores the time at which it would be full again and
+ * updates it with a single compare-and-set, so concurrent callers never block each other.
+ *
+ * @param permitsPerMinute number of requests allowed per minute in the steady state, at least 1
+ * @param burst number of requests allowed at once when the bucket is full, at least 1
+ * @param elapsedTimeNanos returns a monotonic time in nanoseconds
+ */
+internal class TokenBucketRateLimiter(
+    permitsPerMinute: Int,
+    private val burst: Int,
+    private val elapsedTimeNanos: () -> Long = { System.nanoTime() }
+) {
+    @Volatile
+    private var intervalNanos = intervalNanos(permitsPerMinute)
+    private val fullTimeNanos = AtomicLong(elapsedTimeNanos())
+    private val requestsAllowed = AtomicLong()
+    private val requestsRejected = AtomicLong()
+
+    companion object {
+        private fun intervalNanos(permitsPerMinute: Int): Long {
+            return TimeUnit.MINUTES.toNanos(1) / permitsPerMinute.coerceAtLeast(1)
+        }
+    }
+
+    init {
+        require(burst > 0) { "burst must be positive" }
+    }
+
+    /**
+     * Number of requests allowed per minute in the steady state, at least 1.
+     */
+    @Volatile
+    var permitsPerMinute: Int = permitsPerMinute.coerceAtLeast(1)
+        set(value) {
+            field = value.coerceAtLeast(1)
+            intervalNanos = intervalNanos(field)
+        }
+
+    /**
+     * Number of requests allowed so far.
+     */
+    val allowedRequestCount: Long
+        get() = requestsAllowed.get()
+
+    /**
+     * Number of requests rejected so far because the rate was exceeded.
+     */
+    val rejectedRequestCount: Long
+        get() = requestsRejected.get()
+
+    /**
+     * Takes a token from the bucket if one is available.
+     *
+     * @return true if the request is allowed, false if it exceeds the rate and should be dropped
+     */
+    fun tryAcquire(): Boolean {
+        val interval = intervalNanos
+        val capacityNanos = interval * burst
+        while (true) {
+            val now = elapsedTimeNanos()
+            val current = fullTimeNanos.get()
+            // the bucket is full again at `current`, each token taken pushes that time by one interval
+            val next = (if (current - now < 0) now else current) + interval
+            if (next - now > capacityNanos) {
+                requestsRejected.incrementAndGet()
+                return false
+            }
+            if (fullTimeNanos.compareAndSet(current, next)) {
+                requestsAllowed.incrementAndGet()
+                return true
+            }
+        }
+    }
+}
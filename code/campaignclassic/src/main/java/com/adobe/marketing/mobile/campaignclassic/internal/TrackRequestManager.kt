@@ -14,52 +14,116 @@ import androidx.annotation.VisibleForTesting
 import com.adobe.marketing.mobile.Event
 import com.adobe.marketing.mobile.ExtensionApi
 import com.adobe.marketing.mobile.MobilePrivacyStatus
-import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.DataQueue
+import com.adobe.marketing.mobile.services.DeviceInforming
+import com.adobe.marketing.mobile.services.HitQueuing
 import com.adobe.marketing.mobile.services.Log
-import com.adobe.marketing.mobile.services.NetworkRequest
 import com.adobe.marketing.mobile.services.Networking
+import com.adobe.marketing.mobile.services.PersistentHitQueue
 import com.adobe.marketing.mobile.services.ServiceProvider
-import java.net.HttpURLConnection
-import java.util.regex.Pattern
+import java.util.Random
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
 
 /**
  * Handles logic related to notification tracking
- *
+ * <p>
+ * When `campaignclassic.receiveTrackingJitter` is configured, receive tracking requests are held in memory for a
+ * random delay within that window before being queued, which spreads the load on the tracking server when a
+ * campaign reaches many devices at once. Click tracking requests are never delayed. At most
+ * [CampaignClassicConstants.MAX_DELAYED_RECEIVE_TRACKING_HITS] requests are delayed at a time, see
+ * [flushDelayedHits] for sending them early.
+ * <p>
+ * When `campaignclassic.trackingFlushSize` is greater than 1, queued tracking hits are held in the tracking hit queue
+ * until that many hits are queued, or until `campaignclassic.trackingFlushInterval` has elapsed since the first of them
+ * was queued, and are then sent one after another. See [flushQueuedHits] for sending them early.
  */
 internal class TrackRequestManager {
-    private val UUID_PATTERN = Pattern.compile("^(?i)[0-9a-f]{8}-([0-9a-f]{4}-){3}[0-9a-f]{12}$")
     private val extensionApi: ExtensionApi
-    private val networkService: Networking?
+    private val hitProcessor: TrackingHitProcessor
+    private val hitQueue: HitQueuing?
+    private val scheduler: Lazy<ScheduledExecutorService>
+    private val random: Random
+    private val deviceId: Lazy<String>
+    private var trackingUrlTemplate: TrackingUrlTemplate? = null
+    private val delayedHitsLock = Any()
+    private val delayedHits = LinkedHashMap<Long, TrackingHit>()
+    private var nextDelayedHitId = 0L
+    private val flushLock = Any()
+    private var flushSize = CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_SIZE
+    private var flushIntervalMillis = TimeUnit.SECONDS.toMillis(CampaignClassicConstants.DEFAULT_TRACKING_FLUSH_INTERVAL_SECONDS)
+    private var scheduledFlush: ScheduledFuture<*>? = null
 
-    constructor(extensionApi: ExtensionApi) {
+    constructor(extensionApi: ExtensionApi, networkService: Networking?) {
         this.extensionApi = extensionApi
-        networkService = ServiceProvider.getInstance().networkService
+        hitProcessor = TrackingHitProcessor(networkService)
+        hitQueue = ServiceProvider.getInstance().dataQueueService
+            ?.createDataQueue(CampaignClassicConstants.TRACKING_HIT_QUEUE_NAME)
+            ?.let { PersistentHitQueue(it, hitProcessor) }
+        hitQueue?.beginProcessing()
+        scheduler = lazy { createScheduler() }
+        random = Random()
+        val deviceInfoService = ServiceProvider.getInstance().deviceInfoService
+        deviceId = lazy { deviceInfoService?.deviceUniqueId ?: "" }
     }
 
     @VisibleForTesting
-    constructor(extensionApi: ExtensionApi, networkService: Networking?) {
+    constructor(
+        extensionApi: ExtensionApi,
+        networkService: Networking?,
+        dataQueue: DataQueue?,
+        scheduler: ScheduledExecutorService? = null,
+        random: Random = Random(),
+        deviceInfoService: DeviceInforming? = null
+    ) {
         this.extensionApi = extensionApi
-        this.networkService = networkService
+        hitProcessor = TrackingHitProcessor(networkService)
+        hitQueue = dataQueue?.let { PersistentHitQueue(it, hitProcessor) }
+        hitQueue?.beginProcessing()
+        this.scheduler = if (scheduler != null) lazyOf(scheduler) else lazy { createScheduler() }
+        this.random = random
+        this.deviceId = lazy { deviceInfoService?.deviceUniqueId ?: "" }
     }
 
+    /**
+     * Number of receive tracking requests currently delayed.
+     */
+    val delayedHitCount: Int
+        get() = synchronized(delayedHitsLock) { delayedHits.size }
+
     companion object {
         private const val SELF_TAG = "TrackRequestManager"
+
+        private fun createScheduler(): ScheduledExecutorService {
+            return Executors.newSingleThreadScheduledExecutor(
+                ThreadFactory { Thread(it, CampaignClassicConstants.TRACKING_SCHEDULER_THREAD_NAME).apply { isDaemon = true } }
+            )
+        }
     }
 
     /**
      * Sends a track request to the configured Campaign Classic tracking server upon notification receive or click.
      * <p>
      * Track request is not sent under following conditions:
-     * - Configuration is not available
      * - Privacy status is [MobilePrivacyStatus.OPT_OUT] or [MobilePrivacyStatus.UNKNOWN]
      * - Tracking server is missing in configuration
      * - Tracking identifiers messageId `_mId` and deliveryId `_dId` are missing in current event data
+     * <p>
+     * Receive tracking requests are sampled if [CampaignClassicConfiguration.receiveTrackingSampleRate] is below 1,
+     * see [ReceiveTrackingSampler], and randomly delayed if [CampaignClassicConfiguration.receiveTrackingJitterSeconds]
+     * is set. Click tracking requests are sent right away, ahead of the receive tracking hits waiting in the tracking
+     * hit queue, and only queued to be retried if they fail. The flush thresholds of the tracking hit queue are updated
+     * from [CampaignClassicConfiguration.trackingFlushSize] and [CampaignClassicConfiguration.trackingFlushIntervalSeconds].
      *
      * @param event incoming track [Event]
      * @param tagId [String] indicating whether it is a notification receive or notification click request
+     * @param configData current [CampaignClassicConfiguration]
      */
-    fun handleTrackRequest(event: Event, tagId: String) {
-        val configData = CampaignClassicConfiguration(event, extensionApi)
+    fun handleTrackRequest(event: Event, tagId: String, configData: CampaignClassicConfiguration) {
 
         // bail if privacy status is not opted in
         if (configData.privacyStatus != MobilePrivacyStatus.OPT_IN) {
@@ -91,7 +155,20 @@ internal class TrackRequestManager {
             return
         }
 
-        var messageId = event.messageId ?: run {
+        // bail if this device does not report receive tracking for this delivery
+        if (tagId == CampaignClassicConstants.MESSAGE_RECEIVED_TAGID &&
+            !ReceiveTrackingSampler.isSampled(deliveryId, deviceId.value, configData.receiveTrackingSampleRate)
+        ) {
+            Log.trace(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "handleTrackRequest - Not sending TrackNotificationReceive request for delivery $deliveryId, " +
+                    "device is not sampled."
+            )
+            return
+        }
+
+        val messageId = event.messageId ?: run {
             Log.debug(
                 CampaignClassicConstants.LOG_TAG,
                 SELF_TAG,
@@ -101,99 +178,213 @@ internal class TrackRequestManager {
             return
         }
 
-        // V8 message Id is received in UUID format while V7 still comes as an integer(decimal) represented as a string.
-        // No transformation is required for the V8 UUID however for V7, message Id is parsed as an integer and converted to hex string.
-        if (!messageId.isValidUUID()) {
-            try {
-                messageId = java.lang.String.format("%x", messageId.toInt())
-            } catch (ex: NumberFormatException) {
-                Log.debug(
-                    CampaignClassicConstants.LOG_TAG,
-                    SELF_TAG,
-                    "handleTrackRequest - Failed to process TrackNotification request," +
-                        "messageId $messageId could not be parsed as a UUID or a decimal (integer)." +
-                        "Error ${ex.message}"
-                )
-                return
-            }
+        // create URL
+        val urlTemplate = trackingUrlTemplate?.takeIf { it.trackingServer == trackingServer }
+            ?: TrackingUrlTemplate(trackingServer).also { trackingUrlTemplate = it }
+        val trackUrl = urlTemplate.build(messageId, deliveryId, tagId) ?: run {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "handleTrackRequest - Failed to process TrackNotification request," +
+                    "messageId $messageId could not be parsed as a UUID or a decimal number."
+            )
+            return
         }
 
-        // create URL
-        val trackUrl = java.lang.String.format(
-            CampaignClassicConstants.TRACKING_API_URL_BASE,
-            trackingServer,
-            messageId,
-            deliveryId,
-            tagId
-        )
+        synchronized(flushLock) {
+            flushSize = configData.trackingFlushSize
+            flushIntervalMillis = TimeUnit.SECONDS.toMillis(configData.trackingFlushIntervalSeconds)
+        }
 
         // send network request
-        sendTrackingRequest(trackUrl, configData.timeout)
+        val hit = TrackingHit(trackUrl, configData.timeout)
+        if (tagId == CampaignClassicConstants.MESSAGE_CLICKED_TAGID) {
+            sendClickTrackingRequest(hit)
+        } else if (configData.receiveTrackingJitterSeconds > 0) {
+            delayTrackingRequest(hit, configData.receiveTrackingJitterSeconds)
+        } else {
+            sendTrackingRequest(hit)
+        }
+    }
+
+    /**
+     * Sends all the delayed receive tracking requests without waiting for their delay to elapse,
+     * e.g. when the app goes to the background.
+     */
+    fun flushDelayedHits() {
+        val hits = synchronized(delayedHitsLock) {
+            ArrayList(delayedHits.values).also { delayedHits.clear() }
+        }
+        if (hits.isEmpty()) {
+            return
+        }
+
+        Log.debug(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "flushDelayedHits - Sending ${hits.size} delayed receive tracking requests."
+        )
+        hits.forEach { sendTrackingRequest(it) }
+    }
+
+    /**
+     * Sends the tracking hits held in the tracking hit queue without waiting for the flush thresholds to be reached,
+     * e.g. when the app goes to the background.
+     */
+    fun flushQueuedHits() {
+        synchronized(flushLock) {
+            scheduledFlush?.cancel(false)
+            scheduledFlush = null
+            hitQueue?.beginProcessing()
+        }
+    }
+
+    /**
+     * Clears all tracking hits which are delayed or pending in the tracking hit queue.
+     */
+    fun clearQueuedHits() {
+        synchronized(delayedHitsLock) {
+            delayedHits.clear()
+        }
+        synchronized(flushLock) {
+            scheduledFlush?.cancel(false)
+            scheduledFlush = null
+        }
+        hitQueue?.clear()
+    }
+
+    /**
+     * Stops the scheduler delaying receive tracking requests and tracking hit queue flushes.
+     * <p>
+     * Should be called after [flushDelayedHits] and [flushQueuedHits], as delayed requests and flushes which are
+     * scheduled afterwards are carried out right away.
+     */
+    fun shutdown() {
+        if (scheduler.isInitialized()) {
+            scheduler.value.shutdown()
+        }
     }
 
     // ========================================================
     // private methods
     // ========================================================
     /**
-     * Sends a notification track request to the configured Campaign Classic tracking server as specified by the `trackUrl`.
+     * Holds a receive tracking request in memory for a random delay within [jitterSeconds] before sending it.
+     * <p>
+     * The request is sent immediately if [CampaignClassicConstants.MAX_DELAYED_RECEIVE_TRACKING_HITS] requests
+     * are already delayed, or if the scheduler has been shut down, see [shutdown].
      *
-     * @param trackUrl [String] containing the Campaign Classic tracking server url to connect to
-     * @param requestTimeout `int` containing the request timeout to use for the connection
+     * @param hit [TrackingHit] to be sent
+     * @param jitterSeconds window in seconds within which the delay is picked
      */
-    private fun sendTrackingRequest(trackUrl: String, requestTimeout: Int) {
-        if (networkService == null) {
-            Log.debug(
-                CampaignClassicConstants.LOG_TAG,
-                SELF_TAG,
-                "sendTrackingRequest - Cannot send request, Network service is not available"
-            )
-            return
+    private fun delayTrackingRequest(hit: TrackingHit, jitterSeconds: Int) {
+        val delayMillis = (random.nextDouble() * TimeUnit.SECONDS.toMillis(jitterSeconds.toLong())).toLong()
+        val reason = synchronized(delayedHitsLock) {
+            if (delayedHits.size >= CampaignClassicConstants.MAX_DELAYED_RECEIVE_TRACKING_HITS) {
+                "Too many delayed receive tracking requests"
+            } else {
+                val id = nextDelayedHitId++
+                try {
+                    scheduler.value.schedule(Runnable { sendDelayedTrackingRequest(id) }, delayMillis, TimeUnit.MILLISECONDS)
+                    delayedHits[id] = hit
+                    return
+                } catch (e: RejectedExecutionException) {
+                    "Tracking scheduler is shut down"
+                }
+            }
         }
 
-        val networkRequest = NetworkRequest(
-            trackUrl,
-            HttpMethod.GET,
-            null,
-            null,
-            requestTimeout,
-            requestTimeout
-        )
-
-        // send tracking request
-        Log.trace(
+        Log.debug(
             CampaignClassicConstants.LOG_TAG,
             SELF_TAG,
-            "sendTrackingRequest - TrackingNotification network call initiated with URL :  $trackUrl."
+            "delayTrackingRequest - $reason, sending request with URL ${hit.url} now."
         )
-        networkService.connectAsync(networkRequest) {
-            if (it != null) {
-                if (it.responseCode == HttpURLConnection.HTTP_OK) {
-                    Log.trace(
-                        CampaignClassicConstants.LOG_TAG,
-                        SELF_TAG,
-                        "sendTrackingRequest - Connection successful ${it.responseMessage}."
-                    )
-                } else {
-                    Log.warning(
-                        CampaignClassicConstants.LOG_TAG,
-                        SELF_TAG,
-                        "sendTrackingRequest - Connection failed ${it.responseMessage}."
-                    )
-                }
+        sendTrackingRequest(hit)
+    }
 
-                // close the connection
-                it.close()
+    /**
+     * Sends a click tracking request without waiting for the hits pending in the tracking hit queue, as the user
+     * is waiting for the app to open.
+     * <p>
+     * The hit is queued to be retried if it fails with a recoverable error.
+     *
+     * @param hit [TrackingHit] to be sent
+     */
+    private fun sendClickTrackingRequest(hit: TrackingHit) {
+        if (hitQueue == null) {
+            hitProcessor.sendHit(hit) {}
+            return
+        }
+
+        hitProcessor.sendHit(hit) { processed ->
+            if (!processed) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "sendClickTrackingRequest - Queueing tracking hit with URL ${hit.url} to be retried."
+                )
+                sendTrackingRequest(hit)
             }
         }
     }
 
+    private fun sendDelayedTrackingRequest(id: Long) {
+        // the request may have been flushed or cleared already
+        val hit = synchronized(delayedHitsLock) { delayedHits.remove(id) } ?: return
+        sendTrackingRequest(hit)
+    }
+
     /**
-     * Match the [String] against a compiled UUID pattern
-     * &#39;^(?i)[0-9a-f]{8}-([0-9a-f]{4}-){3}[0-9a-f]{12}$&#39;.
+     * Queues a notification track request for the Campaign Classic tracking server as specified by the [hit] url.
+     * <p>
+     * If the tracking hit queue is not available the request is sent immediately. Otherwise the queue is processed
+     * once the flush size is reached, or when the flush interval elapses, see [flushQueuedHits].
      *
-     * @return true if string matches UUID format, false otherwise
+     * @param hit [TrackingHit] to be sent
      */
-    private fun String.isValidUUID(): Boolean {
-        return UUID_PATTERN.matcher(this).matches()
+    private fun sendTrackingRequest(hit: TrackingHit) {
+        val trackUrl = hit.url
+        if (hitQueue == null) {
+            hitProcessor.sendHit(hit) {}
+            return
+        }
+
+        if (hitQueue.count() >= CampaignClassicConstants.TRACKING_HIT_QUEUE_MAX_SIZE) {
+            Log.warning(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "sendTrackingRequest - Dropping tracking hit with URL $trackUrl, tracking hit queue is full."
+            )
+            return
+        }
+
+        synchronized(flushLock) {
+            // once the queue is drained, hits are held until a flush threshold is reached
+            if (flushSize > 1 && hitQueue.count() == 0) {
+                hitQueue.suspend()
+            }
+            if (!hitQueue.queue(hit.toDataEntity())) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "sendTrackingRequest - Failed to queue tracking hit with URL $trackUrl."
+                )
+            }
+
+            if (flushSize <= 1 || hitQueue.count() >= flushSize) {
+                flushQueuedHits()
+            } else if (scheduledFlush == null) {
+                try {
+                    scheduledFlush = scheduler.value.schedule(
+                        Runnable { flushQueuedHits() },
+                        flushIntervalMillis,
+                        TimeUnit.MILLISECONDS
+                    )
+                } catch (e: RejectedExecutionException) {
+                    // the scheduler is shut down, do not hold the hits
+                    flushQueuedHits()
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,55 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DataEntity
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * A notification tracking request persisted in the tracking hit queue.
+ *
+ * @property url [String] containing the Campaign Classic tracking url to connect to
+ * @property timeout `int` containing the request timeout to use for the connection
+ */
+internal data class TrackingHit(val url: String, val timeout: Int) {
+
+    companion object {
+        private const val URL = "url"
+        private const val TIMEOUT = "timeout"
+
+        /**
+         * Creates a [TrackingHit] from the given [DataEntity].
+         *
+         * @param entity [DataEntity] read from the tracking hit queue
+         * @return [TrackingHit] if the entity data is a valid serialized hit, null otherwise
+         */
+        fun from(entity: DataEntity): TrackingHit? {
+            val data = entity.data ?: return null
+            return try {
+                val json = JSONObject(data)
+                TrackingHit(json.getString(URL), json.getInt(TIMEOUT))
+            } catch (e: JSONException) {
+                null
+            }
+        }
+    }
+
+    /**
+     * @return [DataEntity] containing this hit serialized as JSON
+     */
+    fun toDataEntity(): DataEntity {
+        val json = JSONObject()
+        json.put(URL, url)
+        json.put(TIMEOUT, timeout)
+        return DataEntity(json.toString())
+    }
+}
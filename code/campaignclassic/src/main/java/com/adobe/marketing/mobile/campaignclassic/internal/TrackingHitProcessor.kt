@@ -0,0 +1,140 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DataEntity
+import com.adobe.marketing.mobile.services.HitProcessing
+import com.adobe.marketing.mobile.services.HitProcessingResult
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.net.HttpURLConnection
+import java.util.concurrent.TimeUnit
+
+/**
+ * Processes [TrackingHit]s queued in the Campaign Classic tracking hit queue.
+ * <p>
+ * Hits which fail with a recoverable error (no connection, timeout or service unavailable) are kept
+ * in the queue and retried after [CampaignClassicConstants.TRACKING_HIT_RETRY_INTERVAL_SECONDS].
+ * Hits older than [CampaignClassicConstants.TRACKING_HIT_MAX_AGE_SECONDS] are dropped.
+ * <p>
+ * The response of the tracking server, a redirect or a pixel, is never used and redirects are not treated as
+ * failures. Its body is read and discarded by the transport before the connection is closed, see
+ * [NetworkingTransport].
+ */
+internal class TrackingHitProcessor(
+    private val networkService: Networking?,
+    private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) : HitProcessing {
+    companion object {
+        private const val SELF_TAG = "TrackingHitProcessor"
+        private val RECOVERABLE_RESPONSE_CODES = setOf(
+            HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+            HttpURLConnection.HTTP_UNAVAILABLE,
+            HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+        )
+        private const val HTTP_SUCCESS_CODES_START = 200
+        private const val HTTP_REDIRECT_CODES_END = 399
+    }
+
+    override fun retryInterval(entity: DataEntity): Int {
+        return CampaignClassicConstants.TRACKING_HIT_RETRY_INTERVAL_SECONDS
+    }
+
+    override fun processHit(entity: DataEntity, processingResult: HitProcessingResult) {
+        val hit = TrackingHit.from(entity) ?: run {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "processHit - Dropping tracking hit, unable to read hit data (${entity.data})."
+            )
+            processingResult.complete(true)
+            return
+        }
+
+        val hitAge = currentTimeMillis() - entity.timestamp.time
+        if (hitAge > TimeUnit.SECONDS.toMillis(CampaignClassicConstants.TRACKING_HIT_MAX_AGE_SECONDS)) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "processHit - Dropping tracking hit with URL ${hit.url}, hit has expired."
+            )
+            processingResult.complete(true)
+            return
+        }
+
+        sendHit(hit) { processingResult.complete(it) }
+    }
+
+    /**
+     * Sends a notification track request to the configured Campaign Classic tracking server as specified by the [hit] url.
+     *
+     * @param hit [TrackingHit] to be sent
+     * @param callback invoked with false if the hit should be retried, true otherwise
+     */
+    fun sendHit(hit: TrackingHit, callback: (Boolean) -> Unit) {
+        if (networkService == null) {
+            Log.debug(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "sendHit - Cannot send request, Network service is not available"
+            )
+            callback(true)
+            return
+        }
+
+        val networkRequest = NetworkRequest(
+            hit.url,
+            HttpMethod.GET,
+            null,
+            null,
+            hit.timeout,
+            hit.timeout
+        )
+
+        // send tracking request
+        Log.trace(
+            CampaignClassicConstants.LOG_TAG,
+            SELF_TAG,
+            "sendHit - TrackingNotification network call initiated with URL :  ${hit.url}."
+        )
+        networkService.connectAsync(networkRequest) {
+            if (it == null) {
+                Log.debug(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "sendHit - Connection failed, will retry the tracking hit."
+                )
+                callback(false)
+                return@connectAsync
+            }
+
+            val responseCode = it.responseCode
+            if (responseCode in HTTP_SUCCESS_CODES_START..HTTP_REDIRECT_CODES_END) {
+                Log.trace(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "sendHit - Connection successful ${it.responseMessage}."
+                )
+            } else {
+                Log.warning(
+                    CampaignClassicConstants.LOG_TAG,
+                    SELF_TAG,
+                    "sendHit - Connection failed ${it.responseMessage}."
+                )
+            }
+
+            it.close()
+            callback(!RECOVERABLE_RESPONSE_CODES.contains(responseCode))
+        }
+    }
+}
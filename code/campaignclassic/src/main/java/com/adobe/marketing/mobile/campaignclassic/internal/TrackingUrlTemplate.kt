@@ -0,0 +1,137 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+/**
+ * Builds notification tracking urls for a single Campaign Classic tracking server.
+ * <p>
+ * The url prefix is formatted once per tracking server and every url is written into the same buffer,
+ * so this class is not thread safe and must only be used from the thread processing track requests.
+ *
+ * @property trackingServer [String] containing the Campaign Classic tracking server
+ */
+internal class TrackingUrlTemplate(val trackingServer: String) {
+    private val urlPrefix = String.format(CampaignClassicConstants.TRACKING_API_URL_PREFIX, trackingServer)
+    private val buffer = StringBuilder(urlPrefix.length + URL_SUFFIX_CAPACITY)
+
+    companion object {
+        private const val URL_SUFFIX_CAPACITY = 64
+        private const val UUID_LENGTH = 36
+        private val HEX_DIGITS = "0123456789abcdef".toCharArray()
+    }
+
+    /**
+     * Creates the tracking url for the given tracking identifiers.
+     * <p>
+     * V8 message Id is received in UUID format while V7 still comes as an integer(decimal) represented as a string.
+     * No transformation is required for the V8 UUID however for V7, message Id is converted to a hex string.
+     *
+     * @param messageId [String] containing the V8 UUID or V7 decimal message id `_mId`
+     * @param deliveryId [String] containing the delivery id `_dId`
+     * @param tagId [String] indicating whether it is a notification receive or notification click request
+     * @return tracking url [String], or null if [messageId] is neither a UUID nor a decimal number
+     */
+    fun build(messageId: String, deliveryId: String, tagId: String): String? {
+        buffer.setLength(0)
+        buffer.append(urlPrefix)
+        if (isValidUUID(messageId)) {
+            buffer.append(messageId)
+        } else if (!appendDecimalAsHex(messageId)) {
+            return null
+        }
+        buffer.append(',').append(deliveryId).append(',').append(tagId)
+        return buffer.toString()
+    }
+
+    /**
+     * Matches the [String] against the UUID format `^(?i)[0-9a-f]{8}-([0-9a-f]{4}-){3}[0-9a-f]{12}$`.
+     *
+     * @return true if string matches UUID format, false otherwise
+     */
+    private fun isValidUUID(value: String): Boolean {
+        if (value.length != UUID_LENGTH) {
+            return false
+        }
+        for (i in 0 until UUID_LENGTH) {
+            val c = value[i]
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false
+                }
+            } else if (!isHexDigit(c)) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private fun isHexDigit(c: Char): Boolean {
+        return c in '0'..'9' || c in 'a'..'f' || c in 'A'..'F'
+    }
+
+    /**
+     * Parses the [String] as a decimal number and appends its lowercase hex representation to the buffer.
+     * <p>
+     * Negative values are written as their 32-bit two's complement, matching the format of V7 message ids.
+     * Positive values up to [Long.MAX_VALUE] are supported.
+     *
+     * @return true if the value was a valid decimal number, false otherwise
+     */
+    private fun appendDecimalAsHex(value: String): Boolean {
+        val length = value.length
+        if (length == 0) {
+            return false
+        }
+
+        var index = 0
+        val negative = value[0] == '-'
+        if (negative || value[0] == '+') {
+            index++
+            if (length == 1) {
+                return false
+            }
+        }
+
+        var number = 0L
+        while (index < length) {
+            val c = value[index++]
+            if (c !in '0'..'9') {
+                return false
+            }
+            val digit = c - '0'
+            if (number > (Long.MAX_VALUE - digit) / 10) {
+                return false
+            }
+            number = number * 10 + digit
+        }
+
+        if (negative) {
+            if (number > -Int.MIN_VALUE.toLong()) {
+                return false
+            }
+            number = -number and 0xFFFFFFFFL
+        }
+
+        appendHex(number)
+        return true
+    }
+
+    private fun appendHex(value: Long) {
+        var shift = 60
+        while (shift > 0 && (value ushr shift) and 0xF == 0L) {
+            shift -= 4
+        }
+        while (shift >= 0) {
+            buffer.append(HEX_DIGITS[((value ushr shift) and 0xF).toInt()])
+            shift -= 4
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.io.InputStream
+
+/**
+ * [Networking] sending requests with a [CampaignClassicTransport], so the request handling built on [Networking]
+ * works with any transport.
+ * <p>
+ * Headers built as a [HeaderArrayMap] are passed to the transport as is, other headers are copied to an array.
+ * Responses are completed with a connection only exposing the response code, as the transport has already
+ * discarded the response body, and failures with a null connection. GET requests, which are tracking requests,
+ * do not follow redirects as the tracking server answers with a redirect which is never used.
+ *
+ * @param transport [CampaignClassicTransport] used to send the requests
+ */
+internal class TransportNetworking(private val transport: CampaignClassicTransport) : Networking {
+
+    companion object {
+        private val NO_HEADERS = arrayOf<String>()
+    }
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val headers = when (val requestHeaders = request.headers) {
+            null -> NO_HEADERS
+            is HeaderArrayMap -> requestHeaders.namesAndValues
+            else -> toArray(requestHeaders)
+        }
+        val isPost = request.method == HttpMethod.POST
+        val transportRequest = CampaignClassicTransport.Request(
+            request.url,
+            if (isPost) CampaignClassicTransport.Method.POST else CampaignClassicTransport.Method.GET,
+            request.body,
+            headers,
+            request.connectTimeout,
+            request.readTimeout,
+            isPost
+        )
+
+        transport.send(
+            transportRequest,
+            object : CampaignClassicTransport.Callback {
+                override fun onResponse(statusCode: Int) {
+                    callback.call(TransportResponse(statusCode))
+                }
+
+                override fun onFailure() {
+                    callback.call(null)
+                }
+            }
+        )
+    }
+
+    private fun toArray(headers: Map<String, String>): Array<String> {
+        val array = arrayOfNulls<String>(headers.size * 2)
+        var i = 0
+        for ((name, value) in headers) {
+            array[i++] = name
+            array[i++] = value
+        }
+        @Suppress("UNCHECKED_CAST")
+        return array as Array<String>
+    }
+
+    /**
+     * [HttpConnecting] exposing the response code reported by the transport.
+     */
+    private class TransportResponse(private val statusCode: Int) : HttpConnecting {
+        override fun getInputStream(): InputStream? = null
+        override fun getErrorStream(): InputStream? = null
+        override fun getResponseCode(): Int = statusCode
+        override fun getResponseMessage(): String = "HTTP $statusCode"
+        override fun getResponsePropertyValue(key: String?): String? = null
+        override fun close() {}
+    }
+}
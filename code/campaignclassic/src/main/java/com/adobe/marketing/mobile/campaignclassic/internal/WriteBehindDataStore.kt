@@ -0,0 +1,122 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.Log
+import com.adobe.marketing.mobile.services.NamedCollection
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+
+/**
+ * In-memory cache of the string values of a [NamedCollection], with write-behind persistence.
+ * <p>
+ * Each key is read from the [NamedCollection] at most once, subsequent reads are served from memory.
+ * Writes update the memory immediately and are persisted asynchronously on the given [executor]. Writes made
+ * before the executor runs are coalesced, only the latest value of each key is persisted. The executor must run
+ * tasks sequentially so writes are persisted in the order they were made.
+ *
+ * @param namedCollection [NamedCollection] backing this cache
+ * @param executor [Executor] used to persist the writes
+ */
+internal class WriteBehindDataStore(
+    private val namedCollection: NamedCollection,
+    private val executor: Executor
+) {
+    private val lock = Any()
+    private val values = HashMap<String, String?>()
+    private val pendingWrites = LinkedHashMap<String, String?>()
+    private var flushScheduled = false
+
+    companion object {
+        private const val SELF_TAG = "WriteBehindDataStore"
+    }
+
+    /**
+     * @param key [String] containing the key to read
+     * @param defaultValue [String] returned if no value is stored for the [key]
+     * @return [String] stored for the [key], [defaultValue] otherwise
+     */
+    fun getString(key: String, defaultValue: String?): String? {
+        synchronized(lock) {
+            if (values.containsKey(key)) {
+                return values[key] ?: defaultValue
+            }
+        }
+
+        val persistedValue = namedCollection.getString(key, null)
+        synchronized(lock) {
+            // a write made while reading the persisted value takes precedence
+            if (!values.containsKey(key)) {
+                values[key] = persistedValue
+            }
+            return values[key] ?: defaultValue
+        }
+    }
+
+    /**
+     * Stores the [value] for the [key].
+     *
+     * @param key [String] containing the key to write
+     * @param value [String] to be stored
+     */
+    fun setString(key: String, value: String) {
+        write(key, value)
+    }
+
+    /**
+     * Removes the value stored for the [key].
+     *
+     * @param key [String] containing the key to remove
+     */
+    fun remove(key: String) {
+        write(key, null)
+    }
+
+    private fun write(key: String, value: String?) {
+        synchronized(lock) {
+            values[key] = value
+            pendingWrites[key] = value
+            if (flushScheduled) {
+                return
+            }
+            flushScheduled = true
+        }
+
+        try {
+            executor.execute { flush() }
+        } catch (e: RejectedExecutionException) {
+            Log.warning(
+                CampaignClassicConstants.LOG_TAG,
+                SELF_TAG,
+                "write - Unable to schedule the data store write, writing synchronously."
+            )
+            flush()
+        }
+    }
+
+    /**
+     * Persists the pending writes on the calling thread.
+     */
+    fun flush() {
+        val writes = synchronized(lock) {
+            flushScheduled = false
+            LinkedHashMap(pendingWrites).also { pendingWrites.clear() }
+        }
+
+        for ((key, value) in writes) {
+            if (value != null) {
+                namedCollection.setString(key, value)
+            } else {
+                namedCollection.remove(key)
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@
 package com.adobe.marketing.mobile;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.adobe.marketing.mobile.campaignclassic.internal.CampaignClassicExtension;
 import com.adobe.marketing.mobile.services.Log;
 import com.adobe.marketing.mobile.util.StringUtils;
@@ -36,6 +37,8 @@ public class CampaignClassic {
     private static final String NULL_TRACK_INFO_MESSAGE =
             "The provided trackInfo map is null or empty";
 
+    private static volatile CampaignClassicTransport transport;
+
     private CampaignClassic() {}
 
     /**
@@ -68,6 +71,30 @@ public class CampaignClassic {
         return EXTENSION_VERSION;
     }
 
+    /**
+     * Sets the transport used to send the registration and tracking requests.
+     *
+     * <p>This method should be called before the extension is registered, the transport set when
+     * the extension is registered is used for the lifetime of the extension. By default, requests
+     * are sent with the network service of the Mobile Core.
+     *
+     * @param transport {@link CampaignClassicTransport} sending the requests, null to use the
+     *     default transport
+     */
+    public static void setTransport(@Nullable final CampaignClassicTransport transport) {
+        CampaignClassic.transport = transport;
+    }
+
+    /**
+     * Returns the transport set with {@link #setTransport(CampaignClassicTransport)}.
+     *
+     * @return {@link CampaignClassicTransport} sending the requests, null if the default transport
+     *     is used
+     */
+    @Nullable public static CampaignClassicTransport getTransport() {
+        return transport;
+    }
+
     /**
      * Registers a device with the configured Adobe Campaign Classic server instance.
      *
@@ -0,0 +1,195 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Sends the HTTP requests of the Campaign Classic extension.
+ *
+ * <p>By default, requests are sent with the network service of the Mobile Core. An app may provide
+ * its own transport, for example backed by a pooled, HTTP/2 capable client, with {@link
+ * CampaignClassic#setTransport(CampaignClassicTransport)} before the extension is registered.
+ *
+ * <p>A transport must:
+ *
+ * <ul>
+ *   <li>send the request body and headers as is, the body is already encoded,
+ *   <li>not follow redirects when {@link Request#isFollowRedirects()} is false, if the client
+ *       allows it,
+ *   <li>read or discard the response body and release the connection before completing,
+ *   <li>report every HTTP response, including error responses, with {@link
+ *       Callback#onResponse(int)} and any failure to get a response, including timeouts, with
+ *       {@link Callback#onFailure()},
+ *   <li>call the {@link Callback} exactly once, from any thread, without blocking the caller of
+ *       {@link #send(Request, Callback)}.
+ * </ul>
+ */
+public interface CampaignClassicTransport {
+
+    /**
+     * Sends the given {@code request} asynchronously.
+     *
+     * @param request {@link Request} to be sent
+     * @param callback {@link Callback} to be called once the request completes
+     */
+    void send(@NonNull Request request, @NonNull Callback callback);
+
+    /**
+     * Opens a connection to the server of the given {@code url} ahead of the first request, when
+     * preconnecting is enabled with the {@code campaignclassic.preconnect} configuration key.
+     *
+     * <p>This is a hint, transports which cannot keep the connection for later requests should
+     * ignore it. It is called on a background thread of the extension and may block while
+     * connecting. The default implementation does nothing.
+     *
+     * @param url {@code String} containing the base url of the server, e.g. {@code
+     *     https://tracking.example.com}
+     */
+    default void preconnect(@NonNull String url) {}
+
+    /** Receives the outcome of a request sent with a {@link CampaignClassicTransport}. */
+    interface Callback {
+
+        /**
+         * Called when a response is received.
+         *
+         * @param statusCode HTTP status code of the response
+         */
+        void onResponse(int statusCode);
+
+        /** Called when no response could be received, e.g. on connection failures or timeouts. */
+        void onFailure();
+    }
+
+    /** Method of a {@link Request}. */
+    enum Method {
+        GET,
+        POST
+    }
+
+    /** HTTP request sent by the Campaign Classic extension. */
+    final class Request {
+        private final String url;
+        private final Method method;
+        private final byte[] body;
+        private final String[] headers;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final boolean followRedirects;
+
+        /**
+         * @param url {@code String} containing the request url
+         * @param method {@link Method} of the request
+         * @param body {@code byte[]} containing the encoded request body, null if there is none
+         * @param headers {@code String[]} containing the header names and values, alternately
+         * @param connectTimeout connection timeout in seconds
+         * @param readTimeout read timeout in seconds
+         * @param followRedirects false if redirect responses should be reported as is
+         */
+        public Request(
+                @NonNull final String url,
+                @NonNull final Method method,
+                @Nullable final byte[] body,
+                @NonNull final String[] headers,
+                final int connectTimeout,
+                final int readTimeout,
+                final boolean followRedirects) {
+            if (headers.length % 2 != 0) {
+                throw new IllegalArgumentException("Headers must be name and value pairs");
+            }
+            this.url = url;
+            this.method = method;
+            this.body = body;
+            this.headers = headers;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.followRedirects = followRedirects;
+        }
+
+        /**
+         * @return {@code String} containing the request url
+         */
+        @NonNull public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return {@link Method} of the request
+         */
+        @NonNull public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the encoded request body. The array is shared and must not be modified.
+         *
+         * @return {@code byte[]} containing the encoded request body, null if there is none
+         */
+        @Nullable public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Returns the request headers. The array is shared and must not be modified.
+         *
+         * @return {@code String[]} containing the header names and values, alternately
+         */
+        @NonNull public String[] getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return number of request headers
+         */
+        public int getHeaderCount() {
+            return headers.length / 2;
+        }
+
+        /**
+         * @param index index of the header, from 0 to {@link #getHeaderCount()} excluded
+         * @return {@code String} containing the name of the header
+         */
+        @NonNull public String getHeaderName(final int index) {
+            return headers[index * 2];
+        }
+
+        /**
+         * @param index index of the header, from 0 to {@link #getHeaderCount()} excluded
+         * @return {@code String} containing the value of the header
+         */
+        @NonNull public String getHeaderValue(final int index) {
+            return headers[index * 2 + 1];
+        }
+
+        /**
+         * @return connection timeout in seconds
+         */
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * @return read timeout in seconds
+         */
+        public int getReadTimeout() {
+            return readTimeout;
+        }
+
+        /**
+         * @return false if redirect responses should be reported as is instead of being followed
+         */
+        public boolean isFollowRedirects() {
+            return followRedirects;
+        }
+    }
+}
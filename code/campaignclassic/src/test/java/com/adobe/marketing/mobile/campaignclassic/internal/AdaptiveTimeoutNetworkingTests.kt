@@ -0,0 +1,215 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import org.junit.Assert
+import org.junit.Test
+import java.net.HttpURLConnection
+import java.util.Random
+
+class AdaptiveTimeoutNetworkingTests {
+
+    private var currentTime = 0L
+    private val server = SimulatedServer()
+    private val networking = AdaptiveTimeoutNetworking(server, 2000) { currentTime }
+    private val responses = ArrayList<Int?>()
+
+    /**
+     * Completes requests after the latency returned by [latencyMillis], advancing the simulated clock.
+     * Requests whose latency exceeds their read timeout complete with a null connection once the timeout elapsed.
+     */
+    private inner class SimulatedServer : Networking {
+        var latencyMillis: () -> Long = { 100 }
+        val requests = ArrayList<NetworkRequest>()
+
+        override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+            requests.add(request)
+            val latency = latencyMillis()
+            val timeoutMillis = request.readTimeout * 1000L
+            if (latency > timeoutMillis) {
+                currentTime += timeoutMillis
+                callback.call(null)
+            } else {
+                currentTime += latency
+                callback.call(FakeNetworking.FakeConnection(HttpURLConnection.HTTP_OK))
+            }
+        }
+    }
+
+    // =================================================================================================================
+    // fun connectAsync(request: NetworkRequest, callback: NetworkCallback)
+    // =================================================================================================================
+
+    @Test
+    fun connectAsync_WithoutSamples_ThenUsesConfiguredTimeout() {
+        // setup
+        val request = request("https://host/1")
+
+        // test
+        networking.connectAsync(request) { responses.add(it?.responseCode) }
+
+        // verify
+        Assert.assertSame(request, server.requests[0])
+        Assert.assertEquals(listOf<Int?>(HttpURLConnection.HTTP_OK), responses)
+    }
+
+    @Test
+    fun connectAsync_WhenServerIsFast_ThenUsesMinimumTimeout() {
+        // test
+        repeat(10) { send("https://host/$it") }
+
+        // verify
+        Assert.assertEquals(2, server.requests.last().connectTimeout)
+        Assert.assertEquals(2, server.requests.last().readTimeout)
+        Assert.assertEquals(2000, networking.timeoutMillis("host", 30000))
+    }
+
+    @Test
+    fun connectAsync_EstimatesArePerHost() {
+        // setup
+        repeat(10) { send("https://host1/$it") }
+
+        // test
+        send("https://host2/1")
+
+        // verify
+        Assert.assertEquals(30, server.requests.last().readTimeout)
+    }
+
+    @Test
+    fun connectAsync_TimeoutCoversLatencyDeviation() {
+        // setup
+        var slow = false
+        server.latencyMillis = {
+            slow = !slow
+            if (slow) 3000 else 1000
+        }
+
+        // test
+        repeat(20) { send("https://host/$it") }
+
+        // verify, no request was cut off
+        Assert.assertTrue(responses.all { it == HttpURLConnection.HTTP_OK })
+        val timeoutMillis = networking.timeoutMillis("host", 30000)
+        Assert.assertTrue("timeout $timeoutMillis", timeoutMillis in 3001..10000)
+    }
+
+    @Test
+    fun connectAsync_NeverExceedsConfiguredTimeout() {
+        // setup
+        server.latencyMillis = { 9000 }
+
+        // test
+        repeat(5) { send("https://host/$it", timeout = 10) }
+
+        // verify
+        Assert.assertTrue(server.requests.all { it.readTimeout <= 10 && it.connectTimeout <= 10 })
+        Assert.assertEquals(10000, networking.timeoutMillis("host", 10000))
+    }
+
+    @Test
+    fun connectAsync_WhenTimedOut_ThenBacksOff() {
+        // setup
+        repeat(10) { send("https://host/$it") }
+        server.latencyMillis = { 5000 }
+
+        // test
+        send("https://host/timeout")
+
+        // verify timeout doubled, the next request succeeds
+        Assert.assertEquals(2, server.requests.last().readTimeout)
+        Assert.assertNull(responses.last())
+        Assert.assertEquals(4000, networking.timeoutMillis("host", 30000))
+
+        // test
+        send("https://host/timeout2")
+        send("https://host/success")
+
+        // verify
+        Assert.assertEquals(8, server.requests.last().readTimeout)
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, responses.last())
+    }
+
+    @Test
+    fun connectAsync_WhenConnectionFailsFast_ThenDoesNotBackOff() {
+        // setup
+        repeat(10) { send("https://host/$it") }
+        val failingNetworking = AdaptiveTimeoutNetworking(FakeNetworking(null), 2000) { currentTime }
+        repeat(10) { failingNetworking.connectAsync(request("https://host/$it")) { } }
+
+        // verify
+        Assert.assertEquals(30000, failingNetworking.timeoutMillis("host", 30000))
+        Assert.assertEquals(2000, networking.timeoutMillis("host", 30000))
+    }
+
+    // =================================================================================================================
+    // simulation
+    // =================================================================================================================
+
+    @Test
+    fun simulation_MobileNetworkLatency() {
+        // setup, mostly fast responses with a tail of slow responses
+        val random = Random(42)
+        val latencies = ArrayList<Long>()
+        server.latencyMillis = {
+            val latency = if (random.nextDouble() < 0.05) {
+                2000L + random.nextInt(4000)
+            } else {
+                Math.max(50L, (300 + random.nextGaussian() * 100).toLong())
+            }
+            latencies.add(latency)
+            latency
+        }
+
+        // test
+        repeat(1000) { send("https://host/$it") }
+
+        // verify slow but successful responses are rarely cut off
+        val cutOff = responses.count { it == null }
+        Assert.assertTrue("cut off $cutOff requests", cutOff < 25)
+        Assert.assertEquals(0, responses.indices.count { responses[it] == null && latencies[it] < 2000 })
+
+        // verify waiting time on a dead server is well below the configured timeout
+        server.latencyMillis = { Long.MAX_VALUE }
+        val start = currentTime
+        send("https://host/dead")
+        Assert.assertTrue("waited ${currentTime - start} ms", currentTime - start <= 10000)
+    }
+
+    @Test
+    fun simulation_DeadServerBacksOffToConfiguredTimeout() {
+        // setup
+        repeat(10) { send("https://host/$it") }
+        server.latencyMillis = { Long.MAX_VALUE }
+
+        // test
+        repeat(6) { send("https://host/dead$it") }
+
+        // verify
+        Assert.assertEquals(listOf(2, 4, 8, 16, 30, 30), server.requests.takeLast(6).map { it.readTimeout })
+    }
+
+    private fun send(url: String, timeout: Int = 30) {
+        networking.connectAsync(request(url, timeout)) { connection: HttpConnecting? ->
+            responses.add(connection?.responseCode)
+            connection?.close()
+        }
+    }
+
+    private fun request(url: String, timeout: Int = 30): NetworkRequest {
+        return NetworkRequest(url, HttpMethod.GET, null, null, timeout, timeout)
+    }
+}
@@ -10,6 +10,7 @@
 */
 package com.adobe.marketing.mobile.campaignclassic.internal
 
+import com.adobe.marketing.mobile.CampaignClassicTransport
 import com.adobe.marketing.mobile.Event
 import com.adobe.marketing.mobile.EventSource
 import com.adobe.marketing.mobile.EventType
@@ -26,6 +27,9 @@ import org.mockito.ArgumentMatchers
 import org.mockito.Captor
 import org.mockito.Mockito
 import org.mockito.junit.MockitoJUnitRunner
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 
 @RunWith(MockitoJUnitRunner.Silent::class)
 class CampaignClassicExtensionTests {
@@ -84,6 +88,66 @@ class CampaignClassicExtensionTests {
         Assert.assertFalse(campaignClassicExtension.readyForEvent(getCampaignRequestEvent()))
     }
 
+    @Captor
+    private lateinit var configurationCaptor: ArgumentCaptor<CampaignClassicConfiguration>
+
+    @Test
+    fun readyForEvent_ConfigurationChanged_RefreshesConfiguration() {
+        // setup
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_IN)
+        val optInEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(optInEvent)
+        campaignClassicExtension.handleCampaignRequestEvent(optInEvent)
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
+        val optOutEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(optOutEvent)
+
+        // test
+        campaignClassicExtension.handleCampaignRequestEvent(optOutEvent)
+
+        // verify
+        Mockito.verify(trackRequestManager, Mockito.times(2)).handleTrackRequest(any(), any(), capture(configurationCaptor))
+        Assert.assertEquals(MobilePrivacyStatus.OPT_IN, configurationCaptor.allValues[0].privacyStatus)
+        Assert.assertEquals(MobilePrivacyStatus.OPT_OUT, configurationCaptor.allValues[1].privacyStatus)
+    }
+
+    @Test
+    fun readyForEvent_ConfigurationUnchanged_ReusesConfiguration() {
+        // setup
+        setConfigurationSharedState()
+        val firstEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(firstEvent)
+        campaignClassicExtension.handleCampaignRequestEvent(firstEvent)
+        val secondEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(secondEvent)
+
+        // test
+        campaignClassicExtension.handleCampaignRequestEvent(secondEvent)
+
+        // verify
+        Mockito.verify(trackRequestManager, Mockito.times(2)).handleTrackRequest(any(), any(), capture(configurationCaptor))
+        Assert.assertSame(configurationCaptor.allValues[0], configurationCaptor.allValues[1])
+    }
+
+    @Test
+    fun readyForEvent_ConfigurationSetAgainWithSameValues_ReusesConfiguration() {
+        // setup
+        setConfigurationSharedState()
+        val firstEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(firstEvent)
+        campaignClassicExtension.handleCampaignRequestEvent(firstEvent)
+        setConfigurationSharedState()
+        val secondEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(secondEvent)
+
+        // test
+        campaignClassicExtension.handleCampaignRequestEvent(secondEvent)
+
+        // verify
+        Mockito.verify(trackRequestManager, Mockito.times(2)).handleTrackRequest(any(), any(), capture(configurationCaptor))
+        Assert.assertSame(configurationCaptor.allValues[0], configurationCaptor.allValues[1])
+    }
+
     // =================================================================================================================
     // fun handleConfigurationRequestEvent(event: Event)
     // =================================================================================================================
@@ -94,10 +158,13 @@ class CampaignClassicExtensionTests {
         setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
 
         // test
-        campaignClassicExtension.handleConfigurationResponseEvent(getConfigurationRequestEvent())
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
 
         // verify
         Mockito.verify(registrationManager, Mockito.times(1)).clearRegistrationData()
+        Mockito.verify(trackRequestManager, Mockito.times(1)).clearQueuedHits()
     }
 
     @Test
@@ -106,10 +173,284 @@ class CampaignClassicExtensionTests {
         setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_IN)
 
         // test
-        campaignClassicExtension.handleConfigurationResponseEvent(getConfigurationRequestEvent())
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).resumeRegistrationRetry(any())
+        Mockito.verifyNoMoreInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_PrivacyUnknown() {
+        // setup
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.UNKNOWN)
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
 
         // verify
         Mockito.verifyNoInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_UnchangedConfiguration() {
+        // setup
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // test, new shared state version with the same values
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).clearRegistrationData()
+        Mockito.verify(trackRequestManager, Mockito.times(1)).clearQueuedHits()
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_PrivacyStaysOptOut() {
+        // setup
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // test
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT, marketingServer = "newMarketingServer")
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).clearRegistrationData()
+        Mockito.verify(trackRequestManager, Mockito.times(1)).clearQueuedHits()
+        Mockito.verifyNoMoreInteractions(registrationManager)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_MarketingServerChanged() {
+        // setup
+        setConfigurationSharedState()
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // test
+        setConfigurationSharedState(marketingServer = "newMarketingServer")
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).resumeRegistrationRetry(any())
+        Mockito.verify(registrationManager, Mockito.times(1)).handleRegistrationConfigurationChange(
+            capture(configurationCaptor)
+        )
+        Assert.assertEquals("newMarketingServer", configurationCaptor.value.marketingServer)
+        Mockito.verifyNoMoreInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_IntegrationKeyChanged() {
+        // setup
+        setConfigurationSharedState()
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // test
+        setConfigurationSharedState(integrationKey = "newIntegrationKey")
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).handleRegistrationConfigurationChange(any())
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_TimeoutChanged() {
+        // setup
+        setConfigurationSharedState()
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // test
+        setConfigurationSharedState(timeout = 10)
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).resumeRegistrationRetry(any())
+        Mockito.verifyNoMoreInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_UpdatesRequestLimit() {
+        // setup
+        val requestLimiter = HostConcurrencyLimiter(FakeNetworking(), 4, 10)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            requestLimiter = requestLimiter
+        )
+        setConfigurationSharedState(maxConcurrentRequests = 2)
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Assert.assertEquals(2, requestLimiter.maxInFlightPerHost)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_UpdatesCircuitBreaker() {
+        // setup
+        val circuitBreaker = HostCircuitBreaker(FakeNetworking(), 5, 30000)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            circuitBreaker = circuitBreaker
+        )
+        setConfigurationSharedState(circuitBreakerFailureThreshold = 2, circuitBreakerCoolDown = 10)
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Assert.assertEquals(2, circuitBreaker.failureThreshold)
+        Assert.assertEquals(10000, circuitBreaker.coolDownMillis)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_UpdatesRateLimits() {
+        // setup
+        val registrationRateLimiter = TokenBucketRateLimiter(10, 5)
+        val trackingRateLimiter = TokenBucketRateLimiter(120, 60)
+        val clickRateLimiter = TokenBucketRateLimiter(120, 60)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            registrationRateLimiter = registrationRateLimiter,
+            trackingRateLimiter = trackingRateLimiter,
+            clickRateLimiter = clickRateLimiter
+        )
+        setConfigurationSharedState(registrationRequestsPerMinute = 2, trackingRequestsPerMinute = 30)
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Assert.assertEquals(2, registrationRateLimiter.permitsPerMinute)
+        Assert.assertEquals(30, trackingRateLimiter.permitsPerMinute)
+        Assert.assertEquals(30, clickRateLimiter.permitsPerMinute)
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_OptInWithPreconnect_WarmsUpServers() {
+        // setup
+        val transport = Mockito.mock(CampaignClassicTransport::class.java)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            serverWarmUp = ServerWarmUp(Executor { it.run() }, DeviceConnectivitySource(null), transport, 60000)
+        )
+        setConfigurationSharedState(marketingServer = "marketing.example.com", trackingServer = "tracking.example.com", preconnect = true)
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verify(transport).preconnect("https://tracking.example.com")
+        Mockito.verify(transport).preconnect("https://marketing.example.com")
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_NotOptedIn_DoesNotWarmUpServers() {
+        for (privacyStatus in listOf(MobilePrivacyStatus.OPT_OUT, MobilePrivacyStatus.UNKNOWN)) {
+            // setup
+            val transport = Mockito.mock(CampaignClassicTransport::class.java)
+            campaignClassicExtension = CampaignClassicExtension(
+                extensionApi,
+                registrationManager,
+                trackRequestManager,
+                serverWarmUp = ServerWarmUp(Executor { it.run() }, DeviceConnectivitySource(null), transport, 60000)
+            )
+            setConfigurationSharedState(privacyStatus = privacyStatus, preconnect = true)
+
+            // test
+            val configurationEvent = getConfigurationRequestEvent()
+            campaignClassicExtension.readyForEvent(configurationEvent)
+            campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+            // verify
+            Mockito.verifyNoInteractions(transport)
+        }
+    }
+
+    @Test
+    fun handleConfigurationResponseEvent_PreconnectDisabled_DoesNotWarmUpServers() {
+        // setup
+        val transport = Mockito.mock(CampaignClassicTransport::class.java)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            serverWarmUp = ServerWarmUp(Executor { it.run() }, DeviceConnectivitySource(null), transport, 60000)
+        )
+        setConfigurationSharedState(marketingServer = "marketing.example.com", trackingServer = "tracking.example.com")
+
+        // test
+        val configurationEvent = getConfigurationRequestEvent()
+        campaignClassicExtension.readyForEvent(configurationEvent)
+        campaignClassicExtension.handleConfigurationResponseEvent(configurationEvent)
+
+        // verify
+        Mockito.verifyNoInteractions(transport)
+    }
+
+    // =================================================================================================================
+    // fun handleLifecycleRequestEvent(event: Event)
+    // =================================================================================================================
+
+    @Test
+    fun handleLifecycleRequestEvent_Pause_FlushesDelayedHits() {
+        // test
+        campaignClassicExtension.handleLifecycleRequestEvent(getLifecycleRequestEvent("pause"))
+
+        // verify
+        Mockito.verify(trackRequestManager, Mockito.times(1)).flushDelayedHits()
+        Mockito.verify(trackRequestManager, Mockito.times(1)).flushQueuedHits()
+    }
+
+    @Test
+    fun handleLifecycleRequestEvent_Start_DoesNothing() {
+        // test
+        campaignClassicExtension.handleLifecycleRequestEvent(getLifecycleRequestEvent("start"))
+
+        // verify
+        Mockito.verifyNoInteractions(trackRequestManager)
     }
 
     // =================================================================================================================
@@ -120,11 +461,116 @@ class CampaignClassicExtensionTests {
         // setup
         setConfigurationSharedState()
 
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test
+        campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+
+        // verify
+        Mockito.verify(registrationManager, Mockito.times(1)).registerDevice(any(), any())
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_ProcessedOnWorker() {
+        // setup
+        val tasks = ArrayList<Runnable>()
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            Executor { tasks.add(it) }
+        )
+        setConfigurationSharedState()
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        val trackClickEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
         // test
-        campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(registerDevice = true))
+        campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+        campaignClassicExtension.handleCampaignRequestEvent(trackClickEvent)
+
+        // verify nothing is processed on the calling thread
+        Assert.assertEquals(2, tasks.size)
+        Mockito.verifyNoInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+
+        // test
+        tasks.forEach { it.run() }
 
         // verify
-        Mockito.verify(registrationManager, Mockito.times(1)).registerDevice(any())
+        Mockito.verify(registrationManager, Mockito.times(1)).registerDevice(any(), any())
+        Mockito.verify(trackRequestManager, Mockito.times(1)).handleTrackRequest(any(), capture(tagIdCaptor), any())
+        Assert.assertEquals(CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID, tagIdCaptor.value)
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_DoesNotWaitForSlowRegistration() {
+        // setup
+        val worker = SerialWorker("testWorker", 100)
+        campaignClassicExtension = CampaignClassicExtension(extensionApi, registrationManager, trackRequestManager, worker)
+        val release = CountDownLatch(1)
+        val processed = CountDownLatch(51)
+        Mockito.doAnswer {
+            release.await()
+            processed.countDown()
+        }.`when`(registrationManager).registerDevice(any(), any())
+        Mockito.doAnswer {
+            processed.countDown()
+        }.`when`(trackRequestManager).handleTrackRequest(any(), any(), any())
+        setConfigurationSharedState()
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test, flood of tracking requests queued behind a blocked registration
+        val start = System.nanoTime()
+        campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+        repeat(50) {
+            campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(trackReceive = true))
+        }
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        // verify
+        Assert.assertTrue("listener blocked for $elapsedMillis ms", elapsedMillis < 1000)
+        release.countDown()
+        Assert.assertTrue(processed.await(5, TimeUnit.SECONDS))
+        worker.shutdown()
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_BurstLargerThanWorkerQueue_DoesNotDropTrackingRequests() {
+        // setup
+        val worker = SerialWorker("testWorker", 100)
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            worker,
+            trackingRateLimiter = TokenBucketRateLimiter(1000, 1000) { 0L }
+        )
+        val release = CountDownLatch(1)
+        val tracked = CountDownLatch(150)
+        Mockito.doAnswer {
+            release.await()
+        }.`when`(registrationManager).registerDevice(any(), any())
+        Mockito.doAnswer {
+            tracked.countDown()
+        }.`when`(trackRequestManager).handleTrackRequest(any(), any(), any())
+        setConfigurationSharedState()
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test, burst of tracking requests queued behind a blocked registration
+        campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+        repeat(150) {
+            campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(trackReceive = true))
+        }
+        release.countDown()
+
+        // verify
+        Assert.assertTrue(tracked.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals(0, worker.droppedTaskCount)
+        worker.shutdown()
     }
 
     @Captor
@@ -135,12 +581,13 @@ class CampaignClassicExtensionTests {
         // setup
         setConfigurationSharedState()
         val trackReceiveEvent = getCampaignRequestEvent(trackReceive = true)
+        campaignClassicExtension.readyForEvent(trackReceiveEvent)
 
         // test
         campaignClassicExtension.handleCampaignRequestEvent(trackReceiveEvent)
 
         // verify
-        Mockito.verify(trackRequestManager, Mockito.times(1)).handleTrackRequest(any(), capture(tagIdCaptor))
+        Mockito.verify(trackRequestManager, Mockito.times(1)).handleTrackRequest(any(), capture(tagIdCaptor), any())
         Assert.assertEquals("1", tagIdCaptor.value)
     }
 
@@ -149,15 +596,173 @@ class CampaignClassicExtensionTests {
         // setup
         setConfigurationSharedState()
         val trackReceiveEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(trackReceiveEvent)
 
         // test
         campaignClassicExtension.handleCampaignRequestEvent(trackReceiveEvent)
 
         // verify
-        Mockito.verify(trackRequestManager, Mockito.times(1)).handleTrackRequest(any(), capture(tagIdCaptor))
+        Mockito.verify(trackRequestManager, Mockito.times(1)).handleTrackRequest(any(), capture(tagIdCaptor), any())
         Assert.assertEquals("2", tagIdCaptor.value)
     }
 
+    @Test
+    fun handleCampaignRequestEvent_RegisterEvents_LeavesRateLimitToRegistrationManager() {
+        // setup
+        val registrationRateLimiter = TokenBucketRateLimiter(10, 2) { 0L }
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            registrationRateLimiter = registrationRateLimiter
+        )
+        setConfigurationSharedState()
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test
+        repeat(5) {
+            campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+        }
+
+        // verify, identical registrations are only known to be no-ops once handled by the registration manager
+        Mockito.verify(registrationManager, Mockito.times(5)).registerDevice(any(), any())
+        Assert.assertEquals(0, registrationRateLimiter.rejectedRequestCount)
+        Assert.assertTrue(registrationRateLimiter.tryAcquire())
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_TrackingRateExceeded_DropsRequests() {
+        // setup
+        val trackingRateLimiter = TokenBucketRateLimiter(120, 3) { 0L }
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            trackingRateLimiter = trackingRateLimiter
+        )
+        setConfigurationSharedState()
+        val trackReceiveEvent = getCampaignRequestEvent(trackReceive = true)
+        campaignClassicExtension.readyForEvent(trackReceiveEvent)
+
+        // test
+        repeat(5) {
+            campaignClassicExtension.handleCampaignRequestEvent(trackReceiveEvent)
+        }
+        campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(registerDevice = true))
+
+        // verify, registration requests have their own budget
+        Mockito.verify(trackRequestManager, Mockito.times(3)).handleTrackRequest(any(), any(), any())
+        Mockito.verify(registrationManager, Mockito.times(1)).registerDevice(any(), any())
+        Assert.assertEquals(2, trackingRateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_ReceiveTrackingRateExceeded_DoesNotDropClickRequests() {
+        // setup
+        val trackingRateLimiter = TokenBucketRateLimiter(120, 2) { 0L }
+        val clickRateLimiter = TokenBucketRateLimiter(120, 2) { 0L }
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            trackingRateLimiter = trackingRateLimiter,
+            clickRateLimiter = clickRateLimiter
+        )
+        setConfigurationSharedState()
+        val trackReceiveEvent = getCampaignRequestEvent(trackReceive = true)
+        val trackClickEvent = getCampaignRequestEvent(trackClick = true)
+        campaignClassicExtension.readyForEvent(trackReceiveEvent)
+
+        // test
+        repeat(5) {
+            campaignClassicExtension.handleCampaignRequestEvent(trackReceiveEvent)
+        }
+        campaignClassicExtension.handleCampaignRequestEvent(trackClickEvent)
+
+        // verify
+        Mockito.verify(trackRequestManager, Mockito.times(3)).handleTrackRequest(any(), capture(tagIdCaptor), any())
+        Assert.assertEquals(
+            listOf(
+                CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+                CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+                CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            ),
+            tagIdCaptor.allValues
+        )
+        Assert.assertEquals(3, trackingRateLimiter.rejectedRequestCount)
+        Assert.assertEquals(0, clickRateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_PrivacyNotOptedIn_DoesNotUseRateLimit() {
+        // setup
+        val registrationRateLimiter = TokenBucketRateLimiter(10, 1) { 0L }
+        val trackingRateLimiter = TokenBucketRateLimiter(120, 1) { 0L }
+        val clickRateLimiter = TokenBucketRateLimiter(120, 1) { 0L }
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            registrationRateLimiter = registrationRateLimiter,
+            trackingRateLimiter = trackingRateLimiter,
+            clickRateLimiter = clickRateLimiter
+        )
+        setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.UNKNOWN)
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true)
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test
+        repeat(3) {
+            campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+            campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(trackReceive = true))
+            campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(trackClick = true))
+        }
+
+        // verify, requests are left to the managers to drop and no permit is taken
+        Mockito.verify(registrationManager, Mockito.times(3)).registerDevice(any(), any())
+        Mockito.verify(trackRequestManager, Mockito.times(6)).handleTrackRequest(any(), any(), any())
+        Assert.assertEquals(0, registrationRateLimiter.rejectedRequestCount)
+        Assert.assertEquals(0, trackingRateLimiter.rejectedRequestCount)
+        Assert.assertEquals(0, clickRateLimiter.rejectedRequestCount)
+        Assert.assertTrue(registrationRateLimiter.tryAcquire())
+        Assert.assertTrue(trackingRateLimiter.tryAcquire())
+        Assert.assertTrue(clickRateLimiter.tryAcquire())
+    }
+
+    @Test
+    fun handleCampaignRequestEvent_MissingRequestData_DoesNotUseRateLimit() {
+        // setup
+        val registrationRateLimiter = TokenBucketRateLimiter(10, 1) { 0L }
+        val trackingRateLimiter = TokenBucketRateLimiter(120, 1) { 0L }
+        campaignClassicExtension = CampaignClassicExtension(
+            extensionApi,
+            registrationManager,
+            trackRequestManager,
+            registrationRateLimiter = registrationRateLimiter,
+            trackingRateLimiter = trackingRateLimiter
+        )
+        setConfigurationSharedState()
+        val registerDeviceEvent = getCampaignRequestEvent(registerDevice = true, deviceToken = "")
+        val trackReceiveEvent = getCampaignRequestEvent(
+            trackReceive = true,
+            trackInfo = mapOf(CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_INFO_KEY_MESSAGE_ID to "20")
+        )
+        campaignClassicExtension.readyForEvent(registerDeviceEvent)
+
+        // test
+        repeat(3) {
+            campaignClassicExtension.handleCampaignRequestEvent(registerDeviceEvent)
+            campaignClassicExtension.handleCampaignRequestEvent(trackReceiveEvent)
+        }
+
+        // verify
+        Assert.assertEquals(0, registrationRateLimiter.rejectedRequestCount)
+        Assert.assertEquals(0, trackingRateLimiter.rejectedRequestCount)
+        Assert.assertTrue(registrationRateLimiter.tryAcquire())
+        Assert.assertTrue(trackingRateLimiter.tryAcquire())
+    }
+
     @Test
     fun handleCampaignRequestEvent_NullEventData() {
         // setup
@@ -189,12 +794,32 @@ class CampaignClassicExtensionTests {
         Mockito.verifyNoInteractions(trackRequestManager)
     }
 
+    @Test
+    fun handleCampaignRequestEvent_ConfigurationNotAvailable() {
+        // test
+        campaignClassicExtension.handleCampaignRequestEvent(getCampaignRequestEvent(registerDevice = true))
+
+        // verify
+        Mockito.verifyNoInteractions(registrationManager)
+        Mockito.verifyNoInteractions(trackRequestManager)
+    }
+
     // =================================================================================================================
     // private methods
     // =================================================================================================================
 
     private fun setConfigurationSharedState(
-        privacyStatus: MobilePrivacyStatus = MobilePrivacyStatus.OPT_IN
+        privacyStatus: MobilePrivacyStatus = MobilePrivacyStatus.OPT_IN,
+        marketingServer: String = "marketingServer",
+        integrationKey: String = "integrationKey",
+        timeout: Int = CampaignClassicTestConstants.DEFAULT_TIMEOUT,
+        maxConcurrentRequests: Int = 4,
+        circuitBreakerFailureThreshold: Int = 5,
+        circuitBreakerCoolDown: Int = 30,
+        registrationRequestsPerMinute: Int = 10,
+        trackingRequestsPerMinute: Int = 120,
+        trackingServer: String = "trackingServer",
+        preconnect: Boolean = false
     ) {
         Mockito.`when`(
             extensionApi.getSharedState(
@@ -207,7 +832,20 @@ class CampaignClassicExtensionTests {
             SharedStateResult(
                 SharedStateStatus.SET,
                 mapOf(
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER to marketingServer,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY to integrationKey,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT to timeout,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MAX_CONCURRENT_REQUESTS to maxConcurrentRequests,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_CIRCUIT_BREAKER_FAILURE_THRESHOLD to
+                        circuitBreakerFailureThreshold,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_CIRCUIT_BREAKER_COOL_DOWN to circuitBreakerCoolDown,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_REGISTRATION_REQUESTS_PER_MINUTE to
+                        registrationRequestsPerMinute,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_REQUESTS_PER_MINUTE to
+                        trackingRequestsPerMinute,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER to trackingServer,
+                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_PRECONNECT to preconnect
                 )
             )
         )
@@ -216,19 +854,32 @@ class CampaignClassicExtensionTests {
     private fun getCampaignRequestEvent(
         registerDevice: Boolean = false,
         trackReceive: Boolean = false,
-        trackClick: Boolean = false
+        trackClick: Boolean = false,
+        deviceToken: String = "deviceToken",
+        trackInfo: Map<String, String> = mapOf(
+            CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_INFO_KEY_MESSAGE_ID to "20",
+            CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_INFO_KEY_DELIVERY_ID to "a0"
+        )
     ): Event {
         return Event.Builder("Campaign Request", EventType.CAMPAIGN, EventSource.REQUEST_CONTENT)
             .setEventData(
                 mapOf(
                     CampaignClassicTestConstants.EventDataKeys.CampaignClassic.REGISTER_DEVICE to registerDevice,
                     CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_RECEIVE to trackReceive,
-                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_CLICK to trackClick
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_CLICK to trackClick,
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.DEVICE_TOKEN to deviceToken,
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.TRACK_INFO to trackInfo
                 )
             )
             .build()
     }
 
+    private fun getLifecycleRequestEvent(action: String): Event {
+        return Event.Builder("Lifecycle Request", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT)
+            .setEventData(mapOf("action" to action))
+            .build()
+    }
+
     private fun getConfigurationRequestEvent(): Event {
         return Event.Builder("Configuration Request", EventType.CONFIGURATION, EventSource.REQUEST_CONTENT)
             .build()
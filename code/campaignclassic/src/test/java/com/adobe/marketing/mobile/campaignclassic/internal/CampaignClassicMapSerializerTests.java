@@ -144,4 +144,114 @@ public class CampaignClassicMapSerializerTests {
                 "<additionalParameters><param name=\"\" value=\"\"/></additionalParameters>",
                 result);
     }
+
+    @Test
+    public void serializeMap_when_UnicodeInMap() {
+        // setup
+        final Map<String, Object> additionalParams =
+                new HashMap<String, Object>() {
+                    {
+                        put("cl\u00e9", "\u65e5\u672c\u8a9e \ud83d\ude00 <\u00e7a> & \u00fc");
+                    }
+                };
+
+        // test
+        final String result = CampaignClassicMapSerializer.serializeMap(additionalParams);
+
+        // verify
+        Assert.assertEquals(
+                "<additionalParameters><param name=\"cl\u00e9\" value=\"\u65e5\u672c\u8a9e"
+                        + " \ud83d\ude00 &lt;\u00e7a&gt; &amp; \u00fc\"/></additionalParameters>",
+                result);
+    }
+
+    @Test
+    public void serializeMap_when_SymbolsToEscapeInKey() {
+        // setup
+        final Map<String, Object> additionalParams =
+                new HashMap<String, Object>() {
+                    {
+                        put("<k\"e'y>", 1);
+                    }
+                };
+
+        // test
+        final String result = CampaignClassicMapSerializer.serializeMap(additionalParams);
+
+        // verify
+        Assert.assertEquals(
+                "<additionalParameters><param name=\"&lt;k&quot;e&#39;y&gt;\""
+                        + " value=\"1\"/></additionalParameters>",
+                result);
+    }
+
+    @Test
+    public void serializeMap_when_AppendingToStringBuilder() {
+        // setup
+        final Map<String, Object> additionalParams =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                    }
+                };
+        final StringBuilder sb = new StringBuilder("prefix=");
+
+        // test
+        CampaignClassicMapSerializer.serializeMap(additionalParams, sb);
+
+        // verify
+        Assert.assertEquals(
+                "prefix=<additionalParameters><param name=\"key\""
+                        + " value=\"value\"/></additionalParameters>",
+                sb.toString());
+    }
+
+    @Test
+    public void serializeMap_when_LargeMap_matchesStringConcatenation() {
+        // setup
+        final Map<String, Object> additionalParams = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            additionalParams.put("string" + i, "v<" + i + ">&\"'\r\n\u00e9");
+            additionalParams.put("int" + i, i);
+            additionalParams.put("long" + i, Long.MAX_VALUE - i);
+            additionalParams.put("float" + i, i / 3F);
+            additionalParams.put("double" + i, i / 7D);
+            additionalParams.put("bool" + i, i % 2 == 0);
+            additionalParams.put("char" + i, (char) ('a' + i % 26));
+            additionalParams.put("byte" + i, (byte) i);
+            additionalParams.put("short" + i, (short) i);
+        }
+
+        // test
+        final String result = CampaignClassicMapSerializer.serializeMap(additionalParams);
+
+        // verify
+        final StringBuilder expected = new StringBuilder("<additionalParameters>");
+        for (Map.Entry<String, Object> entry : additionalParams.entrySet()) {
+            final Object value = entry.getValue();
+            final String valueString;
+            if (value instanceof Byte) {
+                valueString = String.valueOf(Integer.valueOf((Byte) value));
+            } else if (value instanceof Character) {
+                valueString = String.valueOf(Integer.valueOf((Character) value));
+            } else {
+                valueString = String.valueOf(value);
+            }
+            expected.append("<param name=\"")
+                    .append(entry.getKey())
+                    .append("\" value=\"")
+                    .append(
+                            valueString
+                                    .replace("&", "&amp;")
+                                    .replace("<", "&lt;")
+                                    .replace(">", "&gt;")
+                                    .replace("\"", "&quot;")
+                                    .replace("'", "&#39;")
+                                    .replace("\r", "")
+                                    .replace("\n", ""))
+                    .append("\"/>");
+        }
+        expected.append("</additionalParameters>");
+        Assert.assertEquals(expected.toString(), result);
+    }
 }
@@ -21,6 +21,7 @@ final class CampaignClassicTestConstants {
     static final String TRACKING_API_URL_BASE = "%s/r/?id=h%x,%s,%s";
     static final String REGISTER_PARAM_DEVICE_OS_NAME = "android";
     static final int DEFAULT_TIMEOUT = 30;
+    static final int REGISTRATION_RETRY_MAX_ATTEMPTS = 10;
     static final String REGISTER_PARAMS_FORMAT =
             "registrationToken=%s&mobileAppUuid=%s&userKey=%s&deviceImei=%s&deviceName=%s&deviceModel=%s&deviceBrand=%s&deviceManufacturer=%s&osName=%s&osVersion=%s&osLanguage=%s&additionalParams=";
 
@@ -34,6 +35,8 @@ final class CampaignClassicTestConstants {
     */
     static class DataStoreKeys {
         static final String TOKEN_HASH = "ADOBEMOBILE_STOREDDEFAULTS_TOKENHASH";
+        static final String REGISTER_STATUS = "ADOBEMOBILE_STOREDDEFAULTS_REGISTERSTATUS";
+        static final String REGISTRATION_RETRY = "ADOBEMOBILE_STOREDDEFAULTS_REGISTRATIONRETRY";
 
         private DataStoreKeys() {}
     }
@@ -53,6 +56,26 @@ final class CampaignClassicTestConstants {
             static final String CAMPAIGNCLASSIC_APP_INTEGRATION_KEY =
                     "campaignclassic.android.integrationKey";
             static final String CAMPAIGNCLASSIC_TIMEOUT = "campaignclassic.timeout";
+            static final String CAMPAIGNCLASSIC_REGISTRATION_DEBOUNCE_SECONDS =
+                    "campaignclassic.registrationDebounceSeconds";
+            static final String CAMPAIGNCLASSIC_MAX_CONCURRENT_REQUESTS =
+                    "campaignclassic.maxConcurrentRequests";
+            static final String CAMPAIGNCLASSIC_CIRCUIT_BREAKER_FAILURE_THRESHOLD =
+                    "campaignclassic.circuitBreakerFailureThreshold";
+            static final String CAMPAIGNCLASSIC_CIRCUIT_BREAKER_COOL_DOWN =
+                    "campaignclassic.circuitBreakerCoolDown";
+            static final String CAMPAIGNCLASSIC_RECEIVE_TRACKING_JITTER =
+                    "campaignclassic.receiveTrackingJitter";
+            static final String CAMPAIGNCLASSIC_RECEIVE_TRACKING_SAMPLE_RATE =
+                    "campaignclassic.receiveTrackingSampleRate";
+            static final String CAMPAIGNCLASSIC_REGISTRATION_REQUESTS_PER_MINUTE =
+                    "campaignclassic.registrationRequestsPerMinute";
+            static final String CAMPAIGNCLASSIC_TRACKING_REQUESTS_PER_MINUTE =
+                    "campaignclassic.trackingRequestsPerMinute";
+            static final String CAMPAIGNCLASSIC_PRECONNECT = "campaignclassic.preconnect";
+            static final String CAMPAIGNCLASSIC_TRACKING_FLUSH_SIZE = "campaignclassic.trackingFlushSize";
+            static final String CAMPAIGNCLASSIC_TRACKING_FLUSH_INTERVAL =
+                    "campaignclassic.trackingFlushInterval";
 
             private Configuration() {}
         }
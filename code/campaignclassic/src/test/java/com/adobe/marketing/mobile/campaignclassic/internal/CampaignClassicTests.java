@@ -11,6 +11,7 @@
 package com.adobe.marketing.mobile.campaignclassic.internal;
 
 import com.adobe.marketing.mobile.CampaignClassic;
+import com.adobe.marketing.mobile.CampaignClassicTransport;
 import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.ExtensionError;
 import com.adobe.marketing.mobile.ExtensionErrorCallback;
@@ -41,6 +42,24 @@ public class CampaignClassicTests {
                 extensionVersion);
     }
 
+    @Test
+    public void test_setTransport() {
+        // setup
+        final CampaignClassicTransport transport =
+                Mockito.mock(CampaignClassicTransport.class);
+
+        try {
+            // test
+            CampaignClassic.setTransport(transport);
+
+            // verify
+            Assert.assertSame(transport, CampaignClassic.getTransport());
+        } finally {
+            CampaignClassic.setTransport(null);
+        }
+        Assert.assertNull(CampaignClassic.getTransport());
+    }
+
     @Test
     public void test_registerExtension() {
         try (MockedStatic<MobileCore> mobileCoreMockedStatic =
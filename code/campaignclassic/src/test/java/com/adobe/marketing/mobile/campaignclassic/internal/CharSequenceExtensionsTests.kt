@@ -0,0 +1,46 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+
+class CharSequenceExtensionsTests {
+
+    // =================================================================================================================
+    // fun CharSequence.forEachUtf8Byte(action: (Int) -> Unit)
+    // =================================================================================================================
+
+    @Test
+    fun forEachUtf8Byte_MatchesStringEncoding() {
+        for (value in listOf("", "ascii", "José", "日本", "😀", "a😀bé")) {
+            Assert.assertArrayEquals(value, value.toByteArray(Charsets.UTF_8), encode(value))
+        }
+    }
+
+    @Test
+    fun forEachUtf8Byte_UnpairedSurrogate() {
+        for (value in listOf("\uD83D", "a\uDE00b", "\uDE00\uD83D")) {
+            Assert.assertArrayEquals(value, value.toByteArray(Charsets.UTF_8), encode(value))
+        }
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun encode(value: CharSequence): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        value.forEachUtf8Byte { bytes.write(it) }
+        return bytes.toByteArray()
+    }
+}
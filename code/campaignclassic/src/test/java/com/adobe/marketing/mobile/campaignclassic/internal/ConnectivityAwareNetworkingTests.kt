@@ -0,0 +1,306 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DeviceInforming
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkRequest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import java.net.HttpURLConnection
+
+class ConnectivityAwareNetworkingTests {
+
+    private lateinit var networking: FakeNetworking
+    private lateinit var connectivity: FakeConnectivitySource
+    private lateinit var connectivityAwareNetworking: ConnectivityAwareNetworking
+    private val responses = ArrayList<Pair<String, Int?>>()
+
+    @Before
+    fun setup() {
+        networking = FakeNetworking()
+        connectivity = FakeConnectivitySource()
+        connectivityAwareNetworking = ConnectivityAwareNetworking(networking, connectivity, 3)
+    }
+
+    // =================================================================================================================
+    // fun connectAsync(request: NetworkRequest, callback: NetworkCallback)
+    // =================================================================================================================
+
+    @Test
+    fun connectAsync_WhenOnline_ThenSendsImmediately() {
+        // test
+        send("https://host/1")
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1"), sentUrls())
+        Assert.assertEquals(listOf("https://host/1" to HttpURLConnection.HTTP_OK), responses)
+        Assert.assertEquals(0, connectivity.listenerCount)
+    }
+
+    @Test
+    fun connectAsync_WhenOffline_ThenHoldsRequestsUntilOnline() {
+        // setup
+        connectivity.connected = false
+
+        // test
+        send("https://host/1")
+        send("https://host/2")
+
+        // verify
+        Assert.assertTrue(sentUrls().isEmpty())
+        Assert.assertTrue(responses.isEmpty())
+        Assert.assertEquals(2, connectivityAwareNetworking.bufferedRequestCount)
+        Assert.assertEquals(1, connectivity.listenerCount)
+
+        // test
+        connectivity.setConnectedAndNotify(true)
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2"), sentUrls())
+        Assert.assertEquals(
+            listOf("https://host/1" to HttpURLConnection.HTTP_OK, "https://host/2" to HttpURLConnection.HTTP_OK),
+            responses
+        )
+        Assert.assertEquals(0, connectivityAwareNetworking.bufferedRequestCount)
+        Assert.assertEquals(2, connectivityAwareNetworking.deferredRequestCount)
+    }
+
+    @Test
+    fun connectAsync_WhenRequestsHeld_ThenNewRequestsKeepOrder() {
+        // setup
+        connectivity.connected = false
+        send("https://host/1")
+
+        // test, the network is back but the listener has not been called yet
+        connectivity.connected = true
+        send("https://host/2")
+
+        // verify
+        Assert.assertTrue(sentUrls().isEmpty())
+
+        // test
+        connectivity.notifyListeners()
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2"), sentUrls())
+    }
+
+    @Test
+    fun connectAsync_WhenNetworkFlaps_ThenKeepsRequestsUntilOnline() {
+        // setup
+        connectivity.connected = false
+        send("https://host/1")
+        send("https://host/2")
+
+        // test, the network comes back and goes away before the requests are released
+        connectivity.connected = true
+        connectivity.connected = false
+        connectivity.notifyListeners()
+
+        // verify
+        Assert.assertTrue(sentUrls().isEmpty())
+        Assert.assertEquals(2, connectivityAwareNetworking.bufferedRequestCount)
+        Assert.assertEquals(1, connectivity.listenerCount)
+
+        // test
+        connectivity.setConnectedAndNotify(true)
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2"), sentUrls())
+    }
+
+    @Test
+    fun connectAsync_WhenNetworkLostWhileReleasing_ThenHoldsRemainingRequests() {
+        // setup
+        connectivity.connected = false
+        send("https://host/1")
+        send("https://host/2")
+        send("https://host/3")
+
+        // test, the network goes away again once the first request is sent
+        networking.onRequest = { connectivity.connected = false }
+        connectivity.setConnectedAndNotify(true)
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1"), sentUrls())
+        Assert.assertEquals(2, connectivityAwareNetworking.bufferedRequestCount)
+        Assert.assertEquals(1, connectivity.listenerCount)
+
+        // test
+        networking.onRequest = null
+        connectivity.setConnectedAndNotify(true)
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2", "https://host/3"), sentUrls())
+        Assert.assertEquals(0, connectivityAwareNetworking.bufferedRequestCount)
+    }
+
+    @Test
+    fun connectAsync_WhenBufferFull_ThenCompletesWithNullConnection() {
+        // setup
+        connectivity.connected = false
+        send("https://host/1")
+        send("https://host/2")
+        send("https://host/3")
+
+        // test
+        send("https://host/4")
+
+        // verify
+        Assert.assertEquals(listOf("https://host/4" to null), responses)
+        Assert.assertEquals(3, connectivityAwareNetworking.bufferedRequestCount)
+        Assert.assertEquals(1, connectivityAwareNetworking.rejectedRequestCount)
+
+        // test
+        connectivity.setConnectedAndNotify(true)
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2", "https://host/3"), sentUrls())
+    }
+
+    @Test
+    fun connectAsync_WhenConnectivityCannotBeWatched_ThenSendsImmediately() {
+        // setup
+        connectivity.connected = false
+        connectivity.canWatch = false
+
+        // test
+        send("https://host/1")
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1"), sentUrls())
+        Assert.assertEquals(0, connectivityAwareNetworking.bufferedRequestCount)
+    }
+
+    @Test
+    fun connectAsync_WhenOnlineBeforeListenerRegistered_ThenSendsHeldRequests() {
+        // setup
+        connectivity.connected = false
+        connectivity.connectOnRegistration = true
+
+        // test
+        send("https://host/1")
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1"), sentUrls())
+        Assert.assertEquals(0, connectivityAwareNetworking.bufferedRequestCount)
+    }
+
+    // =================================================================================================================
+    // DeviceConnectivitySource
+    // =================================================================================================================
+
+    @Test
+    fun deviceConnectivitySource_ConnectionStatus() {
+        // setup
+        val deviceInfoService = Mockito.mock(DeviceInforming::class.java)
+        val connectivitySource = DeviceConnectivitySource(deviceInfoService)
+
+        // verify
+        Mockito.`when`(deviceInfoService.networkConnectionStatus).thenReturn(DeviceInforming.ConnectionStatus.DISCONNECTED)
+        Assert.assertFalse(connectivitySource.isConnected)
+        Mockito.`when`(deviceInfoService.networkConnectionStatus).thenReturn(DeviceInforming.ConnectionStatus.CONNECTED)
+        Assert.assertTrue(connectivitySource.isConnected)
+        Mockito.`when`(deviceInfoService.networkConnectionStatus).thenReturn(DeviceInforming.ConnectionStatus.UNKNOWN)
+        Assert.assertTrue(connectivitySource.isConnected)
+    }
+
+    @Test
+    fun deviceConnectivitySource_NotifyWhenConnected() {
+        // setup
+        val deviceInfoService = Mockito.mock(DeviceInforming::class.java)
+        Mockito.`when`(deviceInfoService.registerOneTimeNetworkConnectionActiveListener(ArgumentMatchers.any()))
+            .thenAnswer {
+                (it.arguments[0] as DeviceInforming.NetworkConnectionActiveListener).onActive()
+                true
+            }
+        var notified = false
+
+        // test
+        val watching = DeviceConnectivitySource(deviceInfoService).notifyWhenConnected { notified = true }
+
+        // verify
+        Assert.assertTrue(watching)
+        Assert.assertTrue(notified)
+    }
+
+    @Test
+    fun deviceConnectivitySource_ServiceNotAvailable() {
+        // setup
+        val connectivitySource = DeviceConnectivitySource(null)
+
+        // verify
+        Assert.assertTrue(connectivitySource.isConnected)
+        Assert.assertFalse(connectivitySource.notifyWhenConnected {})
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun send(url: String) {
+        connectivityAwareNetworking.connectAsync(request(url)) { connection: HttpConnecting? ->
+            responses.add(url to connection?.responseCode)
+            connection?.close()
+        }
+    }
+
+    private fun request(url: String): NetworkRequest {
+        return NetworkRequest(url, HttpMethod.GET, null, null, 5, 5)
+    }
+
+    private fun sentUrls(): List<String> {
+        return networking.requests.map { it.url }
+    }
+
+    /**
+     * [ConnectivitySource] whose network availability is set by the tests.
+     */
+    private class FakeConnectivitySource : ConnectivitySource {
+        @Volatile
+        var connected = true
+        var canWatch = true
+        var connectOnRegistration = false
+        private val listeners = ArrayList<() -> Unit>()
+
+        val listenerCount: Int
+            get() = synchronized(listeners) { listeners.size }
+
+        override val isConnected: Boolean
+            get() = connected
+
+        override fun notifyWhenConnected(listener: () -> Unit): Boolean {
+            if (!canWatch) {
+                return false
+            }
+            synchronized(listeners) { listeners.add(listener) }
+            if (connectOnRegistration) {
+                connected = true
+            }
+            return true
+        }
+
+        fun setConnectedAndNotify(connected: Boolean) {
+            this.connected = connected
+            notifyListeners()
+        }
+
+        fun notifyListeners() {
+            val notified = synchronized(listeners) { ArrayList(listeners).also { listeners.clear() } }
+            notified.forEach { it() }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DeviceInforming
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito
+import org.mockito.junit.MockitoJUnitRunner
+import java.util.Locale
+import java.util.UUID
+
+@RunWith(MockitoJUnitRunner.Silent::class)
+class DeviceDescriptorTests {
+
+    private lateinit var deviceInfoService: DeviceInforming
+
+    @Before
+    fun setup() {
+        deviceInfoService = Mockito.mock(DeviceInforming::class.java)
+        Mockito.`when`(deviceInfoService.deviceUniqueId).thenReturn("12345")
+        Mockito.`when`(deviceInfoService.device).thenReturn("mock Device")
+        Mockito.`when`(deviceInfoService.deviceBrand).thenReturn("mockDeviceBrand")
+        Mockito.`when`(deviceInfoService.deviceManufacturer).thenReturn("mockDeviceManufacturer")
+        Mockito.`when`(deviceInfoService.deviceName).thenReturn("mockDeviceName")
+        Mockito.`when`(deviceInfoService.operatingSystemName).thenReturn("mockOSName")
+        Mockito.`when`(deviceInfoService.operatingSystemVersion).thenReturn("mockOSVersion")
+        Mockito.`when`(deviceInfoService.activeLocale).thenReturn(Locale("en", "US"))
+    }
+
+    // =================================================================================================================
+    // val encodedDeviceFields: ByteArray
+    // =================================================================================================================
+
+    @Test
+    fun encodedDeviceFields_Happy() {
+        // test
+        val descriptor = DeviceDescriptor(deviceInfoService)
+
+        // verify
+        Assert.assertEquals(
+            "deviceImei=12345&deviceName=mock%20Device&deviceModel=mockDeviceName&deviceBrand=mockDeviceBrand" +
+                "&deviceManufacturer=mockDeviceManufacturer&osName=android&osVersion=mockOSName%20mockOSVersion",
+            String(descriptor.encodedDeviceFields, Charsets.UTF_8)
+        )
+        Assert.assertEquals(UUID("12345".hashCode().toLong(), "12345".hashCode().toLong()).toString(), descriptor.deviceUuid)
+    }
+
+    @Test
+    fun encodedDeviceFields_ReadOnce() {
+        // setup
+        val descriptor = DeviceDescriptor(deviceInfoService)
+
+        // test
+        descriptor.encodedDeviceFields
+        descriptor.encodedDeviceFields
+        descriptor.deviceUuid
+
+        // verify
+        Mockito.verify(deviceInfoService, Mockito.times(1)).deviceUniqueId
+        Mockito.verify(deviceInfoService, Mockito.times(1)).device
+        Mockito.verify(deviceInfoService, Mockito.times(1)).operatingSystemVersion
+    }
+
+    @Test
+    fun encodedDeviceFields_DeviceInfoServiceNotAvailable() {
+        // test
+        val descriptor = DeviceDescriptor(null)
+
+        // verify
+        Assert.assertEquals("", descriptor.deviceUuid)
+        Assert.assertEquals(
+            "deviceImei=&deviceName=&deviceModel=&deviceBrand=&deviceManufacturer=&osName=android&osVersion=null%20null",
+            String(descriptor.encodedDeviceFields, Charsets.UTF_8)
+        )
+        Assert.assertEquals("osLanguage=", String(descriptor.encodedLocaleField(), Charsets.UTF_8))
+    }
+
+    // =================================================================================================================
+    // fun encodedLocaleField()
+    // =================================================================================================================
+
+    @Test
+    fun encodedLocaleField_ReusedWhileLocaleUnchanged() {
+        // setup
+        val descriptor = DeviceDescriptor(deviceInfoService)
+
+        // test
+        val first = descriptor.encodedLocaleField()
+        val second = descriptor.encodedLocaleField()
+
+        // verify
+        Assert.assertEquals("osLanguage=en-US", String(first, Charsets.UTF_8))
+        Assert.assertSame(first, second)
+    }
+
+    @Test
+    fun encodedLocaleField_RefreshedOnLocaleChange() {
+        // setup
+        val descriptor = DeviceDescriptor(deviceInfoService)
+        val first = descriptor.encodedLocaleField()
+
+        // test
+        Mockito.`when`(deviceInfoService.activeLocale).thenReturn(Locale("fr", "FR"))
+        val second = descriptor.encodedLocaleField()
+
+        // verify
+        Assert.assertEquals("osLanguage=en-US", String(first, Charsets.UTF_8))
+        Assert.assertEquals("osLanguage=fr-FR", String(second, Charsets.UTF_8))
+    }
+}
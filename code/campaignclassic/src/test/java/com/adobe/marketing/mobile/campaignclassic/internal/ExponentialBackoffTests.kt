@@ -0,0 +1,74 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.Random
+
+class ExponentialBackoffTests {
+
+    // =================================================================================================================
+    // fun delayMillis(attempt: Int)
+    // =================================================================================================================
+
+    @Test
+    fun delayMillis_DoublesPerAttempt() {
+        // setup
+        val backoff = ExponentialBackoff(1000, 60_000, FixedRandom(0.0))
+
+        // verify
+        Assert.assertEquals(500, backoff.delayMillis(1))
+        Assert.assertEquals(1000, backoff.delayMillis(2))
+        Assert.assertEquals(2000, backoff.delayMillis(3))
+        Assert.assertEquals(4000, backoff.delayMillis(4))
+    }
+
+    @Test
+    fun delayMillis_IsCapped() {
+        // setup
+        val backoff = ExponentialBackoff(1000, 60_000, FixedRandom(0.999))
+
+        // verify
+        Assert.assertTrue(backoff.delayMillis(7) < 60_000)
+        Assert.assertTrue(backoff.delayMillis(100) < 60_000)
+        Assert.assertTrue(backoff.delayMillis(Int.MAX_VALUE) >= 30_000)
+    }
+
+    @Test
+    fun delayMillis_JitterStaysInUpperHalf() {
+        // setup
+        val backoff = ExponentialBackoff(1000, 60_000, Random(42))
+
+        // verify
+        val delays = HashSet<Long>()
+        repeat(100) {
+            val delay = backoff.delayMillis(3)
+            Assert.assertTrue(delay in 2000 until 4000)
+            delays.add(delay)
+        }
+        Assert.assertTrue(delays.size > 1)
+    }
+
+    @Test
+    fun delayMillis_NonPositiveAttempt() {
+        // setup
+        val backoff = ExponentialBackoff(1000, 60_000, FixedRandom(0.0))
+
+        // verify
+        Assert.assertEquals(500, backoff.delayMillis(0))
+        Assert.assertEquals(500, backoff.delayMillis(-1))
+    }
+
+    private class FixedRandom(private val value: Double) : Random() {
+        override fun nextDouble(): Double = value
+    }
+}
@@ -0,0 +1,79 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.util.Collections
+import java.util.LinkedList
+
+/**
+ * [Networking] completing requests with scripted response codes.
+ * A null response code completes the request with a null connection, as done on connection failures.
+ * Requests complete synchronously unless [deferCompletions] is set, in which case they complete when
+ * the completions returned by [takeDeferredCompletions] are invoked. [onRequest] is invoked with each request
+ * before it completes.
+ */
+internal class FakeNetworking(var defaultResponseCode: Int? = HttpURLConnection.HTTP_OK) : Networking {
+    val requests: MutableList<NetworkRequest> = Collections.synchronizedList(ArrayList())
+    val connections: MutableList<FakeConnection> = Collections.synchronizedList(ArrayList())
+    @Volatile
+    var deferCompletions = false
+    @Volatile
+    var onRequest: ((NetworkRequest) -> Unit)? = null
+    private val responseCodes = LinkedList<Int?>()
+    private val deferredCompletions = ArrayList<() -> Unit>()
+
+    @Synchronized
+    fun enqueueResponses(vararg codes: Int?) {
+        responseCodes.addAll(codes)
+    }
+
+    @Synchronized
+    fun takeDeferredCompletions(): List<() -> Unit> {
+        return ArrayList(deferredCompletions).also { deferredCompletions.clear() }
+    }
+
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        requests.add(request)
+        onRequest?.invoke(request)
+        val responseCode = synchronized(this) {
+            if (responseCodes.isEmpty()) defaultResponseCode else responseCodes.removeFirst()
+        }
+        val completion = {
+            val connection = responseCode?.let { FakeConnection(it) }
+            connection?.let { connections.add(it) }
+            callback.call(connection)
+        }
+        if (deferCompletions) {
+            synchronized(this) { deferredCompletions.add(completion) }
+        } else {
+            completion()
+        }
+    }
+
+    internal class FakeConnection(private val code: Int) : HttpConnecting {
+        var closed = false
+
+        override fun getInputStream(): InputStream? = null
+        override fun getErrorStream(): InputStream? = null
+        override fun getResponseCode(): Int = code
+        override fun getResponseMessage(): String = "status $code"
+        override fun getResponsePropertyValue(key: String?): String? = null
+        override fun close() {
+            closed = true
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.util.UrlUtils
+import org.junit.Assert
+import org.junit.Test
+import java.net.URLDecoder
+
+class FormBodyWriterTests {
+
+    // =================================================================================================================
+    // fun field(name: String, value: CharSequence)
+    // =================================================================================================================
+
+    @Test
+    fun field_AsciiValues() {
+        // test
+        val body = FormBodyWriter()
+            .field("registrationToken", "testToken")
+            .field("osVersion", "mockOSName mockOSVersion")
+            .field("userKey", "")
+            .toByteArray()
+
+        // verify
+        Assert.assertEquals(
+            "registrationToken=testToken&osVersion=mockOSName%20mockOSVersion&userKey=",
+            String(body, Charsets.UTF_8)
+        )
+    }
+
+    @Test
+    fun field_ReservedCharacters() {
+        // test
+        val body = FormBodyWriter()
+            .field("additionalParams", "<param name=\"key\" value=\"a&b+c/d?e#f%\"/>")
+            .toByteArray()
+
+        // verify
+        Assert.assertEquals(
+            "additionalParams=%3Cparam%20name%3D%22key%22%20value%3D%22a%26b%2Bc%2Fd%3Fe%23f%25%22%2F%3E",
+            String(body, Charsets.UTF_8)
+        )
+    }
+
+    @Test
+    fun field_SubDelimiters_Encoded() {
+        // test
+        val body = FormBodyWriter().field("userKey", "a!b*c'd(e)f~g").toByteArray()
+
+        // verify
+        Assert.assertEquals("userKey=a%21b%2Ac%27d%28e%29f~g", String(body, Charsets.UTF_8))
+    }
+
+    @Test
+    fun field_MatchesUrlUtilsEncoding() {
+        // setup
+        val values = listOf(
+            "",
+            "testToken",
+            "mockOSName mockOSVersion",
+            "-._~!*'()",
+            "a&b=c+d/e?f#g%h;i:j@k,l\$m[n]o{p}q|r^s`t\"u<v>w",
+            "\t\r\n\u007f",
+            "user@example.com",
+            "café 日本語 😀",
+            "Ünïcödé ñ ß ø",
+            (0 until 128).map { it.toChar() }.joinToString("")
+        )
+
+        for (value in values) {
+            // test
+            val body = FormBodyWriter().field("key", value).toByteArray()
+
+            // verify
+            Assert.assertEquals(value, "key=" + UrlUtils.urlEncode(value), String(body, Charsets.UTF_8))
+        }
+    }
+
+    @Test
+    fun field_NonAsciiValues() {
+        // setup
+        val value = "café 日本語 😀"
+
+        // test
+        val body = FormBodyWriter().field("userKey", value).toByteArray()
+
+        // verify
+        val encoded = String(body, Charsets.UTF_8)
+        Assert.assertEquals("userKey=caf%C3%A9%20%E6%97%A5%E6%9C%AC%E8%AA%9E%20%F0%9F%98%80", encoded)
+        Assert.assertEquals(value, URLDecoder.decode(encoded.substringAfter('='), "UTF-8"))
+    }
+
+    @Test
+    fun field_UnpairedSurrogate() {
+        // test
+        val body = FormBodyWriter().field("userKey", "a\ud83db\ude00").toByteArray()
+
+        // verify
+        Assert.assertEquals("userKey=a%3Fb%3F", String(body, Charsets.UTF_8))
+    }
+
+    @Test
+    fun field_GrowsBuffer() {
+        // setup
+        val value = "é".repeat(1000)
+
+        // test
+        val writer = FormBodyWriter(4).field("key", value)
+
+        // verify
+        Assert.assertEquals(4 + 1000 * 6, writer.size)
+        Assert.assertEquals(value, URLDecoder.decode(String(writer.toByteArray(), Charsets.UTF_8).substringAfter('='), "UTF-8"))
+    }
+
+    // =================================================================================================================
+    // fun encodedFields(encodedFields: ByteArray)
+    // =================================================================================================================
+
+    @Test
+    fun encodedFields_WrittenAsIs() {
+        // test
+        val body = FormBodyWriter(4)
+            .field("userKey", "a b")
+            .encodedFields("deviceName=mock%20Device&osName=android".toByteArray(Charsets.UTF_8))
+            .encodedFields(ByteArray(0))
+            .field("osLanguage", "en-US")
+            .toByteArray()
+
+        // verify
+        Assert.assertEquals(
+            "userKey=a%20b&deviceName=mock%20Device&osName=android&osLanguage=en-US",
+            String(body, Charsets.UTF_8)
+        )
+    }
+
+    @Test
+    fun encodedFields_FirstField() {
+        // test
+        val body = FormBodyWriter().encodedFields("osName=android".toByteArray(Charsets.UTF_8)).toByteArray()
+
+        // verify
+        Assert.assertEquals("osName=android", String(body, Charsets.UTF_8))
+    }
+}
@@ -0,0 +1,50 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+
+class HeaderArrayMapTests {
+
+    // =================================================================================================================
+    // Map view
+    // =================================================================================================================
+
+    @Test
+    fun headers_ViewOfArray() {
+        // setup
+        val namesAndValues = arrayOf("Content-Type", "application/x-www-form-urlencoded", "Content-Length", "42")
+
+        // test
+        val headers = HeaderArrayMap(namesAndValues)
+
+        // verify
+        Assert.assertSame(namesAndValues, headers.namesAndValues)
+        Assert.assertEquals(2, headers.size)
+        Assert.assertEquals("application/x-www-form-urlencoded", headers["Content-Type"])
+        Assert.assertEquals("42", headers["Content-Length"])
+        Assert.assertNull(headers["X-Test"])
+        Assert.assertTrue(headers.containsKey("Content-Length"))
+        Assert.assertEquals(mapOf("Content-Type" to "application/x-www-form-urlencoded", "Content-Length" to "42"), headers)
+        Assert.assertEquals(listOf("Content-Type", "Content-Length"), headers.keys.toList())
+    }
+
+    @Test
+    fun headers_Empty() {
+        // test
+        val headers = HeaderArrayMap(arrayOf())
+
+        // verify
+        Assert.assertTrue(headers.isEmpty())
+        Assert.assertFalse(headers.entries.iterator().hasNext())
+    }
+}
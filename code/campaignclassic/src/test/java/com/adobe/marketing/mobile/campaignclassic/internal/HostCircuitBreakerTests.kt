@@ -0,0 +1,231 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkRequest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.net.HttpURLConnection
+
+class HostCircuitBreakerTests {
+
+    private lateinit var networking: FakeNetworking
+    private lateinit var circuitBreaker: HostCircuitBreaker
+    private val responses = ArrayList<Int?>()
+    private var currentTime = 0L
+
+    @Before
+    fun setup() {
+        networking = FakeNetworking()
+        circuitBreaker = HostCircuitBreaker(networking, 3, 1000) { currentTime }
+    }
+
+    // =================================================================================================================
+    // fun connectAsync(request: NetworkRequest, callback: NetworkCallback)
+    // =================================================================================================================
+
+    @Test
+    fun connectAsync_WhenClosed_ThenSendsRequests() {
+        // setup
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE, null)
+
+        // test
+        repeat(3) { send("https://host/$it") }
+
+        // verify
+        Assert.assertEquals(3, networking.requests.size)
+        Assert.assertEquals(listOf(HttpURLConnection.HTTP_UNAVAILABLE, null, HttpURLConnection.HTTP_OK), responses)
+        Assert.assertEquals(CircuitState.CLOSED, circuitBreaker.circuitState("host"))
+    }
+
+    @Test
+    fun connectAsync_WhenFailureThresholdReached_ThenOpensAndFailsFast() {
+        // setup
+        networking.defaultResponseCode = HttpURLConnection.HTTP_UNAVAILABLE
+
+        // test
+        repeat(3) { send("https://host/$it") }
+        send("https://host/fast")
+
+        // verify
+        Assert.assertEquals(3, networking.requests.size)
+        Assert.assertNull(responses.last())
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+        Assert.assertEquals(1, circuitBreaker.openedCircuitCount)
+        Assert.assertEquals(1, circuitBreaker.rejectedRequestCount)
+    }
+
+    @Test
+    fun connectAsync_SuccessResetsFailureCount() {
+        // setup
+        networking.enqueueResponses(null, null, HttpURLConnection.HTTP_NOT_FOUND, null, null)
+
+        // test
+        repeat(5) { send("https://host/$it") }
+
+        // verify
+        Assert.assertEquals(CircuitState.CLOSED, circuitBreaker.circuitState("host"))
+    }
+
+    @Test
+    fun connectAsync_CircuitsArePerHost() {
+        // setup
+        networking.defaultResponseCode = null
+        repeat(3) { send("https://host1/$it") }
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+
+        // test
+        send("https://host2/1")
+
+        // verify
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host1"))
+        Assert.assertEquals(CircuitState.CLOSED, circuitBreaker.circuitState("host2"))
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, responses.last())
+    }
+
+    @Test
+    fun connectAsync_WhenCoolDownElapsed_ThenProbeClosesCircuit() {
+        // setup
+        openCircuit()
+        currentTime += 1000
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+        networking.deferCompletions = true
+
+        // test
+        send("https://host/probe")
+        send("https://host/fast")
+
+        // verify only the probe is sent
+        Assert.assertEquals(CircuitState.HALF_OPEN, circuitBreaker.circuitState("host"))
+        Assert.assertEquals("https://host/probe", networking.requests.last().url)
+        Assert.assertEquals(listOf<Int?>(null), responses.drop(3))
+
+        // test
+        networking.takeDeferredCompletions().forEach { it() }
+        networking.deferCompletions = false
+        send("https://host/closed")
+
+        // verify
+        Assert.assertEquals(CircuitState.CLOSED, circuitBreaker.circuitState("host"))
+        Assert.assertEquals("https://host/closed", networking.requests.last().url)
+    }
+
+    @Test
+    fun connectAsync_WhenProbeFails_ThenReopensCircuit() {
+        // setup
+        openCircuit()
+        currentTime += 1000
+
+        // test
+        send("https://host/probe")
+
+        // verify
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+        Assert.assertEquals(2, circuitBreaker.openedCircuitCount)
+
+        // verify cool down restarts from the failed probe
+        currentTime += 999
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+        currentTime += 1
+        Assert.assertEquals(CircuitState.HALF_OPEN, circuitBreaker.circuitState("host"))
+    }
+
+    @Test
+    fun connectAsync_WhenStaleRequestFailsDuringHalfOpen_ThenProbeDecides() {
+        // setup, a slow request sent before the circuit opened
+        networking.deferCompletions = true
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE)
+        send("https://host/slow")
+        val slowCompletion = networking.takeDeferredCompletions()
+        networking.deferCompletions = false
+        openCircuit()
+        currentTime += 1000
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+        networking.deferCompletions = true
+        send("https://host/probe")
+
+        // test
+        slowCompletion.forEach { it() }
+
+        // verify the stale failure neither reopens the circuit nor releases the probe
+        Assert.assertEquals(CircuitState.HALF_OPEN, circuitBreaker.circuitState("host"))
+        Assert.assertEquals(1, circuitBreaker.openedCircuitCount)
+        send("https://host/fast")
+        Assert.assertEquals("https://host/probe", networking.requests.last().url)
+
+        // test
+        networking.takeDeferredCompletions().forEach { it() }
+
+        // verify
+        Assert.assertEquals(CircuitState.CLOSED, circuitBreaker.circuitState("host"))
+    }
+
+    @Test
+    fun connectAsync_WhenStaleRequestSucceedsDuringHalfOpen_ThenProbeDecides() {
+        // setup, a slow request sent before the circuit opened
+        networking.deferCompletions = true
+        networking.enqueueResponses(HttpURLConnection.HTTP_OK)
+        send("https://host/slow")
+        val slowCompletion = networking.takeDeferredCompletions()
+        networking.deferCompletions = false
+        openCircuit()
+        currentTime += 1000
+        networking.deferCompletions = true
+        send("https://host/probe")
+
+        // test
+        slowCompletion.forEach { it() }
+
+        // verify the stale success does not close the circuit
+        Assert.assertEquals(CircuitState.HALF_OPEN, circuitBreaker.circuitState("host"))
+
+        // test, the probe fails
+        networking.takeDeferredCompletions().forEach { it() }
+
+        // verify
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+        Assert.assertEquals(2, circuitBreaker.openedCircuitCount)
+    }
+
+    // =================================================================================================================
+    // var failureThreshold
+    // =================================================================================================================
+
+    @Test
+    fun failureThreshold_AtLeastOne() {
+        // setup
+        circuitBreaker.failureThreshold = 0
+        networking.defaultResponseCode = null
+
+        // test
+        send("https://host/1")
+
+        // verify
+        Assert.assertEquals(1, circuitBreaker.failureThreshold)
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+    }
+
+    private fun openCircuit() {
+        networking.defaultResponseCode = HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+        repeat(3) { send("https://host/$it") }
+        Assert.assertEquals(CircuitState.OPEN, circuitBreaker.circuitState("host"))
+    }
+
+    private fun send(url: String) {
+        circuitBreaker.connectAsync(NetworkRequest(url, HttpMethod.GET, null, null, 5, 5)) { connection: HttpConnecting? ->
+            responses.add(connection?.responseCode)
+            connection?.close()
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkRequest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.net.HttpURLConnection
+
+class HostConcurrencyLimiterTests {
+
+    private lateinit var networking: FakeNetworking
+    private lateinit var limiter: HostConcurrencyLimiter
+    private val responses = ArrayList<Pair<String, Int?>>()
+
+    @Before
+    fun setup() {
+        networking = FakeNetworking()
+        networking.deferCompletions = true
+        limiter = HostConcurrencyLimiter(networking, 2, 2)
+    }
+
+    // =================================================================================================================
+    // fun connectAsync(request: NetworkRequest, callback: NetworkCallback)
+    // =================================================================================================================
+
+    @Test
+    fun connectAsync_LimitsRequestsInFlightPerHost() {
+        // test
+        send("https://host1/1")
+        send("https://host1/2")
+        send("https://host1/3")
+        send("https://host2/1")
+
+        // verify
+        Assert.assertEquals(listOf("https://host1/1", "https://host1/2", "https://host2/1"), sentUrls())
+        Assert.assertEquals(3, limiter.inFlightRequestCount)
+        Assert.assertEquals(1, limiter.waitingRequestCount)
+        Assert.assertEquals(3, limiter.sentRequestCount)
+        Assert.assertEquals(1, limiter.delayedRequestCount)
+    }
+
+    @Test
+    fun connectAsync_SendsWaitingRequestsInOrder() {
+        // setup
+        send("https://host/1")
+        send("https://host/2")
+        send("https://host/3")
+        send("https://host/4")
+
+        // test
+        val completions = networking.takeDeferredCompletions()
+        completions[1]()
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2", "https://host/3"), sentUrls())
+        Assert.assertEquals(listOf("https://host/2" to HttpURLConnection.HTTP_OK), responses)
+
+        // test
+        completions[0]()
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2", "https://host/3", "https://host/4"), sentUrls())
+        Assert.assertEquals(2, limiter.inFlightRequestCount)
+        Assert.assertEquals(0, limiter.waitingRequestCount)
+    }
+
+    @Test
+    fun connectAsync_WhenWaitingQueueFull_ThenCompletesWithNullConnection() {
+        // setup
+        repeat(4) { send("https://host/$it") }
+
+        // test
+        send("https://host/rejected")
+
+        // verify
+        Assert.assertEquals(listOf("https://host/rejected" to null), responses)
+        Assert.assertEquals(1, limiter.rejectedRequestCount)
+        Assert.assertEquals(2, limiter.sentRequestCount)
+        Assert.assertFalse(sentUrls().contains("https://host/rejected"))
+    }
+
+    @Test
+    fun connectAsync_HostsAreCaseInsensitive() {
+        // test
+        send("https://Host/1")
+        send("https://HOST/2")
+        send("https://host/3")
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertEquals(1, limiter.waitingRequestCount)
+    }
+
+    @Test
+    fun connectAsync_ReleasesHostOnConnectionFailure() {
+        // setup
+        networking.deferCompletions = false
+        networking.enqueueResponses(null, null)
+
+        // test
+        repeat(3) { send("https://host/$it") }
+
+        // verify
+        Assert.assertEquals(
+            listOf("https://host/0" to null, "https://host/1" to null, "https://host/2" to HttpURLConnection.HTTP_OK),
+            responses
+        )
+        Assert.assertEquals(0, limiter.inFlightRequestCount)
+    }
+
+    @Test
+    fun connectAsync_WhenCallbackThrows_ThenReleasesHost() {
+        // setup
+        limiter = HostConcurrencyLimiter(networking, 1, 2)
+        limiter.connectAsync(request("https://host/1")) { throw IllegalStateException("test") }
+        send("https://host/2")
+
+        // test
+        try {
+            networking.takeDeferredCompletions()[0]()
+            Assert.fail("expected exception")
+        } catch (e: IllegalStateException) {
+        }
+
+        // verify
+        Assert.assertEquals(listOf("https://host/1", "https://host/2"), sentUrls())
+    }
+
+    // =================================================================================================================
+    // var maxInFlightPerHost
+    // =================================================================================================================
+
+    @Test
+    fun maxInFlightPerHost_WhenRaised_ThenSendsWaitingRequests() {
+        // setup
+        repeat(4) { send("https://host/$it") }
+
+        // test
+        limiter.maxInFlightPerHost = 3
+
+        // verify
+        Assert.assertEquals(3, networking.requests.size)
+        Assert.assertEquals(3, limiter.inFlightRequestCount)
+        Assert.assertEquals(1, limiter.waitingRequestCount)
+    }
+
+    @Test
+    fun maxInFlightPerHost_AtLeastOne() {
+        // test
+        limiter.maxInFlightPerHost = 0
+        send("https://host/1")
+        send("https://host/2")
+
+        // verify
+        Assert.assertEquals(1, limiter.maxInFlightPerHost)
+        Assert.assertEquals(1, networking.requests.size)
+    }
+
+    private fun send(url: String) {
+        limiter.connectAsync(request(url)) { connection: HttpConnecting? ->
+            responses.add(url to connection?.responseCode)
+            connection?.close()
+        }
+    }
+
+    private fun request(url: String): NetworkRequest {
+        return NetworkRequest(url, HttpMethod.GET, null, null, 5, 5)
+    }
+
+    private fun sentUrls(): List<String> {
+        return networking.requests.map { it.url }
+    }
+}
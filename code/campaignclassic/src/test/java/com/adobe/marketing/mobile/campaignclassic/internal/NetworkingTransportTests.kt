@@ -0,0 +1,189 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.Networking
+import org.junit.Assert
+import org.junit.Test
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import java.io.ByteArrayInputStream
+import java.net.HttpURLConnection
+
+class NetworkingTransportTests : TransportConformanceSuite() {
+
+    override fun createTransport(): CampaignClassicTransport {
+        return NetworkingTransport(UrlConnectionNetworking())
+    }
+
+    // =================================================================================================================
+    // fun send(request: Request, callback: Callback)
+    // =================================================================================================================
+
+    @Test
+    fun send_MapsRequest() {
+        // setup
+        val networking = FakeNetworking()
+        val body = "registrationToken=testToken".toByteArray(Charsets.UTF_8)
+        val headers = arrayOf("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8")
+
+        // test
+        NetworkingTransport(networking).send(
+            CampaignClassicTransport.Request(
+                "https://testMarketingServer/nms/mobile/1/registerAndroid.jssp",
+                CampaignClassicTransport.Method.POST,
+                body,
+                headers,
+                5,
+                10,
+                true
+            ),
+            RecordingCallback()
+        )
+
+        // verify
+        val request = networking.requests.single()
+        Assert.assertEquals("https://testMarketingServer/nms/mobile/1/registerAndroid.jssp", request.url)
+        Assert.assertEquals(HttpMethod.POST, request.method)
+        Assert.assertArrayEquals(body, request.body)
+        Assert.assertEquals(mapOf("Content-Type" to "application/x-www-form-urlencoded;charset=UTF-8"), request.headers)
+        Assert.assertSame(headers, (request.headers as HeaderArrayMap).namesAndValues)
+        Assert.assertEquals(5, request.connectTimeout)
+        Assert.assertEquals(10, request.readTimeout)
+    }
+
+    @Test
+    fun send_NullConnection_ReportsFailure() {
+        // setup
+        val networking = FakeNetworking(defaultResponseCode = null)
+        val callback = RecordingCallback()
+
+        // test
+        NetworkingTransport(networking).send(trackingRequest(), callback)
+
+        // verify
+        Assert.assertEquals(listOf("failure"), callback.outcomes)
+    }
+
+    @Test
+    fun send_Response_ClosesConnection() {
+        // setup
+        val networking = FakeNetworking(defaultResponseCode = HttpURLConnection.HTTP_NOT_FOUND)
+        val callback = RecordingCallback()
+
+        // test
+        NetworkingTransport(networking).send(trackingRequest(), callback)
+
+        // verify
+        Assert.assertEquals(listOf("404"), callback.outcomes)
+        Assert.assertTrue(networking.connections.single().closed)
+    }
+
+    @Test
+    fun send_DiscardsResponseBody() {
+        // setup
+        val body = ByteArrayInputStream(ByteArray(3000))
+        val connection = mockConnection(HttpURLConnection.HTTP_OK)
+        Mockito.`when`(connection.inputStream).thenReturn(body)
+        val callback = RecordingCallback()
+
+        // test
+        val transport = NetworkingTransport(mockNetworking(connection))
+        transport.send(trackingRequest(), callback)
+
+        // verify
+        Assert.assertEquals(listOf("200"), callback.outcomes)
+        Assert.assertEquals(0, body.available())
+        Assert.assertEquals(3000L, transport.discardedResponseByteCount)
+        Assert.assertEquals(1L, transport.responseCount)
+        Mockito.verify(connection, Mockito.times(1)).close()
+    }
+
+    @Test
+    fun send_DiscardsErrorBody() {
+        // setup
+        val connection = mockConnection(HttpURLConnection.HTTP_UNAVAILABLE)
+        Mockito.`when`(connection.errorStream).thenReturn(ByteArrayInputStream(ByteArray(100)))
+        val callback = RecordingCallback()
+
+        // test
+        val transport = NetworkingTransport(mockNetworking(connection))
+        transport.send(trackingRequest(), callback)
+
+        // verify
+        Assert.assertEquals(listOf("503"), callback.outcomes)
+        Assert.assertEquals(100L, transport.discardedResponseByteCount)
+        Mockito.verify(connection, Mockito.times(1)).close()
+    }
+
+    @Test
+    fun send_LargeResponseBody_StopsReading() {
+        // setup
+        val connection = mockConnection(HttpURLConnection.HTTP_OK)
+        Mockito.`when`(connection.inputStream)
+            .thenReturn(ByteArrayInputStream(ByteArray(CampaignClassicConstants.MAX_DISCARDED_RESPONSE_BYTES + 500)))
+
+        // test
+        val transport = NetworkingTransport(mockNetworking(connection))
+        transport.send(trackingRequest(), RecordingCallback())
+
+        // verify
+        Assert.assertEquals(CampaignClassicConstants.MAX_DISCARDED_RESPONSE_BYTES.toLong(), transport.discardedResponseByteCount)
+        Mockito.verify(connection, Mockito.times(1)).close()
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun mockConnection(responseCode: Int): HttpConnecting {
+        val connection = Mockito.mock(HttpConnecting::class.java)
+        Mockito.`when`(connection.responseCode).thenReturn(responseCode)
+        return connection
+    }
+
+    private fun mockNetworking(connection: HttpConnecting): Networking {
+        val networking = Mockito.mock(Networking::class.java)
+        Mockito.`when`(networking.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(connection)
+            null
+        }
+        return networking
+    }
+
+    private fun trackingRequest(): CampaignClassicTransport.Request {
+        return CampaignClassicTransport.Request(
+            "https://testTrackingServer/r/?id=h1,testDeliveryId,1",
+            CampaignClassicTransport.Method.GET,
+            null,
+            arrayOf(),
+            5,
+            5,
+            false
+        )
+    }
+
+    private class RecordingCallback : CampaignClassicTransport.Callback {
+        val outcomes = ArrayList<String>()
+
+        override fun onResponse(statusCode: Int) {
+            outcomes.add(statusCode.toString())
+        }
+
+        override fun onFailure() {
+            outcomes.add("failure")
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.UUID
+
+class ReceiveTrackingSamplerTests {
+
+    // =================================================================================================================
+    // fun isSampled(deliveryId: String, deviceId: String, sampleRate: Double)
+    // =================================================================================================================
+
+    @Test
+    fun isSampled_SampleRateOne_AlwaysSampled() {
+        repeat(1000) {
+            Assert.assertTrue(ReceiveTrackingSampler.isSampled("testDeliveryId", "device$it", 1.0))
+        }
+    }
+
+    @Test
+    fun isSampled_SampleRateZero_NeverSampled() {
+        repeat(1000) {
+            Assert.assertFalse(ReceiveTrackingSampler.isSampled("testDeliveryId", "device$it", 0.0))
+        }
+    }
+
+    @Test
+    fun isSampled_MatchesSampleRateAcrossDevices() {
+        // setup
+        val deviceCount = 20000
+
+        for (sampleRate in listOf(0.01, 0.1, 0.5, 0.9)) {
+            // test
+            val sampled = (0 until deviceCount).count {
+                ReceiveTrackingSampler.isSampled("testDeliveryId", UUID(0L, it.toLong()).toString(), sampleRate)
+            }
+
+            // verify, within 4 standard deviations of the expected count
+            val expected = deviceCount * sampleRate
+            val tolerance = 4 * Math.sqrt(deviceCount * sampleRate * (1 - sampleRate))
+            Assert.assertEquals("sample rate $sampleRate", expected, sampled.toDouble(), tolerance)
+        }
+    }
+
+    @Test
+    fun isSampled_MatchesSampleRateAcrossDeliveries() {
+        // setup
+        val deliveryCount = 20000
+        val sampleRate = 0.25
+
+        // test
+        val sampled = (0 until deliveryCount).count {
+            ReceiveTrackingSampler.isSampled(Integer.toHexString(it), "testDeviceId", sampleRate)
+        }
+
+        // verify
+        val tolerance = 4 * Math.sqrt(deliveryCount * sampleRate * (1 - sampleRate))
+        Assert.assertEquals(deliveryCount * sampleRate, sampled.toDouble(), tolerance)
+    }
+
+    @Test
+    fun isSampled_IsStable() {
+        repeat(100) {
+            val deviceId = "device$it"
+            Assert.assertEquals(
+                ReceiveTrackingSampler.isSampled("testDeliveryId", deviceId, 0.5),
+                ReceiveTrackingSampler.isSampled("testDeliveryId", deviceId, 0.5)
+            )
+        }
+    }
+
+    @Test
+    fun isSampled_SampledDevicesStaySampledWhenSampleRateIncreases() {
+        repeat(1000) {
+            if (ReceiveTrackingSampler.isSampled("testDeliveryId", "device$it", 0.2)) {
+                Assert.assertTrue(ReceiveTrackingSampler.isSampled("testDeliveryId", "device$it", 0.3))
+            }
+        }
+    }
+
+    // =================================================================================================================
+    // fun samplingValue(deliveryId: String, deviceId: String)
+    // =================================================================================================================
+
+    @Test
+    fun samplingValue_InUnitInterval() {
+        repeat(1000) {
+            val value = ReceiveTrackingSampler.samplingValue("delivery$it", "device$it")
+            Assert.assertTrue(value >= 0.0 && value < 1.0)
+        }
+    }
+
+    @Test
+    fun samplingValue_FieldBoundariesAreUnambiguous() {
+        Assert.assertNotEquals(
+            ReceiveTrackingSampler.samplingValue("ab", "c"),
+            ReceiveTrackingSampler.samplingValue("a", "bc"),
+            0.0
+        )
+    }
+
+    @Test
+    fun samplingValue_IndependentAcrossDeliveries() {
+        // setup
+        val deviceCount = 10000
+        val sampleRate = 0.5
+
+        // test, count devices sampled for both deliveries
+        val both = (0 until deviceCount).count {
+            val deviceId = "device$it"
+            ReceiveTrackingSampler.isSampled("delivery1", deviceId, sampleRate) &&
+                ReceiveTrackingSampler.isSampled("delivery2", deviceId, sampleRate)
+        }
+
+        // verify, the same devices are not always sampled
+        val expected = deviceCount * sampleRate * sampleRate
+        val tolerance = 4 * Math.sqrt(expected * (1 - sampleRate * sampleRate))
+        Assert.assertEquals(expected, both.toDouble(), tolerance)
+    }
+}
@@ -0,0 +1,155 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.security.MessageDigest
+
+class RegistrationFingerprintTests {
+
+    private val fingerprint = RegistrationFingerprint()
+
+    // =================================================================================================================
+    // fun compute(registrationToken: String, userKey: String, additionalParameters: Map<String, Any?>, deviceUuid: String)
+    // =================================================================================================================
+
+    @Test
+    fun compute_IsVersionedHex() {
+        // test
+        val result = fingerprint.compute("testToken", "testUser", mapOf("key" to "value"), "deviceUuid")
+
+        // verify
+        Assert.assertTrue(result.matches(Regex("v2:[0-9a-f]{64}")))
+        Assert.assertFalse(RegistrationFingerprint.isLegacy(result))
+    }
+
+    @Test
+    fun compute_IsStable() {
+        Assert.assertEquals(
+            fingerprint.compute("testToken", "testUser", mapOf("key" to "value"), "deviceUuid"),
+            RegistrationFingerprint().compute("testToken", "testUser", mapOf("key" to "value"), "deviceUuid")
+        )
+    }
+
+    @Test
+    fun compute_IndependentOfAdditionalParametersOrder() {
+        // setup
+        val first = linkedMapOf<String, Any?>("a" to "1", "b" to 2, "c" to true)
+        val second = linkedMapOf<String, Any?>("c" to true, "a" to "1", "b" to 2)
+
+        // verify
+        Assert.assertEquals(
+            fingerprint.compute("testToken", "testUser", first, "deviceUuid"),
+            fingerprint.compute("testToken", "testUser", second, "deviceUuid")
+        )
+    }
+
+    @Test
+    fun compute_IgnoresNullAdditionalParameters() {
+        Assert.assertEquals(
+            fingerprint.compute("testToken", "testUser", mapOf("a" to "1"), "deviceUuid"),
+            fingerprint.compute("testToken", "testUser", mapOf("a" to "1", "b" to null), "deviceUuid")
+        )
+    }
+
+    @Test
+    fun compute_DetectsNonLatin1Changes() {
+        // setup
+        val first = fingerprint.compute("testToken", "日本", emptyMap(), "deviceUuid")
+        val second = fingerprint.compute("testToken", "中国", emptyMap(), "deviceUuid")
+
+        // verify, both user keys collapse to the same legacy hash input
+        Assert.assertEquals(
+            RegistrationFingerprint.legacyHash("testToken日本"),
+            RegistrationFingerprint.legacyHash("testToken中国")
+        )
+        Assert.assertNotEquals(first, second)
+    }
+
+    @Test
+    fun compute_FieldBoundariesAreUnambiguous() {
+        Assert.assertNotEquals(
+            fingerprint.compute("ab", "c", emptyMap(), ""),
+            fingerprint.compute("a", "bc", emptyMap(), "")
+        )
+        Assert.assertNotEquals(
+            fingerprint.compute("testToken", "testUser", mapOf("ab" to "c"), ""),
+            fingerprint.compute("testToken", "testUser", mapOf("a" to "bc"), "")
+        )
+    }
+
+    @Test
+    fun compute_DetectsValueChanges() {
+        Assert.assertNotEquals(
+            fingerprint.compute("testToken", "testUser", mapOf("key" to "value"), "deviceUuid"),
+            fingerprint.compute("testToken", "testUser", mapOf("key" to "value2"), "deviceUuid")
+        )
+        Assert.assertNotEquals(
+            fingerprint.compute("testToken", "testUser", emptyMap(), "deviceUuid"),
+            fingerprint.compute("testToken", "testUser", emptyMap(), "deviceUuid2")
+        )
+    }
+
+    @Test
+    fun compute_NonAsciiAndSurrogatePairFields_PrefixedWithCharCountAndUtf8Encoded() {
+        // setup
+        val userKey = "José \uD83D\uDE00"
+        val additionalValue = "\u65E5\u672C"
+
+        // test
+        val result = fingerprint.compute("testToken", userKey, mapOf("key" to additionalValue), "deviceUuid")
+
+        // verify
+        val expected = ByteArrayOutputStream()
+        for (field in listOf("testToken", userKey, "deviceUuid")) {
+            expected.writeField(field)
+        }
+        expected.writeLength(1)
+        expected.writeField("key")
+        expected.writeField(additionalValue)
+        val digest = MessageDigest.getInstance("SHA-256").digest(expected.toByteArray())
+        Assert.assertEquals(
+            RegistrationFingerprint.VERSION_PREFIX + digest.joinToString("") { String.format("%02x", it) },
+            result
+        )
+    }
+
+    // =================================================================================================================
+    // fun legacyHash(input: String)
+    // =================================================================================================================
+
+    @Test
+    fun legacyHash_MatchesPersistedFormat() {
+        Assert.assertEquals(
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            RegistrationFingerprint.legacyHash("abc")
+        )
+        Assert.assertTrue(RegistrationFingerprint.isLegacy(RegistrationFingerprint.legacyHash("abc")))
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun ByteArrayOutputStream.writeField(value: String) {
+        writeLength(value.length)
+        write(value.toByteArray(Charsets.UTF_8))
+    }
+
+    private fun ByteArrayOutputStream.writeLength(length: Int) {
+        write(length ushr 24)
+        write(length ushr 16)
+        write(length ushr 8)
+        write(length)
+    }
+}
@@ -15,8 +15,6 @@ import com.adobe.marketing.mobile.EventSource
 import com.adobe.marketing.mobile.EventType
 import com.adobe.marketing.mobile.ExtensionApi
 import com.adobe.marketing.mobile.MobilePrivacyStatus
-import com.adobe.marketing.mobile.SharedStateResult
-import com.adobe.marketing.mobile.SharedStateStatus
 import com.adobe.marketing.mobile.services.DeviceInforming
 import com.adobe.marketing.mobile.services.HttpConnecting
 import com.adobe.marketing.mobile.services.NamedCollection
@@ -32,7 +30,15 @@ import org.mockito.ArgumentMatchers
 import org.mockito.Mockito
 import org.mockito.junit.MockitoJUnitRunner
 import java.net.HttpURLConnection
+import java.util.Collections
 import java.util.Locale
+import java.util.Random
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 
 @RunWith(MockitoJUnitRunner.Silent::class)
 class RegistrationManagerTests {
@@ -42,6 +48,7 @@ class RegistrationManagerTests {
     private lateinit var dataStore: NamedCollection
     private lateinit var networkService: Networking
     private lateinit var registrationManager: RegistrationManager
+    private var configuration = CampaignClassicConfiguration.fromSharedState(null)
 
     @Before
     fun setup() {
@@ -67,7 +74,7 @@ class RegistrationManagerTests {
     }
 
     // =================================================================================================================
-    // fun registerDevice(event: Event)
+    // fun registerDevice(event: Event, configData: CampaignClassicConfiguration)
     // =================================================================================================================
     @Test
     fun registerDevice_Happy() {
@@ -75,7 +82,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify network call
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -112,6 +119,31 @@ class RegistrationManagerTests {
         )
     }
 
+    @Test
+    fun registerDevice_NonAsciiPayload_ContentLengthIsByteCount() {
+        // setup
+        setConfigurationSharedState()
+
+        // test
+        registrationManager.registerDevice(
+            getRegisterDeviceEvent(userToken = "us\u00e9r", additionalParams = mapOf("cl\u00e9" to "\u65e5\u672c")),
+            configuration
+        )
+
+        // verify network call
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+
+        // verify payload and header
+        val payload = networkRequestCaptor.value.payloadAsString()
+        Assert.assertTrue(payload.contains("userKey=us%C3%A9r&"))
+        Assert.assertTrue(payload.contains("%3Cparam%20name%3D%22cl%C3%A9%22%20value%3D%22%E6%97%A5%E6%9C%AC%22%2F%3E"))
+        Assert.assertEquals(
+            networkRequestCaptor.value.body.size.toString(),
+            networkRequestCaptor.value.headers["Content-Length"]
+        )
+    }
+
     @Test
     fun registerDevice_WhenNetworkSuccess_ThenStoreToken() {
         // setup
@@ -124,14 +156,14 @@ class RegistrationManagerTests {
         }
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify network call
         Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
 
         // verify hashed token is stored
         val dataStoreCaptor = ArgumentCaptor.forClass(String::class.java)
-        Mockito.verify(dataStore, Mockito.times(1)).setString(ArgumentMatchers.anyString(), dataStoreCaptor.capture())
+        Mockito.verify(dataStore, Mockito.times(1)).setString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), dataStoreCaptor.capture())
         Assert.assertNotNull(dataStoreCaptor.value)
     }
 
@@ -148,7 +180,7 @@ class RegistrationManagerTests {
         }
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify network call
         Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
@@ -165,7 +197,7 @@ class RegistrationManagerTests {
     @Test
     fun registerDevice_ConfigurationNotSet() {
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -178,7 +210,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(deviceToken = null))
+        registrationManager.registerDevice(getRegisterDeviceEvent(deviceToken = null), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -191,7 +223,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(deviceToken = ""))
+        registrationManager.registerDevice(getRegisterDeviceEvent(deviceToken = ""), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -204,7 +236,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = null))
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = null), configuration)
 
         // verify network call is still made with correct payload
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -218,7 +250,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = ""))
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = ""), configuration)
 
         // verify network call is still made with correct payload
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -232,7 +264,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(additionalParams = null))
+        registrationManager.registerDevice(getRegisterDeviceEvent(additionalParams = null), configuration)
 
         // verify network call is still made with correct payload
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -249,7 +281,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent(additionalParams = emptyMap()))
+        registrationManager.registerDevice(getRegisterDeviceEvent(additionalParams = emptyMap()), configuration)
 
         // verify network call is still made with correct payload
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -266,7 +298,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(marketingServer = null)
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -279,7 +311,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(marketingServer = "")
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -292,7 +324,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(integrationKey = null)
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -305,7 +337,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(integrationKey = "")
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -318,7 +350,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.OPT_OUT)
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -331,7 +363,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(privacyStatus = MobilePrivacyStatus.UNKNOWN)
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verifyNoInteractions(networkService)
@@ -347,10 +379,53 @@ class RegistrationManagerTests {
             .thenReturn("b1315b4b0514a6092451017162124d59dea702370eed96077e3d524fe6ce899d")
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify no network call
         Mockito.verifyNoInteractions(networkService)
+
+        // verify the legacy hash is migrated
+        val dataStoreCaptor = ArgumentCaptor.forClass(String::class.java)
+        Mockito.verify(dataStore, Mockito.times(1)).setString(
+            ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH),
+            dataStoreCaptor.capture()
+        )
+        Assert.assertTrue(dataStoreCaptor.value.startsWith("v2:"))
+    }
+
+    @Test
+    fun registerDevice_WhenCalledWithSameDetailsAfterMigration() {
+        // setup
+        setConfigurationSharedState()
+        val dataStoreCaptor = ArgumentCaptor.forClass(String::class.java)
+        Mockito.`when`(dataStore.getString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.any()))
+            .thenReturn("b1315b4b0514a6092451017162124d59dea702370eed96077e3d524fe6ce899d")
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+        Mockito.verify(dataStore).setString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), dataStoreCaptor.capture())
+        Mockito.`when`(dataStore.getString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.any()))
+            .thenReturn(dataStoreCaptor.value)
+
+        // test
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify no network call and no further writes
+        Mockito.verifyNoInteractions(networkService)
+        Mockito.verify(dataStore, Mockito.times(1)).setString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.anyString())
+    }
+
+    @Test
+    fun registerDevice_WhenLegacyHashDoesNotMatch() {
+        // setup
+        setConfigurationSharedState()
+        Mockito.`when`(dataStore.getString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.any()))
+            .thenReturn("b1315b4b0514a6092451017162124d59dea702370eed96077e3d524fe6ce899d")
+
+        // test
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = "otherUser"), configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Mockito.verify(dataStore, Mockito.times(0)).setString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.anyString())
     }
 
     @Test
@@ -359,7 +434,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        RegistrationManager(extensionApi, deviceInfoService, dataStore, null).registerDevice(getRegisterDeviceEvent())
+        RegistrationManager(extensionApi, deviceInfoService, dataStore, null).registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verify(dataStore, Mockito.times(0)).setString(
@@ -376,7 +451,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState()
 
         // test
-        RegistrationManager(extensionApi, deviceInfoService, null, networkService).registerDevice(getRegisterDeviceEvent())
+        RegistrationManager(extensionApi, deviceInfoService, null, networkService).registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
         Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
@@ -388,7 +463,7 @@ class RegistrationManagerTests {
         setConfigurationSharedState(timeout = 20)
 
         // test
-        registrationManager.registerDevice(getRegisterDeviceEvent())
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify network call is still made with correct payload
         val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
@@ -397,68 +472,1140 @@ class RegistrationManagerTests {
         Assert.assertEquals(20, networkRequestCaptor.value.readTimeout)
     }
 
-    // =================================================================================================================
-    // fun clearRegistrationData(event: Event)
-    // =================================================================================================================
+    @Test
+    fun registerDevice_WhenIdenticalRequestInFlight_ThenSendsOnce() {
+        // setup, the network callback is never invoked so the request stays in flight
+        setConfigurationSharedState()
+
+        // test
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertEquals(1, registrationManager.sentRequestCount)
+        Assert.assertEquals(2, registrationManager.coalescedRequestCount)
+    }
 
     @Test
-    fun clearRegistrationData() {
+    fun registerDevice_WhenInFlightRequestCompletes_ThenSendsAgain() {
+        // setup
+        setConfigurationSharedState()
+        val connection = Mockito.mock(HttpConnecting::class.java)
+        Mockito.`when`(connection.responseCode).thenReturn(HttpURLConnection.HTTP_BAD_REQUEST)
+        Mockito.`when`(networkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(connection)
+            null
+        }
+
         // test
-        registrationManager.clearRegistrationData()
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
+        registrationManager.registerDevice(getRegisterDeviceEvent(), configuration)
 
         // verify
-        Mockito.verify(dataStore, Mockito.times(1)).remove(
-            ArgumentMatchers.eq(
-                CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH
-            )
+        Mockito.verify(networkService, Mockito.times(2)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertEquals(2, registrationManager.sentRequestCount)
+        Assert.assertEquals(0, registrationManager.coalescedRequestCount)
+    }
+
+    @Test
+    fun registerDevice_WhenDifferentRequestInFlight_ThenSendsBoth() {
+        // setup
+        setConfigurationSharedState()
+
+        // test
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(2)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertEquals(0, registrationManager.coalescedRequestCount)
+    }
+
+    @Test
+    fun registerDevice_WhenDebounceSet_ThenSendsLatestRequest() {
+        // setup
+        setConfigurationSharedState(registrationDebounceSeconds = 2)
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user3"), configuration)
+
+        // verify nothing is sent within the window
+        Assert.assertEquals(0, networking.requests.size)
+        Assert.assertEquals(listOf(2000L), scheduledDelays)
+
+        // verify only the latest request is sent once the window ends
+        runScheduledTask()
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertTrue(networking.requests[0].payloadAsString().contains("userKey=user3"))
+        Assert.assertEquals(1, manager.sentRequestCount)
+        Assert.assertEquals(2, manager.coalescedRequestCount)
+    }
+
+    @Test
+    fun registerDevice_WhenDebounceSetAndDataCleared_ThenDropsPendingRequest() {
+        // setup
+        setConfigurationSharedState(registrationDebounceSeconds = 1)
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.clearRegistrationData()
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(0, networking.requests.size)
+        Assert.assertEquals(0, manager.sentRequestCount)
+    }
+
+    @Test
+    fun registerDevice_WhenRateExceeded_ThenDropsRequests() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val rateLimiter = TokenBucketRateLimiter(10, 2) { 0L }
+        val manager = createRetryingRegistrationManager(networking, rateLimiter = rateLimiter)
+
+        // test
+        repeat(5) {
+            manager.registerDevice(getRegisterDeviceEvent(userToken = "user$it"), configuration)
+        }
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertEquals(3, rateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun registerDevice_WhenRegistrationUnchanged_ThenDoesNotUseRateLimit() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val rateLimiter = TokenBucketRateLimiter(10, 2) { 0L }
+        val manager = createRetryingRegistrationManager(networking, rateLimiter = rateLimiter)
+
+        // test
+        repeat(5) {
+            manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        }
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(0, rateLimiter.rejectedRequestCount)
+        Assert.assertTrue(rateLimiter.tryAcquire())
+    }
+
+    @Test
+    fun registerDevice_WhenIdenticalRequestInFlight_ThenDoesNotUseRateLimit() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.deferCompletions = true
+        val rateLimiter = TokenBucketRateLimiter(10, 2) { 0L }
+        val manager = createRetryingRegistrationManager(networking, rateLimiter = rateLimiter)
+
+        // test
+        repeat(5) {
+            manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        }
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(0, rateLimiter.rejectedRequestCount)
+        Assert.assertTrue(rateLimiter.tryAcquire())
+    }
+
+    @Test
+    fun registerDevice_WhenDebounceSet_ThenOnlySentRequestUsesRateLimit() {
+        // setup
+        setConfigurationSharedState(registrationDebounceSeconds = 1)
+        val networking = FakeNetworking()
+        val rateLimiter = TokenBucketRateLimiter(10, 1) { 0L }
+        val manager = createRetryingRegistrationManager(networking, rateLimiter = rateLimiter)
+
+        // test
+        repeat(3) {
+            manager.registerDevice(getRegisterDeviceEvent(userToken = "user$it"), configuration)
+        }
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(0, rateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun registerDevice_DeviceInfoReadOncePerProcess() {
+        // setup
+        setConfigurationSharedState()
+
+        // test
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+        registrationManager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(2)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Mockito.verify(deviceInfoService, Mockito.times(1)).deviceUniqueId
+        Mockito.verify(deviceInfoService, Mockito.times(1)).deviceManufacturer
+        Mockito.verify(deviceInfoService, Mockito.times(2)).activeLocale
+    }
+
+    @Test
+    fun registerDevice_WhenNetworkSuccess_ThenTokenStoredAsynchronously() {
+        // setup
+        setConfigurationSharedState()
+        val dataStoreTasks = ArrayList<Runnable>()
+        val manager = RegistrationManager(
+            extensionApi,
+            deviceInfoService,
+            dataStore,
+            FakeNetworking(),
+            dataStoreExecutor = { dataStoreTasks.add(it) }
+        )
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify the stored hash is served from memory and persisted once flushed
+        Mockito.verify(dataStore, Mockito.times(1)).getString(ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH), ArgumentMatchers.any())
+        Mockito.verify(dataStore, Mockito.never()).setString(ArgumentMatchers.anyString(), ArgumentMatchers.anyString())
+        Assert.assertEquals(1, dataStoreTasks.size)
+        dataStoreTasks.removeAt(0).run()
+        Mockito.verify(dataStore, Mockito.times(1)).setString(
+            ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH),
+            ArgumentMatchers.anyString()
         )
     }
 
     // =================================================================================================================
-    // private methods
+    // registration state
     // =================================================================================================================
 
-    private fun setConfigurationSharedState(
-        marketingServer: String? = "testMarketingServer",
-        integrationKey: String? = "testIntegrationKey",
-        timeout: Int = 5,
-        privacyStatus: MobilePrivacyStatus = MobilePrivacyStatus.OPT_IN
-    ) {
-        Mockito.`when`(
-            extensionApi.getSharedState(
-                ArgumentMatchers.eq(CampaignClassicTestConstants.EventDataKeys.Configuration.EXTENSION_NAME),
-                ArgumentMatchers.any(),
-                ArgumentMatchers.anyBoolean(),
-                ArgumentMatchers.any()
-            )
-        ).thenReturn(
-            SharedStateResult(
-                SharedStateStatus.SET,
-                mapOf(
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER to marketingServer,
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER to "",
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY to integrationKey,
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT to timeout,
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value
-                )
-            )
-        )
+    @Test
+    fun registerDevice_WhenCompletedAfterClear_ThenDiscarded() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.deferCompletions = true
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        manager.clearRegistrationData()
+        networking.takeDeferredCompletions().forEach { it() }
+
+        // verify the opt-out clear is not undone
+        Assert.assertNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
     }
 
-    private fun getRegisterDeviceEvent(
-        deviceToken: String? = "testToken",
-        userToken: String? = "testUser",
-        additionalParams: Map<String, String>? = mapOf("key" to "value")
-    ): Event {
-        return Event.Builder("Register Device", EventType.CAMPAIGN, EventSource.REQUEST_CONTENT)
-            .setEventData(
-                mapOf(
-                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.DEVICE_TOKEN to deviceToken,
-                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.USER_KEY to userToken,
-                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.ADDITIONAL_PARAMETERS to additionalParams
-                )
-            )
-            .build()
+    @Test
+    fun registerDevice_WhenCompletedOutOfOrder_ThenLatestRequestWins() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.deferCompletions = true
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+        val firstCompletion = networking.takeDeferredCompletions().single()
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+        val secondCompletion = networking.takeDeferredCompletions().single()
+
+        // test
+        secondCompletion()
+        val latestHash = persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH]
+        firstCompletion()
+
+        // verify
+        Assert.assertNotNull(latestHash)
+        Assert.assertEquals(latestHash, persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+
+        // verify the latest registration is not sent again
+        networking.deferCompletions = false
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+        Assert.assertEquals(2, networking.requests.size)
+    }
+
+    @Test
+    fun registerDevice_WhenUnchangedSinceLastCheck_ThenDoesNotComputeFingerprint() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        val fingerprintConstruction = Mockito.mockConstruction(RegistrationFingerprint::class.java)
+        try {
+            manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+            // verify
+            Assert.assertTrue(fingerprintConstruction.constructed().isEmpty())
+        } finally {
+            fingerprintConstruction.close()
+        }
+        Assert.assertEquals(1, networking.requests.size)
+    }
+
+    @Test
+    fun registerDevice_WhenClearedAfterUnchangedCheck_ThenSendsAgain() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.clearRegistrationData()
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+    }
+
+    @Test
+    fun registerDevice_WhenRegisteredAgainAfterClear_ThenStored() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.clearRegistrationData()
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertNotNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+    }
+
+    @Test
+    fun registerDevice_PersistsRegistrationStatus() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.deferCompletions = true
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.PENDING, persistedRegistrationState().status)
+
+        // test
+        networking.takeDeferredCompletions().forEach { it() }
+
+        // verify
+        val state = persistedRegistrationState()
+        Assert.assertEquals(RegistrationStatus.REGISTERED, state.status)
+        Assert.assertEquals("testMarketingServer", state.marketingServer)
+        Assert.assertEquals("testIntegrationKey", state.integrationKey)
+        Assert.assertEquals(currentTime, state.registeredTimestamp)
+    }
+
+    @Test
+    fun registerDevice_WhenRecoverableError_ThenStatusFailedWithRetryAfter() {
+        // setup
+        setConfigurationSharedState()
+        val manager = createRetryingRegistrationManager(FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE))
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        val state = persistedRegistrationState()
+        Assert.assertEquals(RegistrationStatus.FAILED, state.status)
+        Assert.assertEquals(currentTime + 2500, state.retryAfterTimestamp)
+    }
+
+    @Test
+    fun registerDevice_WhenUnrecoverableError_ThenStatusFailed() {
+        // setup
+        setConfigurationSharedState()
+        val manager = createRetryingRegistrationManager(FakeNetworking(HttpURLConnection.HTTP_BAD_REQUEST))
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        val state = persistedRegistrationState()
+        Assert.assertEquals(RegistrationStatus.FAILED, state.status)
+        Assert.assertEquals(0, state.retryAfterTimestamp)
+    }
+
+    @Test
+    fun registerDevice_WhenMarketingServerChanged_ThenRegistersOnce() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        createRetryingRegistrationManager(networking).registerDevice(getRegisterDeviceEvent(), configuration)
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+
+        // test, after a restart
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertEquals("https://otherMarketingServer/nms/mobile/1/registerAndroid.jssp", networking.requests[1].url)
+        Assert.assertEquals("otherMarketingServer", persistedRegistrationState().marketingServer)
+    }
+
+    @Test
+    fun registerDevice_WhenIntegrationKeyChanged_ThenRegistersOnce() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        setConfigurationSharedState(integrationKey = "otherIntegrationKey")
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertTrue(networking.requests[1].payloadAsString().contains("mobileAppUuid=otherIntegrationKey"))
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenRegistered_ThenRetryNotRead() {
+        // setup
+        setConfigurationSharedState()
+        createRetryingRegistrationManager(FakeNetworking()).registerDevice(getRegisterDeviceEvent(), configuration)
+        persistedValues[RETRY_KEY] = "{}"
+        readKeys.clear()
+
+        // test
+        createRetryingRegistrationManager(FakeNetworking()).resumeRegistrationRetry(configuration)
+
+        // verify
+        Assert.assertFalse(readKeys.contains(RETRY_KEY))
+        Assert.assertTrue(scheduledTasks.isEmpty())
+    }
+
+    @Test
+    fun registerDevice_StressConcurrentRegisterClearAndCompletions() {
+        // setup
+        setConfigurationSharedState()
+        val threadCount = 8
+        val iterations = 200
+        val executor = Executors.newFixedThreadPool(threadCount)
+
+        try {
+            repeat(20) { round ->
+                persistedValues.clear()
+                val networking = FakeNetworking()
+                networking.deferCompletions = true
+                val manager = createRetryingRegistrationManager(networking, rateLimiter = TokenBucketRateLimiter(1000, 1000))
+                val start = CountDownLatch(1)
+
+                // test, interleave registrations, opt-out clears and network completions
+                val futures = (0 until threadCount).map { thread ->
+                    executor.submit {
+                        start.await()
+                        for (i in 0 until iterations) {
+                            when ((i + thread) % 4) {
+                                0, 1 -> manager.registerDevice(getRegisterDeviceEvent(userToken = "user${(i + round) % 5}"), configuration)
+                                2 -> networking.takeDeferredCompletions().forEach { it() }
+                                else -> if (thread == 0) manager.clearRegistrationData()
+                            }
+                        }
+                    }
+                }
+                start.countDown()
+                futures.forEach { it.get(30, TimeUnit.SECONDS) }
+
+                // opt-out, then complete every request still in flight
+                manager.clearRegistrationData()
+                val stale = networking.takeDeferredCompletions()
+                val completions = stale.chunked(maxOf(1, stale.size / threadCount)).map { chunk ->
+                    executor.submit { chunk.forEach { it() } }
+                }
+                completions.forEach { it.get(30, TimeUnit.SECONDS) }
+
+                // verify
+                Assert.assertNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+                networking.deferCompletions = false
+                val sent = networking.requests.size
+                manager.registerDevice(getRegisterDeviceEvent(userToken = "user0"), configuration)
+                Assert.assertEquals(sent + 1, networking.requests.size)
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    // =================================================================================================================
+    // registration retry
+    // =================================================================================================================
+
+    @Test
+    fun registerDevice_WhenRecoverableError_ThenRetriesWithBackoff() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE, null, HttpURLConnection.HTTP_OK)
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify first retry is persisted and scheduled
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(listOf(2500L), scheduledDelays)
+        Assert.assertEquals(1, RegistrationRetry.from(persistedValues[RETRY_KEY])?.attempt)
+
+        // test, connection failure
+        runScheduledTask()
+
+        // verify second retry doubles the delay
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertEquals(listOf(2500L, 5000L), scheduledDelays)
+        Assert.assertEquals(2, RegistrationRetry.from(persistedValues[RETRY_KEY])?.attempt)
+
+        // test, success
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(3, networking.requests.size)
+        Assert.assertArrayEquals(networking.requests[0].body, networking.requests[2].body)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+        Assert.assertNotNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+        Assert.assertTrue(networking.connections.all { it.closed })
+    }
+
+    @Test
+    fun registerDevice_WhenRetryDue_ThenSendsOnWorker() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE, HttpURLConnection.HTTP_OK)
+        val workerTasks = ArrayList<Runnable>()
+        val manager = createRetryingRegistrationManager(networking) { workerTasks.add(it) }
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        runScheduledTask()
+
+        // verify the retry is only queued on the worker
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(1, workerTasks.size)
+
+        // test
+        workerTasks.removeAt(0).run()
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun registerDevice_WhenDataClearedBeforeWorkerRunsRetry_ThenDropsRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        val workerTasks = ArrayList<Runnable>()
+        val manager = createRetryingRegistrationManager(networking) { workerTasks.add(it) }
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        runScheduledTask()
+
+        // test, the clear queued on the worker before the retry runs first
+        manager.clearRegistrationData()
+        workerTasks.removeAt(0).run()
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+        Assert.assertNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+    }
+
+    @Test
+    fun registerDevice_WhenDebounceWindowEnds_ThenSendsOnWorker() {
+        // setup
+        setConfigurationSharedState(registrationDebounceSeconds = 1)
+        val networking = FakeNetworking()
+        val workerTasks = ArrayList<Runnable>()
+        val manager = createRetryingRegistrationManager(networking) { workerTasks.add(it) }
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(0, networking.requests.size)
+        workerTasks.removeAt(0).run()
+        Assert.assertEquals(1, networking.requests.size)
+    }
+
+    @Test
+    fun registerDevice_WhenUnrecoverableError_ThenDoesNotRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_BAD_REQUEST)
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertTrue(scheduledTasks.isEmpty())
+        Assert.assertNull(persistedValues[RETRY_KEY])
+        Assert.assertNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+    }
+
+    @Test
+    fun registerDevice_WhenTooManyRequests_ThenRetries() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(429)
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(1, scheduledTasks.size)
+    }
+
+    @Test
+    fun registerDevice_WhenRetriesExhausted_ThenDropsRequest() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        val manager = createRetryingRegistrationManager(networking)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        while (scheduledTasks.isNotEmpty()) {
+            runScheduledTask()
+        }
+
+        // verify
+        Assert.assertEquals(1 + CampaignClassicTestConstants.REGISTRATION_RETRY_MAX_ATTEMPTS, networking.requests.size)
+        Assert.assertEquals(CampaignClassicTestConstants.REGISTRATION_RETRY_MAX_ATTEMPTS, scheduledDelays.size)
+        Assert.assertTrue(scheduledDelays.all { it <= TimeUnit.MINUTES.toMillis(30) })
+        Assert.assertEquals(TimeUnit.MINUTES.toMillis(15), scheduledDelays.last())
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun registerDevice_WhenNewRegistrationSent_ThenSupersedesRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE, HttpURLConnection.HTTP_OK)
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+        runScheduledTask()
+
+        // verify the retry of the first registration is not sent
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertTrue(networking.requests[1].payloadAsString().contains("userKey=user2"))
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun registerDevice_WhenIdenticalRegistrationPendingRetry_ThenNotSent() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(1, manager.coalescedRequestCount)
+    }
+
+    @Test
+    fun resumeRegistrationRetry_AfterRestart() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        createRetryingRegistrationManager(networking).registerDevice(getRegisterDeviceEvent(), configuration)
+        scheduledTasks.clear()
+        scheduledDelays.clear()
+        currentTime += 1000
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+
+        // test
+        val restartedManager = createRetryingRegistrationManager(networking)
+        restartedManager.resumeRegistrationRetry(configuration)
+        restartedManager.resumeRegistrationRetry(configuration)
+
+        // verify the remaining delay is used
+        Assert.assertEquals(listOf(1500L), scheduledDelays)
+
+        // test, the app registers the device again on launch
+        restartedManager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify the registration waits for the retry
+        Assert.assertEquals(1, networking.requests.size)
+
+        // test
+        runScheduledTask()
+
+        // verify the request is rebuilt from the registration information
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertArrayEquals(networking.requests[0].body, networking.requests[1].body)
+        Assert.assertEquals(networking.requests[0].url, networking.requests[1].url)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+        Assert.assertNotNull(persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH])
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenNoRegistrationRequested_ThenDropsRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        createRetryingRegistrationManager(networking).registerDevice(getRegisterDeviceEvent(), configuration)
+        scheduledTasks.clear()
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+        val restartedManager = createRetryingRegistrationManager(networking)
+        restartedManager.resumeRegistrationRetry(configuration)
+
+        // test
+        runScheduledTask()
+
+        // verify the persisted request is not sent without its registration information
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+
+        // test
+        restartedManager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertArrayEquals(networking.requests[0].body, networking.requests[1].body)
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenRegistrationInfoChanged_ThenSendsNewRequest() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        createRetryingRegistrationManager(networking).registerDevice(getRegisterDeviceEvent(userToken = "user1"), configuration)
+        scheduledTasks.clear()
+        networking.defaultResponseCode = HttpURLConnection.HTTP_OK
+        val restartedManager = createRetryingRegistrationManager(networking)
+        restartedManager.resumeRegistrationRetry(configuration)
+
+        // test
+        restartedManager.registerDevice(getRegisterDeviceEvent(userToken = "user2"), configuration)
+        while (scheduledTasks.isNotEmpty()) {
+            runScheduledTask()
+        }
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertTrue(networking.requests[1].payloadAsString().contains("userKey=user2"))
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun registerDevice_WhenRecoverableError_ThenPersistsRetryWithoutRegistrationInfo() {
+        // setup
+        setConfigurationSharedState()
+        val manager = createRetryingRegistrationManager(FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE))
+
+        // test
+        manager.registerDevice(getRegisterDeviceEvent(deviceToken = "secretToken", userToken = "user@example.com"), configuration)
+
+        // verify
+        val persistedRetry = persistedValues[RETRY_KEY]
+        Assert.assertNotNull(persistedRetry)
+        Assert.assertFalse(persistedRetry!!.contains("secretToken"))
+        Assert.assertFalse(persistedRetry.contains("user"))
+        Assert.assertFalse(persistedRetry.contains("value"))
+        Assert.assertNull(RegistrationRetry.from(persistedRetry)?.request)
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenOverdue_ThenSendsImmediately() {
+        // setup
+        setConfigurationSharedState()
+        createRetryingRegistrationManager(FakeNetworking(null)).registerDevice(getRegisterDeviceEvent(), configuration)
+        scheduledDelays.clear()
+        currentTime += TimeUnit.DAYS.toMillis(1)
+
+        // test
+        createRetryingRegistrationManager(FakeNetworking()).resumeRegistrationRetry(configuration)
+
+        // verify
+        Assert.assertEquals(listOf(0L), scheduledDelays)
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenMarketingServerChanged_ThenDropsRequest() {
+        // setup
+        setConfigurationSharedState()
+        createRetryingRegistrationManager(FakeNetworking(null)).registerDevice(getRegisterDeviceEvent(), configuration)
+        scheduledTasks.clear()
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+
+        // test
+        createRetryingRegistrationManager(FakeNetworking()).resumeRegistrationRetry(configuration)
+
+        // verify
+        Assert.assertTrue(scheduledTasks.isEmpty())
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun resumeRegistrationRetry_WhenNothingPersisted() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+
+        // test
+        createRetryingRegistrationManager(networking).resumeRegistrationRetry(configuration)
+
+        // verify
+        Assert.assertTrue(scheduledTasks.isEmpty())
+        Assert.assertTrue(networking.requests.isEmpty())
+    }
+
+    @Test
+    fun clearRegistrationData_DiscardsRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        manager.clearRegistrationData()
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    @Test
+    fun clearRegistrationData_DiscardsRestoredRetry() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking(HttpURLConnection.HTTP_UNAVAILABLE)
+        createRetryingRegistrationManager(networking).registerDevice(getRegisterDeviceEvent(), configuration)
+        scheduledTasks.clear()
+        val restartedManager = createRetryingRegistrationManager(networking)
+        restartedManager.resumeRegistrationRetry(configuration)
+        restartedManager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // test
+        restartedManager.clearRegistrationData()
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertNull(persistedValues[RETRY_KEY])
+    }
+
+    // =================================================================================================================
+    // fun handleRegistrationConfigurationChange(configData: CampaignClassicConfiguration)
+    // =================================================================================================================
+
+    @Test
+    fun handleRegistrationConfigurationChange_RegistersWithNewMarketingServer() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+
+        // test
+        manager.handleRegistrationConfigurationChange(configuration)
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertEquals("https://otherMarketingServer/nms/mobile/1/registerAndroid.jssp", networking.requests[1].url)
+        Assert.assertArrayEquals(networking.requests[0].body, networking.requests[1].body)
+        Assert.assertEquals(RegistrationStatus.REGISTERED, persistedRegistrationState().status)
+        Assert.assertEquals("otherMarketingServer", persistedRegistrationState().marketingServer)
+    }
+
+    @Test
+    fun handleRegistrationConfigurationChange_DropsRetryForPreviousMarketingServer() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        networking.enqueueResponses(HttpURLConnection.HTTP_UNAVAILABLE)
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+
+        // test
+        manager.handleRegistrationConfigurationChange(configuration)
+        runScheduledTask()
+
+        // verify
+        Assert.assertEquals(2, networking.requests.size)
+        Assert.assertTrue(networking.requests[1].url.contains("otherMarketingServer"))
+        Assert.assertNull(persistedValues[RETRY_KEY])
+        Assert.assertEquals(RegistrationStatus.REGISTERED, persistedRegistrationState().status)
+    }
+
+    @Test
+    fun handleRegistrationConfigurationChange_AfterUpgrade_RegistersWithNewMarketingServer() {
+        // setup, registration persisted by a previous version of the extension
+        persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH] =
+            "b1315b4b0514a6092451017162124d59dea702370eed96077e3d524fe6ce899d"
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.resumeRegistrationRetry(configuration)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        Assert.assertTrue(networking.requests.isEmpty())
+        Assert.assertEquals("testMarketingServer", persistedRegistrationState().marketingServer)
+        Assert.assertEquals("testIntegrationKey", persistedRegistrationState().integrationKey)
+
+        // test
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+        manager.handleRegistrationConfigurationChange(configuration)
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals("https://otherMarketingServer/nms/mobile/1/registerAndroid.jssp", networking.requests[0].url)
+        Assert.assertEquals("otherMarketingServer", persistedRegistrationState().marketingServer)
+    }
+
+    @Test
+    fun registerDevice_AfterUpgradeAndMarketingServerChange_Registers() {
+        // setup, registration persisted by a previous version of the extension
+        persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH] =
+            "b1315b4b0514a6092451017162124d59dea702370eed96077e3d524fe6ce899d"
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.resumeRegistrationRetry(configuration)
+
+        // test
+        setConfigurationSharedState(integrationKey = "otherIntegrationKey")
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals("otherIntegrationKey", persistedRegistrationState().integrationKey)
+    }
+
+    @Test
+    fun handleRegistrationConfigurationChange_WhenNoRegistrationRequested() {
+        // setup
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+        val networking = FakeNetworking()
+
+        // test
+        createRetryingRegistrationManager(networking).handleRegistrationConfigurationChange(configuration)
+
+        // verify
+        Assert.assertTrue(networking.requests.isEmpty())
+    }
+
+    @Test
+    fun handleRegistrationConfigurationChange_AfterRegistrationDataCleared() {
+        // setup
+        setConfigurationSharedState()
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        manager.clearRegistrationData()
+        setConfigurationSharedState(marketingServer = "otherMarketingServer")
+
+        // test
+        manager.handleRegistrationConfigurationChange(configuration)
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+    }
+
+    // =================================================================================================================
+    // fun shutdown()
+    // =================================================================================================================
+
+    @Test
+    fun shutdown_PersistsPendingWritesAndStopsScheduler() {
+        // setup
+        setConfigurationSharedState()
+        val scheduler = Mockito.mock(ScheduledExecutorService::class.java)
+        val dataStoreTasks = ArrayList<Runnable>()
+        val manager = RegistrationManager(
+            extensionApi,
+            deviceInfoService,
+            dataStore,
+            FakeNetworking(),
+            scheduler,
+            dataStoreExecutor = { dataStoreTasks.add(it) }
+        )
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        Mockito.verify(dataStore, Mockito.never()).setString(ArgumentMatchers.anyString(), ArgumentMatchers.anyString())
+
+        // test
+        manager.shutdown()
+
+        // verify
+        Mockito.verify(dataStore, Mockito.times(1)).setString(
+            ArgumentMatchers.eq(CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH),
+            ArgumentMatchers.anyString()
+        )
+        Mockito.verify(scheduler, Mockito.times(1)).shutdown()
+    }
+
+    @Test
+    fun shutdown_SendsRegistrationWaitingForDebounce() {
+        // setup
+        setConfigurationSharedState(registrationDebounceSeconds = 1)
+        val networking = FakeNetworking()
+        val manager = createRetryingRegistrationManager(networking)
+        manager.registerDevice(getRegisterDeviceEvent(), configuration)
+        Assert.assertEquals(0, networking.requests.size)
+
+        // test
+        manager.shutdown()
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Assert.assertEquals(1, manager.sentRequestCount)
+    }
+
+    // =================================================================================================================
+    // fun clearRegistrationData(event: Event)
+    // =================================================================================================================
+
+    @Test
+    fun clearRegistrationData() {
+        // test
+        registrationManager.clearRegistrationData()
+
+        // verify
+        Mockito.verify(dataStore, Mockito.times(1)).remove(
+            ArgumentMatchers.eq(
+                CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH
+            )
+        )
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private val persistedValues: MutableMap<String, String> = Collections.synchronizedMap(HashMap())
+    private val readKeys: MutableList<String> = Collections.synchronizedList(ArrayList())
+    private val scheduledTasks: MutableList<Runnable> = Collections.synchronizedList(ArrayList())
+    private val scheduledDelays: MutableList<Long> = Collections.synchronizedList(ArrayList())
+    private var currentTime = 1_000_000L
+
+    private fun createRetryingRegistrationManager(
+        networking: Networking,
+        rateLimiter: TokenBucketRateLimiter = TokenBucketRateLimiter(10, 5),
+        worker: Executor = Executor { it.run() }
+    ): RegistrationManager {
+        val persistentDataStore = Mockito.mock(NamedCollection::class.java)
+        Mockito.`when`(persistentDataStore.getString(ArgumentMatchers.anyString(), ArgumentMatchers.any())).thenAnswer {
+            readKeys.add(it.arguments[0] as String)
+            persistedValues[it.arguments[0] as String] ?: it.arguments[1]
+        }
+        Mockito.doAnswer {
+            persistedValues.put(it.arguments[0] as String, it.arguments[1] as String)
+        }.`when`(persistentDataStore).setString(ArgumentMatchers.anyString(), ArgumentMatchers.anyString())
+        Mockito.doAnswer {
+            persistedValues.remove(it.arguments[0] as String)
+        }.`when`(persistentDataStore).remove(ArgumentMatchers.anyString())
+
+        val scheduler = Mockito.mock(ScheduledExecutorService::class.java)
+        Mockito.`when`(scheduler.schedule(ArgumentMatchers.any(Runnable::class.java), ArgumentMatchers.anyLong(), ArgumentMatchers.any()))
+            .thenAnswer {
+                scheduledTasks.add(it.arguments[0] as Runnable)
+                scheduledDelays.add((it.arguments[2] as TimeUnit).toMillis(it.arguments[1] as Long))
+                Mockito.mock(ScheduledFuture::class.java)
+            }
+
+        // no jitter, each delay is half of its ceiling
+        val random = Mockito.mock(Random::class.java)
+        Mockito.`when`(random.nextDouble()).thenReturn(0.0)
+
+        return RegistrationManager(
+            extensionApi,
+            deviceInfoService,
+            persistentDataStore,
+            networking,
+            scheduler,
+            { currentTime },
+            random,
+            worker = worker,
+            rateLimiter = rateLimiter
+        )
+    }
+
+    private fun persistedRegistrationState(): RegistrationState {
+        return RegistrationState.restore(
+            persistedValues[CampaignClassicTestConstants.DataStoreKeys.TOKEN_HASH],
+            persistedValues[CampaignClassicTestConstants.DataStoreKeys.REGISTER_STATUS]
+        )
+    }
+
+    private fun runScheduledTask() {
+        scheduledTasks.removeAt(0).run()
+    }
+
+    private fun setConfigurationSharedState(
+        marketingServer: String? = "testMarketingServer",
+        integrationKey: String? = "testIntegrationKey",
+        timeout: Int = 5,
+        privacyStatus: MobilePrivacyStatus = MobilePrivacyStatus.OPT_IN,
+        registrationDebounceSeconds: Long = 0
+    ) {
+        configuration = CampaignClassicConfiguration.fromSharedState(
+            mapOf(
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER to marketingServer,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER to "",
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY to integrationKey,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT to timeout,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_REGISTRATION_DEBOUNCE_SECONDS to registrationDebounceSeconds
+            )
+        )
+    }
+
+    private fun getRegisterDeviceEvent(
+        deviceToken: String? = "testToken",
+        userToken: String? = "testUser",
+        additionalParams: Map<String, String>? = mapOf("key" to "value")
+    ): Event {
+        return Event.Builder("Register Device", EventType.CAMPAIGN, EventSource.REQUEST_CONTENT)
+            .setEventData(
+                mapOf(
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.DEVICE_TOKEN to deviceToken,
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.USER_KEY to userToken,
+                    CampaignClassicTestConstants.EventDataKeys.CampaignClassic.ADDITIONAL_PARAMETERS to additionalParams
+                )
+            )
+            .build()
+    }
+
+    companion object {
+        private const val RETRY_KEY = CampaignClassicTestConstants.DataStoreKeys.REGISTRATION_RETRY
     }
 
     private fun NetworkRequest.payloadAsString(): String {
@@ -0,0 +1,221 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+
+class RegistrationStateTests {
+
+    private val request = RegistrationRequest(
+        "https://testMarketingServer/nms/mobile/1/registerAndroid.jssp",
+        ByteArray(0),
+        5,
+        "v2:fingerprint",
+        "testMarketingServer",
+        "testIntegrationKey"
+    )
+
+    // =================================================================================================================
+    // fun restore(tokenHash: String?, data: String?)
+    // =================================================================================================================
+
+    @Test
+    fun restore_NothingPersisted() {
+        // test
+        val state = RegistrationState.restore(null, null)
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.NEVER_REGISTERED, state.status)
+        Assert.assertNull(state.fingerprint)
+    }
+
+    @Test
+    fun restore_OnlyTokenHashPersisted() {
+        // test
+        val state = RegistrationState.restore("legacyHash", null)
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.REGISTERED, state.status)
+        Assert.assertEquals("legacyHash", state.fingerprint)
+        Assert.assertNull(state.marketingServer)
+        Assert.assertNull(state.integrationKey)
+    }
+
+    @Test
+    fun restore_RoundTrip() {
+        // setup
+        val state = RegistrationState.restore(null, null).pending().registered(request, 1, 1234)
+
+        // test
+        val restored = RegistrationState.restore("v2:fingerprint", state.serialize())
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.REGISTERED, restored.status)
+        Assert.assertEquals("v2:fingerprint", restored.fingerprint)
+        Assert.assertEquals("testMarketingServer", restored.marketingServer)
+        Assert.assertEquals("testIntegrationKey", restored.integrationKey)
+        Assert.assertEquals(1234, restored.registeredTimestamp)
+    }
+
+    @Test
+    fun restore_FailedRoundTrip() {
+        // setup
+        val state = RegistrationState.restore(null, null).pending().failed(5678)
+
+        // test
+        val restored = RegistrationState.restore(null, state.serialize())
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.FAILED, restored.status)
+        Assert.assertEquals(5678, restored.retryAfterTimestamp)
+    }
+
+    @Test
+    fun restore_StatusDoesNotMatchTokenHash() {
+        // setup
+        val state = RegistrationState.restore(null, null).registered(request, 1, 1234)
+
+        // test
+        val restored = RegistrationState.restore("otherHash", state.serialize())
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.REGISTERED, restored.status)
+        Assert.assertEquals("otherHash", restored.fingerprint)
+        Assert.assertNull(restored.marketingServer)
+    }
+
+    @Test
+    fun restore_InvalidData() {
+        Assert.assertEquals(RegistrationStatus.NEVER_REGISTERED, RegistrationState.restore(null, "invalid").status)
+        Assert.assertEquals(
+            RegistrationStatus.NEVER_REGISTERED,
+            RegistrationState.restore(null, "{\"status\":\"UNKNOWN\"}").status
+        )
+    }
+
+    // =================================================================================================================
+    // transitions
+    // =================================================================================================================
+
+    @Test
+    fun transitions_IncrementVersion() {
+        // setup
+        val initial = RegistrationState.restore(null, null)
+
+        // test
+        val pending = initial.pending()
+        val registered = pending.registered(request, 3, 1234)
+        val failed = registered.pending().failed(0)
+        val cleared = failed.cleared()
+
+        // verify
+        Assert.assertEquals(listOf(1L, 2L, 4L, 5L), listOf(pending.version, registered.version, failed.version, cleared.version))
+        Assert.assertEquals(3, registered.sequence)
+        Assert.assertEquals(initial.generation + 1, cleared.generation)
+        Assert.assertEquals(registered.generation, failed.generation)
+    }
+
+    @Test
+    fun failed_KeepsLastRegistration() {
+        // test
+        val failed = RegistrationState.restore(null, null).registered(request, 1, 1234).pending().failed(5678)
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.FAILED, failed.status)
+        Assert.assertEquals("v2:fingerprint", failed.fingerprint)
+        Assert.assertEquals("testMarketingServer", failed.marketingServer)
+        Assert.assertEquals(5678, failed.retryAfterTimestamp)
+    }
+
+    @Test
+    fun cleared_ForgetsRegistration() {
+        // test
+        val cleared = RegistrationState.restore(null, null).registered(request, 1, 1234).cleared()
+
+        // verify
+        Assert.assertEquals(RegistrationStatus.NEVER_REGISTERED, cleared.status)
+        Assert.assertNull(cleared.fingerprint)
+        Assert.assertNull(cleared.marketingServer)
+        Assert.assertEquals(0, cleared.registeredTimestamp)
+    }
+
+    // =================================================================================================================
+    // fun isRegisteredWith(configData: CampaignClassicConfiguration)
+    // =================================================================================================================
+
+    @Test
+    fun isRegisteredWith() {
+        // setup
+        val registered = RegistrationState.restore(null, null).registered(request, 1, 1234)
+        val legacy = RegistrationState.restore("legacyHash", null)
+
+        // verify
+        Assert.assertTrue(registered.isRegisteredWith(configuration("testMarketingServer", "testIntegrationKey")))
+        Assert.assertFalse(registered.isRegisteredWith(configuration("otherMarketingServer", "testIntegrationKey")))
+        Assert.assertFalse(registered.isRegisteredWith(configuration("testMarketingServer", "otherIntegrationKey")))
+        Assert.assertFalse(legacy.isRegisteredWith(configuration("testMarketingServer", "testIntegrationKey")))
+    }
+
+    // =================================================================================================================
+    // fun withLegacyConfiguration(configData: CampaignClassicConfiguration)
+    // =================================================================================================================
+
+    @Test
+    fun withLegacyConfiguration_RecordsConfiguration() {
+        // setup
+        val legacy = RegistrationState.restore("legacyHash", null)
+
+        // test
+        val recorded = legacy.withLegacyConfiguration(configuration("testMarketingServer", "testIntegrationKey"))
+
+        // verify
+        Assert.assertNotNull(recorded)
+        Assert.assertEquals(legacy.version + 1, recorded?.version)
+        Assert.assertEquals("legacyHash", recorded?.fingerprint)
+        Assert.assertTrue(recorded?.isRegisteredWith(configuration("testMarketingServer", "testIntegrationKey")) == true)
+        Assert.assertFalse(recorded?.isRegisteredWith(configuration("otherMarketingServer", "testIntegrationKey")) == true)
+    }
+
+    @Test
+    fun withLegacyConfiguration_WhenRecordedOrNotRegistered_ThenNull() {
+        // setup
+        val registered = RegistrationState.restore(null, null).registered(request, 1, 1234)
+        val notRegistered = RegistrationState.restore(null, null)
+
+        // verify
+        Assert.assertNull(registered.withLegacyConfiguration(configuration("otherMarketingServer", "otherIntegrationKey")))
+        Assert.assertNull(notRegistered.withLegacyConfiguration(configuration("testMarketingServer", "testIntegrationKey")))
+    }
+
+    @Test
+    fun migrated_RecordsConfiguration() {
+        // setup
+        val legacy = RegistrationState.restore("legacyHash", null)
+
+        // test
+        val migrated = legacy.migrated("v2:fingerprint", configuration("testMarketingServer", "testIntegrationKey"))
+
+        // verify
+        Assert.assertEquals("v2:fingerprint", migrated.fingerprint)
+        Assert.assertEquals("testMarketingServer", migrated.marketingServer)
+        Assert.assertEquals("testIntegrationKey", migrated.integrationKey)
+    }
+
+    private fun configuration(marketingServer: String, integrationKey: String): CampaignClassicConfiguration {
+        return CampaignClassicConfiguration.fromSharedState(
+            mapOf(
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_MARKETING_SERVER to marketingServer,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_APP_INTEGRATION_KEY to integrationKey
+            )
+        )
+    }
+}
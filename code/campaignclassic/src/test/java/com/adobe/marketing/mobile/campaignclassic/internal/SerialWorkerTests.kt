@@ -0,0 +1,166 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.After
+import org.junit.Assert
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class SerialWorkerTests {
+
+    private val worker = SerialWorker("testWorker", 2)
+
+    @After
+    fun teardown() {
+        worker.shutdown()
+    }
+
+    // =================================================================================================================
+    // fun execute(task: Runnable)
+    // =================================================================================================================
+
+    @Test
+    fun execute_RunsTasksInOrderOnWorkerThread() {
+        // setup
+        val worker = SerialWorker("testWorker", 16)
+        val results = Collections.synchronizedList(ArrayList<Int>())
+        val threadNames = Collections.synchronizedSet(HashSet<String>())
+        val done = CountDownLatch(1)
+
+        // test
+        for (i in 0 until 10) {
+            worker.execute {
+                results.add(i)
+                threadNames.add(Thread.currentThread().name)
+            }
+        }
+        worker.execute { done.countDown() }
+
+        // verify
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals((0 until 10).toList(), results)
+        Assert.assertEquals(setOf("testWorker"), threadNames)
+        worker.shutdown()
+    }
+
+    @Test
+    fun execute_ReturnsWhileTaskIsRunning() {
+        // setup
+        val release = CountDownLatch(1)
+        worker.execute { release.await() }
+
+        // test
+        val start = System.nanoTime()
+        worker.execute { }
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        // verify
+        Assert.assertTrue("execute took $elapsedMillis ms", elapsedMillis < 1000)
+        Assert.assertEquals(1, worker.queuedTaskCount)
+        release.countDown()
+    }
+
+    @Test
+    fun execute_WhenQueueFull_ThenReturnsImmediatelyAndDropsOldestTask() {
+        // setup
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val results = Collections.synchronizedList(ArrayList<Int>())
+        worker.execute {
+            started.countDown()
+            release.await()
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS))
+
+        // test, saturate the queue while the worker is busy
+        val start = System.nanoTime()
+        for (i in 0 until 100) {
+            worker.execute { results.add(i) }
+        }
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        // verify
+        Assert.assertTrue("execute took $elapsedMillis ms", elapsedMillis < 1000)
+        Assert.assertEquals(2, worker.queuedTaskCount)
+        Assert.assertEquals(98, worker.droppedTaskCount)
+        val done = CountDownLatch(1)
+        worker.execute(SerialWorker.essential(Runnable { done.countDown() }))
+        release.countDown()
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals(listOf(98, 99), results)
+    }
+
+    @Test
+    fun execute_WhenQueueFull_ThenKeepsEssentialTasks() {
+        // setup
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val results = Collections.synchronizedList(ArrayList<String>())
+        worker.execute {
+            started.countDown()
+            release.await()
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS))
+
+        // test
+        worker.execute(SerialWorker.essential(Runnable { results.add("optOut") }))
+        for (i in 0 until 5) {
+            worker.execute { results.add("request$i") }
+        }
+        worker.execute(SerialWorker.essential(Runnable { results.add("configuration") }))
+        val done = CountDownLatch(1)
+        worker.execute(SerialWorker.essential(Runnable { done.countDown() }))
+        release.countDown()
+
+        // verify
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals(listOf("optOut", "request3", "request4", "configuration"), results)
+        Assert.assertEquals(3, worker.droppedTaskCount)
+    }
+
+    @Test
+    fun execute_WhenTaskThrows_ThenKeepsRunning() {
+        // setup
+        val done = CountDownLatch(1)
+
+        // test
+        worker.execute { throw IllegalStateException("test") }
+        worker.execute { done.countDown() }
+
+        // verify
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS))
+    }
+
+    // =================================================================================================================
+    // fun shutdown()
+    // =================================================================================================================
+
+    @Test
+    fun shutdown_RunsQueuedTasksAndDropsNewTasks() {
+        // setup
+        val release = CountDownLatch(1)
+        val results = Collections.synchronizedList(ArrayList<Int>())
+        worker.execute { release.await() }
+        worker.execute { results.add(1) }
+
+        // test
+        worker.shutdown()
+        worker.execute { results.add(2) }
+        release.countDown()
+
+        // verify
+        Thread.sleep(200)
+        Assert.assertEquals(listOf(1), results)
+    }
+}
@@ -0,0 +1,162 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.DeviceInforming
+import org.junit.Assert
+import org.junit.Test
+import org.mockito.Mockito
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicLong
+
+class ServerWarmUpTests {
+
+    private val clock = AtomicLong(1000L)
+    private val failingUrls = HashSet<String>()
+    private val deferredTasks = ArrayList<Runnable>()
+    private val preconnectedUrls = ArrayList<String>()
+    private val transport = object : CampaignClassicTransport {
+        override fun send(request: CampaignClassicTransport.Request, callback: CampaignClassicTransport.Callback) {}
+
+        override fun preconnect(url: String) {
+            preconnectedUrls.add(url)
+            if (url in failingUrls) {
+                throw IllegalStateException("connection failed")
+            }
+        }
+    }
+
+    // =================================================================================================================
+    // fun warmUp(servers: List<String?>)
+    // =================================================================================================================
+
+    @Test
+    fun warmUp_PreconnectsServers() {
+        // setup
+        val serverWarmUp = createServerWarmUp()
+
+        // test
+        serverWarmUp.warmUp(listOf("tracking.example.com", null, "marketing.example.com:8443"))
+
+        // verify
+        Assert.assertEquals(listOf("https://tracking.example.com", "https://marketing.example.com:8443"), preconnectedUrls)
+        Assert.assertEquals(2, serverWarmUp.preconnectCount)
+    }
+
+    @Test
+    fun warmUp_DoesNotPreconnectAgainWithinTtl() {
+        // setup
+        val serverWarmUp = createServerWarmUp()
+        serverWarmUp.warmUp(listOf("tracking.example.com"))
+
+        // test
+        clock.addAndGet(59999)
+        serverWarmUp.warmUp(listOf("tracking.example.com"))
+        val beforeExpiry = preconnectedUrls.size
+        clock.addAndGet(1)
+        serverWarmUp.warmUp(listOf("tracking.example.com"))
+
+        // verify
+        Assert.assertEquals(1, beforeExpiry)
+        Assert.assertEquals(2, preconnectedUrls.size)
+    }
+
+    @Test
+    fun warmUp_Offline_DoesNotPreconnect() {
+        // setup
+        val deviceInfoService = Mockito.mock(DeviceInforming::class.java)
+        Mockito.`when`(deviceInfoService.networkConnectionStatus).thenReturn(DeviceInforming.ConnectionStatus.DISCONNECTED)
+        val serverWarmUp = createServerWarmUp(connectivitySource = DeviceConnectivitySource(deviceInfoService))
+
+        // test
+        serverWarmUp.warmUp(listOf("tracking.example.com", "marketing.example.com"))
+
+        // verify
+        Assert.assertTrue(preconnectedUrls.isEmpty())
+    }
+
+    @Test
+    fun warmUp_PreconnectsPendingServerOnce() {
+        // setup
+        val serverWarmUp = createServerWarmUp(executor = Executor { deferredTasks.add(it) })
+
+        // test
+        serverWarmUp.warmUp(listOf("tracking.example.com", "tracking.example.com"))
+        serverWarmUp.warmUp(listOf("tracking.example.com"))
+        deferredTasks.forEach { it.run() }
+
+        // verify
+        Assert.assertEquals(listOf("https://tracking.example.com"), preconnectedUrls)
+    }
+
+    @Test
+    fun warmUp_BoundsPendingPreconnects() {
+        // setup
+        val serverWarmUp = createServerWarmUp(executor = Executor { deferredTasks.add(it) })
+
+        // test
+        serverWarmUp.warmUp((1..10).map { "server$it.example.com" })
+        val pendingBeforePreconnecting = deferredTasks.size
+        deferredTasks.forEach { it.run() }
+        deferredTasks.clear()
+        serverWarmUp.warmUp((1..10).map { "server$it.example.com" })
+
+        // verify
+        Assert.assertEquals(CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS, pendingBeforePreconnecting)
+        Assert.assertEquals(CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS, deferredTasks.size)
+    }
+
+    @Test
+    fun warmUp_PreconnectFailure_PreconnectsAgain() {
+        // setup
+        failingUrls.add("https://unknown.example.com")
+        val serverWarmUp = createServerWarmUp()
+
+        // test
+        serverWarmUp.warmUp(listOf("unknown.example.com"))
+        serverWarmUp.warmUp(listOf("unknown.example.com"))
+
+        // verify
+        Assert.assertEquals(2, preconnectedUrls.size)
+        Assert.assertEquals(0, serverWarmUp.preconnectCount)
+        Assert.assertEquals(2, serverWarmUp.failedPreconnectCount)
+    }
+
+    // =================================================================================================================
+    // fun shutdown()
+    // =================================================================================================================
+
+    @Test
+    fun shutdown_StopsWorker() {
+        // setup
+        val worker = SerialWorker("testWarmUp", CampaignClassicConstants.MAX_PENDING_SERVER_WARM_UPS)
+        val serverWarmUp = createServerWarmUp(executor = worker)
+
+        // test
+        serverWarmUp.shutdown()
+        serverWarmUp.warmUp(listOf("tracking.example.com"))
+
+        // verify
+        Assert.assertTrue(preconnectedUrls.isEmpty())
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun createServerWarmUp(
+        executor: Executor = Executor { it.run() },
+        connectivitySource: ConnectivitySource = DeviceConnectivitySource(null)
+    ): ServerWarmUp {
+        return ServerWarmUp(executor, connectivitySource, transport, 60000) { clock.get() }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.net.HttpURLConnection
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.util.Collections
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Local HTTP server counting the connections set up by its clients, answering:
+ * - `/r/` with a pixel of [pixelSize] bytes, like the tracking server
+ * - `/status/<code>` with the given status code and a short body
+ * - `/redirect` with a redirect to `/status/200`
+ * - `/echo` with `200`, recording the request in [lastRequest]
+ * - `/slow` with `200` after [slowResponseMillis]
+ */
+internal class StubHttpServer(pixelSize: Int = 43, private val slowResponseMillis: Long = 3000) {
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+    private val clientPorts = Collections.synchronizedSet(HashSet<Int>())
+    private val requests = AtomicInteger()
+
+    /**
+     * Request received by the `/echo` path.
+     */
+    class RecordedRequest(val method: String, val headers: Map<String, List<String>>, val body: ByteArray)
+
+    val url: String
+        get() = "http://127.0.0.1:${server.address.port}"
+    val requestCount: Int
+        get() = requests.get()
+    val connectionCount: Int
+        get() = clientPorts.size
+    @Volatile
+    var lastRequest: RecordedRequest? = null
+        private set
+
+    init {
+        val pixel = ByteArray(pixelSize)
+        server.executor = Executors.newCachedThreadPool { runnable -> Thread(runnable).also { it.isDaemon = true } }
+        context("/r/") { exchange ->
+            exchange.responseHeaders.add("Content-Type", "image/gif")
+            respond(exchange, HttpURLConnection.HTTP_OK, pixel)
+        }
+        context("/status/") { exchange ->
+            val code = exchange.requestURI.path.substringAfterLast('/').toInt()
+            respond(exchange, code, "status $code".toByteArray(Charsets.UTF_8))
+        }
+        context("/redirect") { exchange ->
+            exchange.responseHeaders.add("Location", "$url/status/200")
+            respond(exchange, HttpURLConnection.HTTP_MOVED_TEMP, ByteArray(0))
+        }
+        context("/echo") { exchange ->
+            val body = exchange.requestBody.use { it.readBytes() }
+            lastRequest = RecordedRequest(exchange.requestMethod, HashMap(exchange.requestHeaders), body)
+            respond(exchange, HttpURLConnection.HTTP_OK, ByteArray(0))
+        }
+        context("/slow") { exchange ->
+            Thread.sleep(slowResponseMillis)
+            respond(exchange, HttpURLConnection.HTTP_OK, ByteArray(0))
+        }
+        server.start()
+    }
+
+    fun stop() {
+        server.stop(0)
+    }
+
+    private fun context(path: String, handler: (HttpExchange) -> Unit) {
+        server.createContext(path) { exchange ->
+            requests.incrementAndGet()
+            clientPorts.add(exchange.remoteAddress.port)
+            try {
+                handler(exchange)
+            } catch (e: Exception) {
+                exchange.close()
+            }
+        }
+    }
+
+    private fun respond(exchange: HttpExchange, code: Int, body: ByteArray) {
+        exchange.sendResponseHeaders(code, if (body.isEmpty()) -1 else body.size.toLong())
+        exchange.responseBody.use { it.write(body) }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class TokenBucketRateLimiterTests {
+
+    private val clock = AtomicLong(1000L)
+
+    // =================================================================================================================
+    // fun tryAcquire()
+    // =================================================================================================================
+
+    @Test
+    fun tryAcquire_AllowsBurst() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(60, 5) { clock.get() }
+
+        // test
+        val allowed = (1..10).count { rateLimiter.tryAcquire() }
+
+        // verify
+        Assert.assertEquals(5, allowed)
+        Assert.assertEquals(5, rateLimiter.allowedRequestCount)
+        Assert.assertEquals(5, rateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun tryAcquire_RefillsAtRate() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(60, 5) { clock.get() }
+        repeat(5) { rateLimiter.tryAcquire() }
+
+        // test, one permit per second
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999))
+        val beforeRefill = rateLimiter.tryAcquire()
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1))
+        val afterRefill = rateLimiter.tryAcquire()
+        val afterRefillAgain = rateLimiter.tryAcquire()
+
+        // verify
+        Assert.assertFalse(beforeRefill)
+        Assert.assertTrue(afterRefill)
+        Assert.assertFalse(afterRefillAgain)
+    }
+
+    @Test
+    fun tryAcquire_RefillsUpToBurst() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(60, 5) { clock.get() }
+        repeat(5) { rateLimiter.tryAcquire() }
+
+        // test
+        clock.addAndGet(TimeUnit.HOURS.toNanos(1))
+        val allowed = (1..10).count { rateLimiter.tryAcquire() }
+
+        // verify
+        Assert.assertEquals(5, allowed)
+    }
+
+    @Test
+    fun tryAcquire_NegativeClock() {
+        // setup
+        clock.set(Long.MIN_VALUE + 1)
+        val rateLimiter = TokenBucketRateLimiter(60, 2) { clock.get() }
+
+        // test
+        val allowed = (1..3).count { rateLimiter.tryAcquire() }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1))
+
+        // verify
+        Assert.assertEquals(2, allowed)
+        Assert.assertTrue(rateLimiter.tryAcquire())
+    }
+
+    @Test
+    fun tryAcquire_ConcurrentCallers_AllowBurstOnce() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(60, 50) { clock.get() }
+        val allowed = AtomicInteger()
+
+        // test
+        runConcurrently(16) {
+            repeat(1000) {
+                if (rateLimiter.tryAcquire()) {
+                    allowed.incrementAndGet()
+                }
+            }
+        }
+
+        // verify
+        Assert.assertEquals(50, allowed.get())
+        Assert.assertEquals(50, rateLimiter.allowedRequestCount)
+        Assert.assertEquals(16 * 1000 - 50L, rateLimiter.rejectedRequestCount)
+    }
+
+    @Test
+    fun tryAcquire_ConcurrentCallers_EnforcesSteadyStateRate() {
+        // setup, 600 permits per minute is one permit every 100 milliseconds
+        val rateLimiter = TokenBucketRateLimiter(600, 10) { clock.get() }
+        val start = clock.get()
+        val tick = TimeUnit.MILLISECONDS.toNanos(10)
+
+        // test, each call advances the clock by 10 milliseconds, which asks for 10 times the allowed rate
+        runConcurrently(16) {
+            repeat(2000) {
+                clock.addAndGet(tick)
+                rateLimiter.tryAcquire()
+            }
+        }
+
+        // verify
+        val elapsedNanos = clock.get() - start
+        val steadyStatePermits = elapsedNanos / TimeUnit.MILLISECONDS.toNanos(100)
+        Assert.assertEquals(3200, steadyStatePermits)
+        Assert.assertTrue(rateLimiter.allowedRequestCount <= steadyStatePermits + 10)
+        Assert.assertTrue(rateLimiter.allowedRequestCount >= steadyStatePermits - 16)
+        Assert.assertEquals(16 * 2000L, rateLimiter.allowedRequestCount + rateLimiter.rejectedRequestCount)
+    }
+
+    // =================================================================================================================
+    // var permitsPerMinute
+    // =================================================================================================================
+
+    @Test
+    fun permitsPerMinute_UpdatesRate() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(60, 1) { clock.get() }
+        rateLimiter.tryAcquire()
+
+        // test, permits already taken are returned at the previous rate
+        rateLimiter.permitsPerMinute = 120
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1))
+        val first = rateLimiter.tryAcquire()
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500))
+        val second = rateLimiter.tryAcquire()
+        val third = rateLimiter.tryAcquire()
+
+        // verify
+        Assert.assertTrue(first)
+        Assert.assertTrue(second)
+        Assert.assertFalse(third)
+    }
+
+    @Test
+    fun permitsPerMinute_AtLeastOne() {
+        // setup
+        val rateLimiter = TokenBucketRateLimiter(0, 1) { clock.get() }
+
+        // test
+        rateLimiter.permitsPerMinute = -5
+
+        // verify
+        Assert.assertEquals(1, rateLimiter.permitsPerMinute)
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun runConcurrently(threadCount: Int, block: () -> Unit) {
+        val executor = Executors.newFixedThreadPool(threadCount)
+        val startGate = CountDownLatch(1)
+        val done = CountDownLatch(threadCount)
+        repeat(threadCount) {
+            executor.execute {
+                startGate.await()
+                try {
+                    block()
+                } finally {
+                    done.countDown()
+                }
+            }
+        }
+        startGate.countDown()
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS))
+        executor.shutdown()
+    }
+}
@@ -15,21 +15,29 @@ import com.adobe.marketing.mobile.EventSource
 import com.adobe.marketing.mobile.EventType
 import com.adobe.marketing.mobile.ExtensionApi
 import com.adobe.marketing.mobile.MobilePrivacyStatus
-import com.adobe.marketing.mobile.SharedStateResult
-import com.adobe.marketing.mobile.SharedStateStatus
+import com.adobe.marketing.mobile.services.DataEntity
+import com.adobe.marketing.mobile.services.DataQueue
+import com.adobe.marketing.mobile.services.DeviceInforming
 import com.adobe.marketing.mobile.services.HttpConnecting
 import com.adobe.marketing.mobile.services.NetworkCallback
 import com.adobe.marketing.mobile.services.NetworkRequest
 import com.adobe.marketing.mobile.services.Networking
+import com.adobe.marketing.mobile.services.PersistentHitQueue
 import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers
+import org.mockito.MockedConstruction
 import org.mockito.Mockito
 import org.mockito.junit.MockitoJUnitRunner
 import java.net.HttpURLConnection
+import java.util.Random
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 @RunWith(MockitoJUnitRunner.Silent::class)
 class TrackRequestManagerTests {
@@ -37,12 +45,13 @@ class TrackRequestManagerTests {
     private lateinit var extensionApi: ExtensionApi
     private lateinit var networkService: Networking
     private lateinit var trackManager: TrackRequestManager
+    private var configuration = CampaignClassicConfiguration.fromSharedState(null)
 
     @Before
     fun setup() {
         extensionApi = Mockito.mock(ExtensionApi::class.java)
         networkService = Mockito.mock(Networking::class.java)
-        trackManager = TrackRequestManager(extensionApi, networkService)
+        trackManager = TrackRequestManager(extensionApi, networkService, null)
     }
 
     // =================================================================================================================
@@ -57,7 +66,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID
+            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -80,7 +90,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -110,7 +121,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -122,7 +134,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -137,7 +150,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -152,7 +166,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -167,7 +182,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -182,7 +198,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -197,7 +214,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(trackInfo = null),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -212,7 +230,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(trackInfo = emptyMap()),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -227,7 +246,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = "6b6499a8-9d43-4bc5-acf0-b6aeb96846f6"),
-            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID
+            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -250,7 +270,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = "6b6499a8-9d43-4bc5-acf0-b6aeb96846f6"),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -273,7 +294,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = "1-1-1-1-1"),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -288,13 +310,33 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = "a8a"),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
         Mockito.verifyNoInteractions(networkService)
     }
 
+    @Test
+    fun handleTrackRequest_V7MessageIdAboveIntMaxValue() {
+        // setup
+        setConfigurationSharedState()
+
+        // test
+        trackManager.handleTrackRequest(
+            getTrackRequestEvent(messageId = "4294967296"),
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
+        )
+
+        // verify network call
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(1))
+            .connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+        Assert.assertEquals("https://testTrackingServer/r/?id=h100000000,testDeliveryId,2", networkRequestCaptor.value.url)
+    }
+
     @Test
     fun handleTrackRequest_TrackInfoNullMessageIdKey() {
         // setup
@@ -303,7 +345,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = null),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -318,7 +361,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(messageId = ""),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -333,7 +377,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(deliveryId = null),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -348,7 +393,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(deliveryId = ""),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify no network call
@@ -361,9 +407,10 @@ class TrackRequestManagerTests {
         setConfigurationSharedState()
 
         // test
-        TrackRequestManager(extensionApi, null).handleTrackRequest(
+        TrackRequestManager(extensionApi, null, null).handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify
@@ -385,7 +432,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify network call
@@ -400,7 +448,8 @@ class TrackRequestManagerTests {
         // test
         trackManager.handleTrackRequest(
             getTrackRequestEvent(),
-            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
         )
 
         // verify network call is still made with correct payload
@@ -410,30 +459,462 @@ class TrackRequestManagerTests {
         Assert.assertEquals(20, networkRequestCaptor.value.readTimeout)
     }
 
+    @Test
+    fun handleTrackRequest_HitQueueAvailable_QueuesHit() {
+        // setup
+        setConfigurationSharedState()
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+        Mockito.`when`(dataQueue.add(ArgumentMatchers.any())).thenReturn(true)
+
+        // test
+        TrackRequestManager(extensionApi, networkService, dataQueue).handleTrackRequest(
+            getTrackRequestEvent(),
+            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+            configuration
+        )
+
+        // verify hit is queued
+        val dataEntityCaptor = ArgumentCaptor.forClass(DataEntity::class.java)
+        Mockito.verify(dataQueue, Mockito.times(1)).add(dataEntityCaptor.capture())
+        val expectedUrl = "https://testTrackingServer/r/?id=h${java.lang.String.format("%x",12345)},testDeliveryId,1"
+        Assert.assertEquals(expectedUrl, TrackingHit.from(dataEntityCaptor.value)?.url)
+    }
+
+    @Test
+    fun handleTrackRequest_HitQueueFull_DropsHit() {
+        // setup
+        setConfigurationSharedState()
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+        Mockito.`when`(dataQueue.count()).thenReturn(CampaignClassicConstants.TRACKING_HIT_QUEUE_MAX_SIZE)
+
+        // test
+        TrackRequestManager(extensionApi, networkService, dataQueue).handleTrackRequest(
+            getTrackRequestEvent(),
+            CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID,
+            configuration
+        )
+
+        // verify
+        Mockito.verify(dataQueue, Mockito.times(0)).add(ArgumentMatchers.any())
+        Mockito.verifyNoInteractions(networkService)
+    }
+
+    @Test
+    fun handleTrackRequest_HitQueueAvailable_SendsClickHitImmediately() {
+        // setup
+        setConfigurationSharedState()
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+        val networking = FakeNetworking()
+
+        // test
+        TrackRequestManager(extensionApi, networking, dataQueue).handleTrackRequest(
+            getTrackRequestEvent(),
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
+        )
+
+        // verify
+        val expectedUrl = "https://testTrackingServer/r/?id=h${java.lang.String.format("%x",12345)},testDeliveryId,2"
+        Assert.assertEquals(listOf(expectedUrl), networking.requests.map { it.url })
+        Mockito.verify(dataQueue, Mockito.times(0)).add(ArgumentMatchers.any())
+    }
+
+    @Test
+    fun handleTrackRequest_ClickHitFails_QueuesHitForRetry() {
+        // setup
+        setConfigurationSharedState()
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+        Mockito.`when`(dataQueue.add(ArgumentMatchers.any())).thenReturn(true)
+        val networking = FakeNetworking(null)
+
+        // test
+        TrackRequestManager(extensionApi, networking, dataQueue).handleTrackRequest(
+            getTrackRequestEvent(),
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
+        )
+
+        // verify
+        val dataEntityCaptor = ArgumentCaptor.forClass(DataEntity::class.java)
+        Mockito.verify(dataQueue, Mockito.times(1)).add(dataEntityCaptor.capture())
+        val expectedUrl = "https://testTrackingServer/r/?id=h${java.lang.String.format("%x",12345)},testDeliveryId,2"
+        Assert.assertEquals(expectedUrl, TrackingHit.from(dataEntityCaptor.value)?.url)
+    }
+
+    @Test
+    fun handleTrackRequest_ClickHitRejected_DoesNotQueueHit() {
+        // setup
+        setConfigurationSharedState()
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+        val networking = FakeNetworking(HttpURLConnection.HTTP_BAD_REQUEST)
+
+        // test
+        TrackRequestManager(extensionApi, networking, dataQueue).handleTrackRequest(
+            getTrackRequestEvent(),
+            CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID,
+            configuration
+        )
+
+        // verify
+        Assert.assertEquals(1, networking.requests.size)
+        Mockito.verify(dataQueue, Mockito.times(0)).add(ArgumentMatchers.any())
+    }
+
+    // =================================================================================================================
+    // tracking hit queue flush thresholds
+    // =================================================================================================================
+
+    @Test
+    fun handleTrackRequest_WhenFlushSizeNotSet_ThenProcessesQueueImmediately() {
+        // setup
+        setConfigurationSharedState()
+        withCountingHitQueue { hitQueues ->
+            val manager = TrackRequestManager(extensionApi, networkService, Mockito.mock(DataQueue::class.java))
+            val hitQueue = hitQueues.constructed()[0]
+            Mockito.clearInvocations(hitQueue)
+
+            // test
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+            // verify
+            Mockito.verify(hitQueue, Mockito.never()).suspend()
+            Mockito.verify(hitQueue, Mockito.times(1)).beginProcessing()
+        }
+    }
+
+    @Test
+    fun handleTrackRequest_WhenFlushSizeReached_ThenProcessesQueue() {
+        // setup
+        setConfigurationSharedState(trackingFlushSize = 3)
+        withCountingHitQueue { hitQueues ->
+            val manager = createJitteringTrackRequestManager(Mockito.mock(DataQueue::class.java))
+            val hitQueue = hitQueues.constructed()[0]
+            Mockito.clearInvocations(hitQueue)
+
+            // test
+            repeat(2) {
+                manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+            }
+
+            // verify hits are held
+            Mockito.verify(hitQueue, Mockito.times(1)).suspend()
+            Mockito.verify(hitQueue, Mockito.never()).beginProcessing()
+            Assert.assertEquals(listOf(30000L), scheduledDelays)
+
+            // test
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+            // verify
+            Mockito.verify(hitQueue, Mockito.times(3)).queue(ArgumentMatchers.any())
+            Mockito.verify(hitQueue, Mockito.times(1)).beginProcessing()
+            Mockito.verifyNoInteractions(networkService)
+        }
+    }
+
+    @Test
+    fun handleTrackRequest_WhenFlushIntervalElapsed_ThenProcessesQueue() {
+        // setup
+        setConfigurationSharedState(trackingFlushSize = 10, trackingFlushInterval = 5)
+        withCountingHitQueue { hitQueues ->
+            val manager = createJitteringTrackRequestManager(Mockito.mock(DataQueue::class.java))
+            val hitQueue = hitQueues.constructed()[0]
+            Mockito.clearInvocations(hitQueue)
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+            // test
+            scheduledTasks.removeAt(0).run()
+
+            // verify
+            Assert.assertEquals(listOf(5000L), scheduledDelays)
+            Mockito.verify(hitQueue, Mockito.times(1)).beginProcessing()
+        }
+    }
+
+    @Test
+    fun handleTrackRequest_WhenFlushSizeSet_ThenSendsClickTrackingImmediately() {
+        // setup
+        setConfigurationSharedState(trackingFlushSize = 3)
+        val networking = FakeNetworking()
+        withCountingHitQueue { hitQueues ->
+            val manager = TrackRequestManager(extensionApi, networking, Mockito.mock(DataQueue::class.java))
+
+            // test
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID, configuration)
+
+            // verify
+            Assert.assertEquals(1, networking.requests.size)
+            Mockito.verify(hitQueues.constructed()[0], Mockito.never()).queue(ArgumentMatchers.any())
+        }
+    }
+
+    @Test
+    fun flushQueuedHits_ProcessesQueue() {
+        // setup
+        setConfigurationSharedState(trackingFlushSize = 3)
+        withCountingHitQueue { hitQueues ->
+            val manager = createJitteringTrackRequestManager(Mockito.mock(DataQueue::class.java))
+            val hitQueue = hitQueues.constructed()[0]
+            Mockito.clearInvocations(hitQueue)
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+            // test
+            manager.flushQueuedHits()
+
+            // verify
+            Mockito.verify(hitQueue, Mockito.times(1)).beginProcessing()
+        }
+    }
+
+    // =================================================================================================================
+    // receive tracking jitter
+    // =================================================================================================================
+
+    @Test
+    fun handleTrackRequest_WhenJitterSet_ThenDelaysReceiveTracking() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        val manager = createJitteringTrackRequestManager()
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        Mockito.verifyNoInteractions(networkService)
+        Assert.assertEquals(listOf(5000L), scheduledDelays)
+        Assert.assertEquals(1, manager.delayedHitCount)
+
+        // test
+        scheduledTasks.removeAt(0).run()
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertEquals(0, manager.delayedHitCount)
+    }
+
+    @Test
+    fun handleTrackRequest_WhenJitterSet_ThenSendsClickTrackingImmediately() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        val manager = createJitteringTrackRequestManager()
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID, configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertTrue(scheduledTasks.isEmpty())
+    }
+
+    @Test
+    fun handleTrackRequest_WhenTooManyDelayed_ThenSendsImmediately() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        val manager = createJitteringTrackRequestManager()
+        repeat(CampaignClassicConstants.MAX_DELAYED_RECEIVE_TRACKING_HITS) {
+            manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+        }
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+        Assert.assertEquals(CampaignClassicConstants.MAX_DELAYED_RECEIVE_TRACKING_HITS, manager.delayedHitCount)
+    }
+
+    @Test
+    fun flushDelayedHits_SendsDelayedHits() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        val manager = createJitteringTrackRequestManager()
+        manager.handleTrackRequest(getTrackRequestEvent("1"), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+        manager.handleTrackRequest(getTrackRequestEvent("2"), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // test
+        manager.flushDelayedHits()
+        scheduledTasks.forEach { it.run() }
+
+        // verify hits are sent in order, once
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(2)).connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+        Assert.assertEquals(
+            listOf("https://testTrackingServer/r/?id=h1,testDeliveryId,1", "https://testTrackingServer/r/?id=h2,testDeliveryId,1"),
+            networkRequestCaptor.allValues.map { it.url }
+        )
+        Assert.assertEquals(0, manager.delayedHitCount)
+    }
+
+    @Test
+    fun shutdown_ThenSendsReceiveTrackingWithoutDelay() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        trackManager.handleTrackRequest(getTrackRequestEvent("1"), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // test
+        trackManager.shutdown()
+        trackManager.handleTrackRequest(getTrackRequestEvent("2"), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+        Assert.assertEquals("https://testTrackingServer/r/?id=h2,testDeliveryId,1", networkRequestCaptor.value.url)
+        Assert.assertEquals(1, trackManager.delayedHitCount)
+    }
+
+    @Test
+    fun clearQueuedHits_DropsDelayedHits() {
+        // setup
+        setConfigurationSharedState(receiveTrackingJitter = 10)
+        val manager = createJitteringTrackRequestManager()
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // test
+        manager.clearQueuedHits()
+        scheduledTasks.forEach { it.run() }
+        manager.flushDelayedHits()
+
+        // verify
+        Mockito.verifyNoInteractions(networkService)
+    }
+
+    // =================================================================================================================
+    // receive tracking sampling
+    // =================================================================================================================
+
+    @Test
+    fun handleTrackRequest_WhenDeviceNotSampled_ThenReceiveTrackingNotSent() {
+        // setup
+        val samplingValue = ReceiveTrackingSampler.samplingValue("testDeliveryId", "testDeviceId")
+        setConfigurationSharedState(receiveTrackingSampleRate = samplingValue)
+        val manager = createSamplingTrackRequestManager("testDeviceId")
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        Mockito.verifyNoInteractions(networkService)
+    }
+
+    @Test
+    fun handleTrackRequest_WhenDeviceSampled_ThenReceiveTrackingSent() {
+        // setup
+        val samplingValue = ReceiveTrackingSampler.samplingValue("testDeliveryId", "testDeviceId")
+        setConfigurationSharedState(receiveTrackingSampleRate = Math.nextUp(samplingValue))
+        val manager = createSamplingTrackRequestManager("testDeviceId")
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+    }
+
+    @Test
+    fun handleTrackRequest_WhenSampleRateZero_ThenClickTrackingSent() {
+        // setup
+        setConfigurationSharedState(receiveTrackingSampleRate = 0.0)
+        val manager = createSamplingTrackRequestManager("testDeviceId")
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID, configuration)
+
+        // verify
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+        Assert.assertTrue(networkRequestCaptor.value.url.endsWith(",testDeliveryId,${CampaignClassicTestConstants.MESSAGE_CLICKED_TAGID}"))
+    }
+
+    @Test
+    fun handleTrackRequest_WhenSampleRateNotConfigured_ThenReceiveTrackingSent() {
+        // setup
+        setConfigurationSharedState()
+        val manager = createSamplingTrackRequestManager("testDeviceId")
+
+        // test
+        manager.handleTrackRequest(getTrackRequestEvent(), CampaignClassicTestConstants.MESSAGE_RECEIVED_TAGID, configuration)
+
+        // verify
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())
+    }
+
+    // =================================================================================================================
+    // fun clearQueuedHits()
+    // =================================================================================================================
+
+    @Test
+    fun clearQueuedHits() {
+        // setup
+        val dataQueue = Mockito.mock(DataQueue::class.java)
+
+        // test
+        TrackRequestManager(extensionApi, networkService, dataQueue).clearQueuedHits()
+
+        // verify
+        Mockito.verify(dataQueue, Mockito.times(1)).clear()
+    }
+
     // =================================================================================================================
     // private methods
     // =================================================================================================================
 
+    private val scheduledTasks = ArrayList<Runnable>()
+    private val scheduledDelays = ArrayList<Long>()
+
+    private fun createJitteringTrackRequestManager(dataQueue: DataQueue? = null): TrackRequestManager {
+        val scheduler = Mockito.mock(ScheduledExecutorService::class.java)
+        Mockito.`when`(scheduler.schedule(ArgumentMatchers.any(Runnable::class.java), ArgumentMatchers.anyLong(), ArgumentMatchers.any()))
+            .thenAnswer {
+                scheduledTasks.add(it.arguments[0] as Runnable)
+                scheduledDelays.add((it.arguments[2] as TimeUnit).toMillis(it.arguments[1] as Long))
+                Mockito.mock(ScheduledFuture::class.java)
+            }
+        val random = Mockito.mock(Random::class.java)
+        Mockito.`when`(random.nextDouble()).thenReturn(0.5)
+        return TrackRequestManager(extensionApi, networkService, dataQueue, scheduler, random)
+    }
+
+    /**
+     * Runs the [test] with the [PersistentHitQueue]s it creates replaced by mocks counting the hits queued.
+     */
+    private fun withCountingHitQueue(test: (MockedConstruction<PersistentHitQueue>) -> Unit) {
+        val hitQueues = Mockito.mockConstruction(PersistentHitQueue::class.java) { hitQueue, _ ->
+            val count = AtomicInteger()
+            Mockito.`when`(hitQueue.queue(ArgumentMatchers.any())).thenAnswer { count.incrementAndGet() > 0 }
+            Mockito.`when`(hitQueue.count()).thenAnswer { count.get() }
+        }
+        try {
+            test(hitQueues)
+        } finally {
+            hitQueues.close()
+        }
+    }
+
+    private fun createSamplingTrackRequestManager(deviceId: String): TrackRequestManager {
+        val deviceInfoService = Mockito.mock(DeviceInforming::class.java)
+        Mockito.`when`(deviceInfoService.deviceUniqueId).thenReturn(deviceId)
+        return TrackRequestManager(extensionApi, networkService, null, deviceInfoService = deviceInfoService)
+    }
+
     private fun setConfigurationSharedState(
         trackingServer: String? = "testTrackingServer",
         privacyStatus: MobilePrivacyStatus = MobilePrivacyStatus.OPT_IN,
-        timeout: Int = CampaignClassicTestConstants.DEFAULT_TIMEOUT
+        timeout: Int = CampaignClassicTestConstants.DEFAULT_TIMEOUT,
+        receiveTrackingJitter: Int = 0,
+        receiveTrackingSampleRate: Double? = null,
+        trackingFlushSize: Int? = null,
+        trackingFlushInterval: Int? = null
     ) {
-        Mockito.`when`(
-            extensionApi.getSharedState(
-                ArgumentMatchers.eq(CampaignClassicTestConstants.EventDataKeys.Configuration.EXTENSION_NAME),
-                ArgumentMatchers.any(),
-                ArgumentMatchers.anyBoolean(),
-                ArgumentMatchers.any()
-            )
-        ).thenReturn(
-            SharedStateResult(
-                SharedStateStatus.SET,
-                mapOf(
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER to trackingServer,
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value,
-                    CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT to timeout
-                )
+        configuration = CampaignClassicConfiguration.fromSharedState(
+            mapOf(
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_SERVER to trackingServer,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.GLOBAL_CONFIG_PRIVACY to privacyStatus.value,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TIMEOUT to timeout,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_RECEIVE_TRACKING_JITTER to receiveTrackingJitter,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_RECEIVE_TRACKING_SAMPLE_RATE to receiveTrackingSampleRate,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_FLUSH_SIZE to trackingFlushSize,
+                CampaignClassicTestConstants.EventDataKeys.Configuration.CAMPAIGNCLASSIC_TRACKING_FLUSH_INTERVAL to trackingFlushInterval
             )
         )
     }
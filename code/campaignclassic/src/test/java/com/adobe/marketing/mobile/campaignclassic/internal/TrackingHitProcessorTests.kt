@@ -0,0 +1,304 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.DataEntity
+import com.adobe.marketing.mobile.services.DataQueue
+import com.adobe.marketing.mobile.services.HitProcessingResult
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import com.adobe.marketing.mobile.services.PersistentHitQueue
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentCaptor
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import org.mockito.junit.MockitoJUnitRunner
+import java.net.HttpURLConnection
+import java.util.Collections
+import java.util.Date
+import java.util.LinkedList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(MockitoJUnitRunner.Silent::class)
+class TrackingHitProcessorTests {
+
+    private lateinit var networkService: Networking
+    private lateinit var processingResult: HitProcessingResult
+    private lateinit var hitProcessor: TrackingHitProcessor
+    private var currentTime = System.currentTimeMillis()
+
+    @Before
+    fun setup() {
+        networkService = Mockito.mock(Networking::class.java)
+        processingResult = Mockito.mock(HitProcessingResult::class.java)
+        hitProcessor = TrackingHitProcessor(networkService) { currentTime }
+    }
+
+    // =================================================================================================================
+    // fun processHit(entity: DataEntity, processingResult: HitProcessingResult)
+    // =================================================================================================================
+
+    @Test
+    fun processHit_Success() {
+        // setup
+        mockNetworkResponse(HttpURLConnection.HTTP_OK)
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        val networkRequestCaptor = ArgumentCaptor.forClass(NetworkRequest::class.java)
+        Mockito.verify(networkService, Mockito.times(1)).connectAsync(networkRequestCaptor.capture(), ArgumentMatchers.any())
+        Assert.assertEquals("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", networkRequestCaptor.value.url)
+        Assert.assertEquals(5, networkRequestCaptor.value.connectTimeout)
+        Assert.assertEquals(5, networkRequestCaptor.value.readTimeout)
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_NoConnection_Retries() {
+        // setup
+        Mockito.`when`(networkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(null)
+            null
+        }
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        Mockito.verify(processingResult, Mockito.times(1)).complete(false)
+    }
+
+    @Test
+    fun processHit_RecoverableError_Retries() {
+        // setup
+        mockNetworkResponse(HttpURLConnection.HTTP_UNAVAILABLE)
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        Mockito.verify(processingResult, Mockito.times(1)).complete(false)
+    }
+
+    @Test
+    fun processHit_UnrecoverableError_DropsHit() {
+        // setup
+        mockNetworkResponse(HttpURLConnection.HTTP_BAD_REQUEST)
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_ExpiredHit_DropsHit() {
+        // setup
+        val entity = TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity()
+        currentTime = entity.timestamp.time + TimeUnit.SECONDS.toMillis(CampaignClassicConstants.TRACKING_HIT_MAX_AGE_SECONDS) + 1
+
+        // test
+        hitProcessor.processHit(entity, processingResult)
+
+        // verify
+        Mockito.verifyNoInteractions(networkService)
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_InvalidHitData_DropsHit() {
+        // test
+        hitProcessor.processHit(DataEntity("invalid"), processingResult)
+
+        // verify
+        Mockito.verifyNoInteractions(networkService)
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_NetworkServiceNotAvailable_DropsHit() {
+        // test
+        TrackingHitProcessor(null).processHit(
+            TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(),
+            processingResult
+        )
+
+        // verify
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_Redirect_DropsHit() {
+        // setup
+        mockNetworkResponse(HttpURLConnection.HTTP_MOVED_TEMP)
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    @Test
+    fun processHit_ClosesConnection() {
+        // setup
+        val connection = mockConnection(HttpURLConnection.HTTP_OK)
+        Mockito.`when`(networkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(connection)
+            null
+        }
+
+        // test
+        hitProcessor.processHit(TrackingHit("https://testTrackingServer/r/?id=h3039,testDeliveryId,1", 5).toDataEntity(), processingResult)
+
+        // verify
+        Mockito.verify(connection, Mockito.times(1)).close()
+        Mockito.verify(processingResult, Mockito.times(1)).complete(true)
+    }
+
+    /**
+     * Sends hits to a local stub tracking server answering with a pixel, through the production transport chain over
+     * [HttpURLConnection] closing connections the same way as the platform network service, and counts the
+     * connections set up by the server.
+     */
+    @Test
+    fun processHit_StubServer_ReusesConnections() {
+        // setup
+        val server = StubHttpServer(pixelSize = 2048)
+        try {
+            val transport = NetworkingTransport(UrlConnectionNetworking())
+            val processor = TrackingHitProcessor(TransportNetworking(transport))
+
+            // test
+            repeat(20) {
+                val latch = CountDownLatch(1)
+                processor.sendHit(TrackingHit("${server.url}/r/?id=h$it,testDeliveryId,1", 5)) { latch.countDown() }
+                Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+            }
+
+            // verify
+            Assert.assertEquals(20, server.requestCount)
+            Assert.assertEquals(20L, transport.responseCount)
+            Assert.assertEquals(20 * 2048L, transport.discardedResponseByteCount)
+            Assert.assertEquals(1, server.connectionCount)
+        } finally {
+            server.stop()
+        }
+    }
+
+    // =================================================================================================================
+    // persistence
+    // =================================================================================================================
+
+    @Test
+    fun hitQueue_NoHitsLostAcrossProcessRestart() {
+        // setup
+        val dataQueue = InMemoryDataQueue()
+        Mockito.`when`(networkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(null)
+            null
+        }
+        val hitQueue = PersistentHitQueue(dataQueue, hitProcessor)
+        hitQueue.beginProcessing()
+        for (i in 1..10) {
+            hitQueue.queue(TrackingHit("https://testTrackingServer/r/?id=h$i,testDeliveryId,1", 5).toDataEntity())
+        }
+
+        // simulate the process being killed while offline
+        hitQueue.suspend()
+        Assert.assertEquals(10, dataQueue.count())
+
+        // test, process restarts with the network available
+        val sentUrls = Collections.synchronizedList(mutableListOf<String>())
+        val restartedNetworkService = Mockito.mock(Networking::class.java)
+        Mockito.`when`(restartedNetworkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            sentUrls.add((invocation.arguments[0] as NetworkRequest).url)
+            (invocation.arguments[1] as NetworkCallback).call(mockConnection(HttpURLConnection.HTTP_OK))
+            null
+        }
+        PersistentHitQueue(dataQueue, TrackingHitProcessor(restartedNetworkService)).beginProcessing()
+
+        // verify all hits are sent in order
+        waitFor { dataQueue.count() == 0 }
+        Assert.assertEquals((1..10).map { "https://testTrackingServer/r/?id=h$it,testDeliveryId,1" }, sentUrls)
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun mockNetworkResponse(responseCode: Int) {
+        val connection = mockConnection(responseCode)
+        Mockito.`when`(networkService.connectAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer { invocation ->
+            (invocation.arguments[1] as NetworkCallback).call(connection)
+            null
+        }
+    }
+
+    private fun mockConnection(responseCode: Int): HttpConnecting {
+        val connection = Mockito.mock(HttpConnecting::class.java)
+        Mockito.`when`(connection.responseCode).thenReturn(responseCode)
+        return connection
+    }
+
+    private fun waitFor(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 5000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        Assert.assertTrue(condition())
+    }
+
+    /**
+     * [DataQueue] which outlives the [PersistentHitQueue] reading it, standing in for the SQLite backed queue.
+     */
+    private class InMemoryDataQueue : DataQueue {
+        private val entities = LinkedList<DataEntity>()
+
+        @Synchronized
+        override fun add(entity: DataEntity): Boolean = entities.add(DataEntity(entity.uniqueIdentifier, Date(entity.timestamp.time), entity.data))
+
+        @Synchronized
+        override fun peek(): DataEntity? = entities.peekFirst()
+
+        @Synchronized
+        override fun peek(n: Int): List<DataEntity> = entities.take(n)
+
+        @Synchronized
+        override fun remove(): Boolean = entities.pollFirst() != null
+
+        @Synchronized
+        override fun remove(n: Int): Boolean {
+            repeat(n) { entities.pollFirst() }
+            return true
+        }
+
+        @Synchronized
+        override fun clear(): Boolean {
+            entities.clear()
+            return true
+        }
+
+        @Synchronized
+        override fun count(): Int = entities.size
+
+        override fun close() {}
+    }
+}
@@ -0,0 +1,80 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import org.junit.Assert
+import org.junit.Test
+
+class TrackingUrlTemplateTests {
+
+    private val urlTemplate = TrackingUrlTemplate("testTrackingServer")
+
+    // =================================================================================================================
+    // fun build(messageId: String, deliveryId: String, tagId: String)
+    // =================================================================================================================
+
+    @Test
+    fun build_V8UUIDMessageId() {
+        Assert.assertEquals(
+            "https://testTrackingServer/r/?id=h6b6499a8-9d43-4bc5-acf0-b6aeb96846f6,testDeliveryId,1",
+            urlTemplate.build("6b6499a8-9d43-4bc5-acf0-b6aeb96846f6", "testDeliveryId", "1")
+        )
+    }
+
+    @Test
+    fun build_V8UpperCaseUUIDMessageId() {
+        Assert.assertEquals(
+            "https://testTrackingServer/r/?id=h6B6499A8-9D43-4BC5-ACF0-B6AEB96846F6,testDeliveryId,2",
+            urlTemplate.build("6B6499A8-9D43-4BC5-ACF0-B6AEB96846F6", "testDeliveryId", "2")
+        )
+    }
+
+    @Test
+    fun build_V7MessageId() {
+        for (messageId in listOf("0", "1", "15", "16", "12345", "-1", "-12345", "+42", "2147483647", "-2147483648")) {
+            Assert.assertEquals(
+                "https://testTrackingServer/r/?id=h${java.lang.String.format("%x", messageId.toInt())},testDeliveryId,1",
+                urlTemplate.build(messageId, "testDeliveryId", "1")
+            )
+        }
+    }
+
+    @Test
+    fun build_V7MessageIdAboveIntMaxValue() {
+        Assert.assertEquals(
+            "https://testTrackingServer/r/?id=h80000000,testDeliveryId,1",
+            urlTemplate.build("2147483648", "testDeliveryId", "1")
+        )
+        Assert.assertEquals(
+            "https://testTrackingServer/r/?id=h7fffffffffffffff,testDeliveryId,1",
+            urlTemplate.build("9223372036854775807", "testDeliveryId", "1")
+        )
+    }
+
+    @Test
+    fun build_InvalidMessageId() {
+        for (messageId in listOf("", "-", "+", "a8a", "12a", "1-1-1-1-1", "9223372036854775808", "-2147483649", "6b6499a8-9d43-4bc5-acf0-b6aeb96846fg", "6b6499a8_9d43-4bc5-acf0-b6aeb96846f6")) {
+            Assert.assertNull(messageId, urlTemplate.build(messageId, "testDeliveryId", "1"))
+        }
+    }
+
+    @Test
+    fun build_ReusesBufferAcrossCalls() {
+        // test
+        val first = urlTemplate.build("6b6499a8-9d43-4bc5-acf0-b6aeb96846f6", "firstDeliveryId", "1")
+        Assert.assertNull(urlTemplate.build("invalid", "secondDeliveryId", "1"))
+        val third = urlTemplate.build("255", "thirdDeliveryId", "2")
+
+        // verify
+        Assert.assertEquals("https://testTrackingServer/r/?id=h6b6499a8-9d43-4bc5-acf0-b6aeb96846f6,firstDeliveryId,1", first)
+        Assert.assertEquals("https://testTrackingServer/r/?id=hff,thirdDeliveryId,2", third)
+    }
+}
@@ -0,0 +1,233 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.net.HttpURLConnection
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Checks a [CampaignClassicTransport] follows the transport contract, sending requests to a local [StubHttpServer].
+ * Subclasses provide the transport under test with [createTransport].
+ */
+abstract class TransportConformanceSuite {
+
+    private lateinit var server: StubHttpServer
+    private lateinit var transport: CampaignClassicTransport
+
+    /**
+     * @return [CampaignClassicTransport] under test
+     */
+    abstract fun createTransport(): CampaignClassicTransport
+
+    @Before
+    fun setupServer() {
+        server = StubHttpServer(slowResponseMillis = 3000)
+        transport = createTransport()
+    }
+
+    @After
+    fun stopServer() {
+        server.stop()
+    }
+
+    // =================================================================================================================
+    // fun send(request: Request, callback: Callback)
+    // =================================================================================================================
+
+    @Test
+    fun send_Get_ReportsResponse() {
+        // test
+        val outcome = send(request("${server.url}/r/?id=h1,testDeliveryId,1"))
+
+        // verify
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, outcome.statusCode)
+        Assert.assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun send_Post_SendsBodyAndHeadersAsIs() {
+        // setup
+        val body = "registrationToken=testToken&userKey=caf%C3%A9".toByteArray(Charsets.UTF_8)
+
+        // test
+        val outcome = send(
+            request(
+                "${server.url}/echo",
+                CampaignClassicTransport.Method.POST,
+                body,
+                arrayOf("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8", "X-Test", "testValue")
+            )
+        )
+
+        // verify
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, outcome.statusCode)
+        val received = server.lastRequest
+        Assert.assertNotNull(received)
+        Assert.assertEquals("POST", received?.method)
+        Assert.assertArrayEquals(body, received?.body)
+        Assert.assertEquals(
+            listOf("application/x-www-form-urlencoded;charset=UTF-8"),
+            received?.headers?.get("Content-type")
+        )
+        Assert.assertEquals(listOf("testValue"), received?.headers?.get("X-test"))
+    }
+
+    @Test
+    fun send_ErrorResponses_ReportedAsResponses() {
+        for (code in listOf(400, 404, 429, 500, 503)) {
+            // test
+            val outcome = send(request("${server.url}/status/$code"))
+
+            // verify
+            Assert.assertEquals(code, outcome.statusCode)
+            Assert.assertFalse(outcome.failed)
+        }
+    }
+
+    @Test
+    fun send_Redirect_ReportsRedirectOrTarget() {
+        // test
+        val outcome = send(request("${server.url}/redirect", followRedirects = false))
+
+        // verify
+        Assert.assertTrue(outcome.statusCode in 200..399)
+    }
+
+    @Test
+    fun send_ConnectionRefused_ReportsFailure() {
+        // setup
+        val port = ServerSocket(0, 0, InetAddress.getLoopbackAddress()).use { it.localPort }
+
+        // test
+        val outcome = send(request("http://127.0.0.1:$port/r/"))
+
+        // verify
+        Assert.assertTrue(outcome.failed)
+    }
+
+    @Test
+    fun send_Timeout_ReportsFailure() {
+        // test
+        val outcome = send(request("${server.url}/slow", readTimeout = 1))
+
+        // verify
+        Assert.assertTrue(outcome.failed)
+    }
+
+    @Test
+    fun send_DoesNotBlockCaller() {
+        // setup
+        val latch = CountDownLatch(1)
+
+        // test
+        val start = System.nanoTime()
+        transport.send(request("${server.url}/slow"), callback(Outcome(), latch))
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        // verify
+        Assert.assertTrue("send blocked for $elapsedMillis ms", elapsedMillis < 1000)
+        Assert.assertEquals(1L, latch.count)
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun send_CallsCallbackExactlyOnce() {
+        // setup
+        val urls = listOf("${server.url}/r/", "${server.url}/status/500", "${server.url}/redirect", "http://127.0.0.1:1/r/")
+        val outcomes = urls.map { Outcome() }
+        val latch = CountDownLatch(urls.size)
+
+        // test
+        urls.forEachIndexed { i, url -> transport.send(request(url), callback(outcomes[i], latch)) }
+
+        // verify
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS))
+        Thread.sleep(200)
+        outcomes.forEach { Assert.assertEquals(1, it.callCount) }
+    }
+
+    @Test
+    fun send_ConcurrentRequests() {
+        // setup
+        val outcomes = (0 until 20).map { Outcome() }
+        val latch = CountDownLatch(outcomes.size)
+
+        // test
+        outcomes.forEachIndexed { i, outcome ->
+            transport.send(request("${server.url}/r/?id=h$i,testDeliveryId,1"), callback(outcome, latch))
+        }
+
+        // verify
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS))
+        outcomes.forEach { Assert.assertEquals(HttpURLConnection.HTTP_OK, it.statusCode) }
+        Assert.assertEquals(20, server.requestCount)
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private class Outcome {
+        val statusCodes: MutableList<Int> = Collections.synchronizedList(ArrayList())
+        @Volatile
+        var failures = 0
+
+        val statusCode: Int?
+            get() = statusCodes.firstOrNull()
+        val failed: Boolean
+            get() = failures > 0
+        val callCount: Int
+            get() = statusCodes.size + failures
+    }
+
+    private fun request(
+        url: String,
+        method: CampaignClassicTransport.Method = CampaignClassicTransport.Method.GET,
+        body: ByteArray? = null,
+        headers: Array<String> = arrayOf(),
+        readTimeout: Int = 5,
+        followRedirects: Boolean = method == CampaignClassicTransport.Method.POST
+    ): CampaignClassicTransport.Request {
+        return CampaignClassicTransport.Request(url, method, body, headers, 5, readTimeout, followRedirects)
+    }
+
+    private fun callback(outcome: Outcome, latch: CountDownLatch): CampaignClassicTransport.Callback {
+        return object : CampaignClassicTransport.Callback {
+            override fun onResponse(statusCode: Int) {
+                outcome.statusCodes.add(statusCode)
+                latch.countDown()
+            }
+
+            override fun onFailure() {
+                outcome.failures++
+                latch.countDown()
+            }
+        }
+    }
+
+    private fun send(request: CampaignClassicTransport.Request): Outcome {
+        val outcome = Outcome()
+        val latch = CountDownLatch(1)
+        transport.send(request, callback(outcome, latch))
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS))
+        Assert.assertEquals(1, outcome.callCount)
+        return outcome
+    }
+}
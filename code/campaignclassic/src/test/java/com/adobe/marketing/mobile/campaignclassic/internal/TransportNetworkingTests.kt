@@ -0,0 +1,138 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.CampaignClassicTransport
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.HttpMethod
+import com.adobe.marketing.mobile.services.NetworkRequest
+import org.junit.Assert
+import org.junit.Test
+
+class TransportNetworkingTests {
+
+    private val transport = RecordingTransport()
+    private val networking = TransportNetworking(transport)
+
+    // =================================================================================================================
+    // fun connectAsync(request: NetworkRequest, callback: NetworkCallback)
+    // =================================================================================================================
+
+    @Test
+    fun connectAsync_Post_MapsRequest() {
+        // setup
+        val body = "registrationToken=testToken".toByteArray(Charsets.UTF_8)
+        val headers = linkedMapOf("Content-Type" to "application/x-www-form-urlencoded;charset=UTF-8", "X-Test" to "testValue")
+
+        // test
+        networking.connectAsync(
+            NetworkRequest("https://testMarketingServer/nms/mobile/1/registerAndroid.jssp", HttpMethod.POST, body, headers, 5, 10)
+        ) {}
+
+        // verify
+        val request = transport.requests.single()
+        Assert.assertEquals("https://testMarketingServer/nms/mobile/1/registerAndroid.jssp", request.url)
+        Assert.assertEquals(CampaignClassicTransport.Method.POST, request.method)
+        Assert.assertArrayEquals(body, request.body)
+        Assert.assertEquals(2, request.headerCount)
+        Assert.assertEquals("Content-Type", request.getHeaderName(0))
+        Assert.assertEquals("application/x-www-form-urlencoded;charset=UTF-8", request.getHeaderValue(0))
+        Assert.assertEquals("X-Test", request.getHeaderName(1))
+        Assert.assertEquals("testValue", request.getHeaderValue(1))
+        Assert.assertEquals(5, request.connectTimeout)
+        Assert.assertEquals(10, request.readTimeout)
+        Assert.assertTrue(request.isFollowRedirects)
+    }
+
+    @Test
+    fun connectAsync_HeaderArrayMap_PassedAsIs() {
+        // setup
+        val namesAndValues = arrayOf("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8", "Content-Length", "27")
+
+        // test
+        networking.connectAsync(
+            NetworkRequest(
+                "https://testMarketingServer/nms/mobile/1/registerAndroid.jssp",
+                HttpMethod.POST,
+                ByteArray(27),
+                HeaderArrayMap(namesAndValues),
+                5,
+                5
+            )
+        ) {}
+
+        // verify
+        Assert.assertSame(namesAndValues, transport.requests.single().headers)
+    }
+
+    @Test
+    fun connectAsync_Get_DoesNotFollowRedirects() {
+        // test
+        networking.connectAsync(
+            NetworkRequest("https://testTrackingServer/r/?id=h1,testDeliveryId,1", HttpMethod.GET, null, null, 5, 5)
+        ) {}
+
+        // verify
+        val request = transport.requests.single()
+        Assert.assertEquals(CampaignClassicTransport.Method.GET, request.method)
+        Assert.assertNull(request.body)
+        Assert.assertEquals(0, request.headerCount)
+        Assert.assertFalse(request.isFollowRedirects)
+    }
+
+    @Test
+    fun connectAsync_Response_CompletesWithStatusCode() {
+        // setup
+        val connections = ArrayList<HttpConnecting?>()
+
+        // test
+        networking.connectAsync(trackingRequest()) { connections.add(it) }
+        transport.callbacks.single().onResponse(302)
+
+        // verify
+        val connection = connections.single()
+        Assert.assertEquals(302, connection?.responseCode)
+        Assert.assertNull(connection?.inputStream)
+        Assert.assertNull(connection?.errorStream)
+        connection?.close()
+    }
+
+    @Test
+    fun connectAsync_Failure_CompletesWithNullConnection() {
+        // setup
+        val connections = ArrayList<HttpConnecting?>()
+
+        // test
+        networking.connectAsync(trackingRequest()) { connections.add(it) }
+        transport.callbacks.single().onFailure()
+
+        // verify
+        Assert.assertEquals(listOf(null), connections)
+    }
+
+    // =================================================================================================================
+    // private methods
+    // =================================================================================================================
+
+    private fun trackingRequest(): NetworkRequest {
+        return NetworkRequest("https://testTrackingServer/r/?id=h1,testDeliveryId,1", HttpMethod.GET, null, null, 5, 5)
+    }
+
+    private class RecordingTransport : CampaignClassicTransport {
+        val requests = ArrayList<CampaignClassicTransport.Request>()
+        val callbacks = ArrayList<CampaignClassicTransport.Callback>()
+
+        override fun send(request: CampaignClassicTransport.Request, callback: CampaignClassicTransport.Callback) {
+            requests.add(request)
+            callbacks.add(callback)
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.HttpConnecting
+import com.adobe.marketing.mobile.services.NetworkCallback
+import com.adobe.marketing.mobile.services.NetworkRequest
+import com.adobe.marketing.mobile.services.Networking
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+
+/**
+ * [Networking] sending requests with [HttpURLConnection] on a background thread, following redirects and
+ * closing connections like the platform network service.
+ */
+internal class UrlConnectionNetworking : Networking {
+    override fun connectAsync(request: NetworkRequest, callback: NetworkCallback) {
+        val thread = Thread { connect(request, callback) }
+        thread.isDaemon = true
+        thread.start()
+    }
+
+    private fun connect(request: NetworkRequest, callback: NetworkCallback) {
+        val responseCode = try {
+            val connection = URL(request.url).openConnection() as HttpURLConnection
+            connection.connectTimeout = request.connectTimeout * 1000
+            connection.readTimeout = request.readTimeout * 1000
+            connection.requestMethod = request.method.name
+            request.headers?.forEach { (name, value) -> connection.setRequestProperty(name, value) }
+            request.body?.let { body ->
+                connection.doOutput = true
+                connection.setFixedLengthStreamingMode(body.size)
+                connection.outputStream.use { it.write(body) }
+            }
+            connection to connection.responseCode
+        } catch (e: IOException) {
+            callback.call(null)
+            return
+        }
+        val connection = responseCode.first
+        callback.call(object : HttpConnecting {
+            override fun getInputStream(): InputStream? = try {
+                connection.inputStream
+            } catch (e: IOException) {
+                null
+            }
+            override fun getErrorStream(): InputStream? = connection.errorStream
+            override fun getResponseCode(): Int = responseCode.second
+            override fun getResponseMessage(): String = connection.responseMessage
+            override fun getResponsePropertyValue(key: String?): String? = connection.getHeaderField(key)
+            override fun close() {
+                getInputStream()?.close()
+                connection.disconnect()
+            }
+        })
+    }
+}
@@ -0,0 +1,160 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+package com.adobe.marketing.mobile.campaignclassic.internal
+
+import com.adobe.marketing.mobile.services.NamedCollection
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import org.mockito.junit.MockitoJUnitRunner
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+
+@RunWith(MockitoJUnitRunner.Silent::class)
+class WriteBehindDataStoreTests {
+
+    private lateinit var namedCollection: NamedCollection
+    private val tasks = ArrayList<Runnable>()
+    private val executor = Executor { tasks.add(it) }
+
+    @Before
+    fun setup() {
+        namedCollection = Mockito.mock(NamedCollection::class.java)
+        Mockito.`when`(namedCollection.getString(ArgumentMatchers.eq("key"), ArgumentMatchers.any())).thenReturn("persisted")
+    }
+
+    // =================================================================================================================
+    // fun getString(key: String, defaultValue: String?)
+    // =================================================================================================================
+
+    @Test
+    fun getString_ReadsPersistedValueOnce() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+
+        // test
+        val first = dataStore.getString("key", null)
+        val second = dataStore.getString("key", null)
+
+        // verify
+        Assert.assertEquals("persisted", first)
+        Assert.assertEquals("persisted", second)
+        Mockito.verify(namedCollection, Mockito.times(1)).getString(ArgumentMatchers.eq("key"), ArgumentMatchers.any())
+    }
+
+    @Test
+    fun getString_ReturnsDefaultValueWhenNotStored() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+
+        // test
+        val first = dataStore.getString("otherKey", "default")
+        val second = dataStore.getString("otherKey", null)
+
+        // verify
+        Assert.assertEquals("default", first)
+        Assert.assertNull(second)
+        Mockito.verify(namedCollection, Mockito.times(1)).getString(ArgumentMatchers.eq("otherKey"), ArgumentMatchers.any())
+    }
+
+    @Test
+    fun getString_ReturnsUnflushedWrites() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+
+        // test
+        dataStore.setString("key", "written")
+        val written = dataStore.getString("key", null)
+        dataStore.remove("key")
+        val removed = dataStore.getString("key", "default")
+
+        // verify
+        Assert.assertEquals("written", written)
+        Assert.assertEquals("default", removed)
+        Mockito.verify(namedCollection, Mockito.never()).getString(ArgumentMatchers.anyString(), ArgumentMatchers.any())
+        Mockito.verify(namedCollection, Mockito.never()).setString(ArgumentMatchers.anyString(), ArgumentMatchers.anyString())
+    }
+
+    // =================================================================================================================
+    // fun setString(key: String, value: String) / fun remove(key: String)
+    // =================================================================================================================
+
+    @Test
+    fun setString_WritesAreCoalesced() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+
+        // test
+        dataStore.setString("key", "first")
+        dataStore.setString("key", "second")
+        dataStore.setString("otherKey", "value")
+
+        // verify a single flush persists the latest values
+        Assert.assertEquals(1, tasks.size)
+        tasks.removeAt(0).run()
+        Mockito.verify(namedCollection, Mockito.never()).setString("key", "first")
+        Mockito.verify(namedCollection).setString("key", "second")
+        Mockito.verify(namedCollection).setString("otherKey", "value")
+    }
+
+    @Test
+    fun remove_AfterSet_PersistsRemoval() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+
+        // test
+        dataStore.setString("key", "value")
+        dataStore.remove("key")
+        tasks.removeAt(0).run()
+
+        // verify
+        Mockito.verify(namedCollection, Mockito.never()).setString(ArgumentMatchers.anyString(), ArgumentMatchers.anyString())
+        Mockito.verify(namedCollection).remove("key")
+    }
+
+    @Test
+    fun setString_AfterRemove_PersistsInOrder() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, executor)
+        dataStore.setString("key", "value")
+        tasks.removeAt(0).run()
+
+        // test
+        dataStore.remove("key")
+        tasks.removeAt(0).run()
+        dataStore.setString("key", "newValue")
+        tasks.removeAt(0).run()
+
+        // verify
+        val inOrder = Mockito.inOrder(namedCollection)
+        inOrder.verify(namedCollection).setString("key", "value")
+        inOrder.verify(namedCollection).remove("key")
+        inOrder.verify(namedCollection).setString("key", "newValue")
+        Assert.assertTrue(tasks.isEmpty())
+    }
+
+    @Test
+    fun setString_WhenExecutorRejects_WritesSynchronously() {
+        // setup
+        val dataStore = WriteBehindDataStore(namedCollection, Executor { throw RejectedExecutionException() })
+
+        // test
+        dataStore.setString("key", "value")
+        dataStore.setString("key", "newValue")
+
+        // verify
+        Mockito.verify(namedCollection).setString("key", "value")
+        Mockito.verify(namedCollection).setString("key", "newValue")
+    }
+}